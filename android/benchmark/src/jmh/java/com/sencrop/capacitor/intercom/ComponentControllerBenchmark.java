@@ -0,0 +1,114 @@
+package com.sencrop.capacitor.intercom;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Component toggling against a fake package manager whose IPCs burn a fixed amount of CPU, so the
+ * score reflects how many binder calls each strategy makes. {@code coldStart} is what a process
+ * pays for disable-then-enable; {@code repeatedEnable} is every later initialize() call.
+ */
+@State(Scope.Benchmark)
+public class ComponentControllerBenchmark {
+
+    // PackageManager.COMPONENT_ENABLED_STATE_* values
+    private static final int STATE_DEFAULT = 0;
+    private static final int STATE_ENABLED = 1;
+    private static final int STATE_DISABLED = 2;
+
+    /** Blackhole.consumeCPU tokens per simulated IPC. */
+    @Param({ "0", "2000" })
+    public long ipcCost;
+
+    /** Whether the platform batches writes (setComponentEnabledSettings, API 33+). */
+    @Param({ "false", "true" })
+    public boolean batching;
+
+    private FakePackageManager packageManager;
+    private IntercomComponentController warmController;
+
+    static final class FakePackageManager implements IntercomComponentController.ComponentBackend {
+
+        final Map<String, Integer> states = new HashMap<>();
+        final long ipcCost;
+        final boolean batching;
+
+        FakePackageManager(long ipcCost, boolean batching) {
+            this.ipcCost = ipcCost;
+            this.batching = batching;
+        }
+
+        @Override
+        public boolean isPresent(String className) {
+            return true;
+        }
+
+        @Override
+        public int getState(String className) {
+            Blackhole.consumeCPU(ipcCost);
+            Integer state = states.get(className);
+            return state != null ? state : STATE_DEFAULT;
+        }
+
+        @Override
+        public int setStates(String[] classNames, int[] newStates) {
+            for (int i = 0; i < classNames.length; i++) {
+                states.put(classNames[i], newStates[i]);
+                if (!batching || i == 0) {
+                    Blackhole.consumeCPU(ipcCost);
+                }
+            }
+            return batching ? 1 : classNames.length;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        packageManager = new FakePackageManager(ipcCost, batching);
+        warmController = new IntercomComponentController(packageManager, IntercomComponentController.AUTO_COMPONENTS);
+        warmController.setEnabled(true);
+    }
+
+    /** The original controller: one unconditional write per component per call. */
+    private static void legacySetEnabled(FakePackageManager packageManager, boolean enabled) {
+        int state = enabled ? STATE_ENABLED : STATE_DISABLED;
+        for (String className : IntercomComponentController.AUTO_COMPONENTS) {
+            packageManager.setStates(new String[] { className }, new int[] { state });
+        }
+    }
+
+    @Benchmark
+    public void legacyColdStart() {
+        FakePackageManager fresh = new FakePackageManager(ipcCost, batching);
+        legacySetEnabled(fresh, false);
+        legacySetEnabled(fresh, true);
+    }
+
+    @Benchmark
+    public int controllerColdStart() {
+        IntercomComponentController controller = new IntercomComponentController(
+            new FakePackageManager(ipcCost, batching),
+            IntercomComponentController.AUTO_COMPONENTS
+        );
+        controller.setEnabled(false);
+        controller.setEnabled(true);
+        return controller.getIssuedIpcCount();
+    }
+
+    @Benchmark
+    public void legacyRepeatedEnable() {
+        legacySetEnabled(packageManager, true);
+    }
+
+    @Benchmark
+    public int controllerRepeatedEnable() {
+        warmController.setEnabled(true);
+        return warmController.getIssuedIpcCount();
+    }
+}
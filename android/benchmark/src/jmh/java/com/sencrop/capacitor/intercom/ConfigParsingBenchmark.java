@@ -0,0 +1,72 @@
+package com.sencrop.capacitor.intercom;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The config reads IntercomInitProvider does on a cold start: the early-init flag and the API keys.
+ * The asset is served from memory, so this measures parsing rather than I/O.
+ */
+@State(Scope.Benchmark)
+public class ConfigParsingBenchmark {
+
+    /** Other plugins in capacitor.config.json besides Intercom. */
+    @Param({ "0", "30" })
+    public int otherPlugins;
+
+    private byte[] asset;
+    private IntercomConfig.Source source;
+
+    @Setup
+    public void setUp() throws Exception {
+        JSONObject plugins = new JSONObject();
+        for (int i = 0; i < otherPlugins; i++) {
+            JSONObject plugin = new JSONObject();
+            for (int j = 0; j < 20; j++) {
+                plugin.put("option" + j, "value-" + i + "-" + j);
+            }
+            plugin.put("list", new JSONArray().put(1).put("two").put(new JSONObject().put("three", 3)));
+            plugins.put("Plugin" + i, plugin);
+        }
+        // Intercom after the others, as a config sorted by plugin name would usually have it
+        plugins.put(
+            "Intercom",
+            new JSONObject()
+                .put("android_apiKey", "android_sdk-0123456789abcdef")
+                .put("appId", "abcd1234")
+                .put("enableEarlyInit", true)
+        );
+        JSONObject root = new JSONObject()
+            .put("appId", "com.example.app")
+            .put("appName", "Example")
+            .put("webDir", "www")
+            .put("server", new JSONObject().put("androidScheme", "https").put("cleartext", false))
+            .put("plugins", plugins);
+        // Pretty-printed, as the Capacitor CLI writes it
+        asset = root.toString(2).getBytes(StandardCharsets.UTF_8);
+        source = () -> new ByteArrayInputStream(asset);
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        blackhole.consume(LegacyConfigParsing.isEarlyInitEnabled(source));
+        blackhole.consume(LegacyConfigParsing.readKeys(source));
+    }
+
+    @Benchmark
+    public void config(Blackhole blackhole) {
+        IntercomConfig.resetForTesting();
+        IntercomConfig config = IntercomConfig.get(source);
+        blackhole.consume(config.getBoolean("enableEarlyInit", false));
+        blackhole.consume(config.getApiKey());
+        blackhole.consume(config.getAppId());
+    }
+}
@@ -0,0 +1,66 @@
+package com.sencrop.capacitor.intercom;
+
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Event metadata conversion: the legacy recursive copy against IntercomJsonConverter. */
+@State(Scope.Benchmark)
+public class JsonConversionBenchmark {
+
+    /** Keys per object. */
+    @Param({ "5", "50", "500" })
+    public int width;
+
+    /** Levels of nested objects below the root. */
+    @Param({ "0", "3" })
+    public int depth;
+
+    private JSONObject payload;
+    private IntercomJsonConverter converter;
+
+    @Setup
+    public void setUp() throws Exception {
+        payload = object(width, depth);
+        // Limits wide enough that both implementations produce the same tree
+        converter = new IntercomJsonConverter(new IntercomJsonConverter.Limits(64, 100_000, 100_000, false));
+    }
+
+    private static JSONObject object(int width, int depth) throws Exception {
+        JSONObject object = new JSONObject();
+        for (int i = 0; i < width; i++) {
+            switch (i % 4) {
+                case 0:
+                    object.put("string_" + i, "value-" + i);
+                    break;
+                case 1:
+                    object.put("number_" + i, i * 1.5);
+                    break;
+                case 2:
+                    object.put("flag_" + i, i % 3 == 0);
+                    break;
+                default:
+                    object.put("list_" + i, new JSONArray().put(i).put("item").put(false));
+            }
+        }
+        if (depth > 0) {
+            object.put("nested", object(Math.max(1, width / 2), depth - 1));
+        }
+        return object;
+    }
+
+    @Benchmark
+    public Map<String, Object> legacy() {
+        return LegacyJsonConversion.mapFromJSON(payload);
+    }
+
+    @Benchmark
+    public Map<String, Object> converter() {
+        return converter.toMap(payload);
+    }
+}
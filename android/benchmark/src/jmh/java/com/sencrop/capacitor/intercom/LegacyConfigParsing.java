@@ -0,0 +1,62 @@
+package com.sencrop.capacitor.intercom;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import org.json.JSONObject;
+
+/**
+ * How IntercomInitProvider read capacitor.config.json before IntercomConfig: each lookup read the
+ * whole asset line by line and parsed the full document.
+ */
+final class LegacyConfigParsing {
+
+    private LegacyConfigParsing() {}
+
+    static boolean isEarlyInitEnabled(IntercomConfig.Source source) {
+        try {
+            JSONObject intercom = readIntercom(source);
+            return intercom != null && intercom.optBoolean("enableEarlyInit", false);
+        } catch (Throwable ignored) {}
+        return false;
+    }
+
+    static String[] readKeys(IntercomConfig.Source source) {
+        try {
+            JSONObject intercom = readIntercom(source);
+            if (intercom == null) {
+                return null;
+            }
+            String apiKey = intercom.optString("android_apiKey", null);
+            String appId = intercom.optString("appId", null);
+            if (apiKey == null || appId == null) {
+                String altAppId = intercom.optString("androidAppId", null);
+                if (apiKey != null && altAppId != null) {
+                    appId = altAppId;
+                }
+            }
+            if (apiKey != null && appId != null) {
+                return new String[] { apiKey, appId };
+            }
+        } catch (Throwable ignored) {}
+        return null;
+    }
+
+    private static JSONObject readIntercom(IntercomConfig.Source source) throws Exception {
+        InputStream is = source.open();
+        BufferedReader br = new BufferedReader(new InputStreamReader(is));
+        StringBuilder sb = new StringBuilder();
+        String line;
+        while ((line = br.readLine()) != null) {
+            sb.append(line);
+        }
+        br.close();
+
+        JSONObject root = new JSONObject(sb.toString());
+        JSONObject plugins = root.optJSONObject("plugins");
+        if (plugins == null) {
+            return null;
+        }
+        return plugins.optJSONObject("Intercom");
+    }
+}
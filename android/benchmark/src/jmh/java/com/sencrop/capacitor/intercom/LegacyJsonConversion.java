@@ -0,0 +1,51 @@
+package com.sencrop.capacitor.intercom;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/** The recursive mapFromJSON/listFromJSON that IntercomPlugin used before IntercomJsonConverter. */
+final class LegacyJsonConversion {
+
+    private LegacyJsonConversion() {}
+
+    static Map<String, Object> mapFromJSON(JSONObject jsonObject) {
+        if (jsonObject == null) {
+            return null;
+        }
+        Map<String, Object> map = new HashMap<>();
+        Iterator<String> keysIter = jsonObject.keys();
+        while (keysIter.hasNext()) {
+            String key = keysIter.next();
+            Object value = getObject(jsonObject.opt(key));
+            if (value != null) {
+                map.put(key, value);
+            }
+        }
+        return map;
+    }
+
+    private static Object getObject(Object value) {
+        if (value instanceof JSONObject) {
+            value = mapFromJSON((JSONObject) value);
+        } else if (value instanceof JSONArray) {
+            value = listFromJSON((JSONArray) value);
+        }
+        return value;
+    }
+
+    private static List<Object> listFromJSON(JSONArray jsonArray) {
+        List<Object> list = new ArrayList<>();
+        for (int i = 0, count = jsonArray.length(); i < count; i++) {
+            Object value = getObject(jsonArray.opt(i));
+            if (value != null) {
+                list.add(value);
+            }
+        }
+        return list;
+    }
+}
@@ -0,0 +1,85 @@
+package com.sencrop.capacitor.intercom;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.pm.ComponentInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link PackageManagerComponentBackend.Packages} on the app's own {@link PackageManager}.
+ * Resolved {@link ComponentName}s are cached so each class name is wrapped only once.
+ */
+final class AndroidComponentPackages implements PackageManagerComponentBackend.Packages {
+
+    private final Context context;
+    private final Map<String, ComponentName> componentNames = new HashMap<>();
+
+    AndroidComponentPackages(Context context) {
+        this.context = context;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public Set<String> getDeclaredComponents() {
+        // MATCH_DISABLED_COMPONENTS has the value of GET_DISABLED_COMPONENTS, so API 23 honours it too;
+        // without it, components this controller disabled would look absent
+        int flags = PackageManager.GET_ACTIVITIES | PackageManager.GET_SERVICES | PackageManager.MATCH_DISABLED_COMPONENTS;
+        PackageInfo info;
+        try {
+            info = context.getPackageManager().getPackageInfo(context.getPackageName(), flags);
+        } catch (PackageManager.NameNotFoundException e) {
+            // Our own package is always installed
+            IntercomMetrics.suppressed("componentPackages.getPackageInfo", e);
+            return Collections.emptySet();
+        }
+        Set<String> declared = new HashSet<>();
+        addNames(declared, info.activities);
+        addNames(declared, info.services);
+        return declared;
+    }
+
+    @Override
+    public int getComponentEnabledSetting(String className) {
+        return context.getPackageManager().getComponentEnabledSetting(componentName(className));
+    }
+
+    @Override
+    public void setComponentEnabledSetting(String className, int state) {
+        context.getPackageManager().setComponentEnabledSetting(componentName(className), state, PackageManager.DONT_KILL_APP);
+    }
+
+    @Override
+    public void setComponentEnabledSettings(String[] classNames, int[] states) {
+        List<PackageManager.ComponentEnabledSetting> settings = new ArrayList<>(classNames.length);
+        for (int i = 0; i < classNames.length; i++) {
+            settings.add(new PackageManager.ComponentEnabledSetting(componentName(classNames[i]), states[i], PackageManager.DONT_KILL_APP));
+        }
+        context.getPackageManager().setComponentEnabledSettings(settings);
+    }
+
+    private static void addNames(Set<String> names, ComponentInfo[] components) {
+        if (components == null) {
+            return;
+        }
+        for (ComponentInfo component : components) {
+            names.add(component.name);
+        }
+    }
+
+    private ComponentName componentName(String className) {
+        ComponentName componentName = componentNames.get(className);
+        if (componentName == null) {
+            componentName = new ComponentName(context, className);
+            componentNames.put(className, componentName);
+        }
+        return componentName;
+    }
+}
@@ -0,0 +1,158 @@
+package com.sencrop.capacitor.intercom;
+
+import android.app.Application;
+import androidx.annotation.NonNull;
+import io.intercom.android.sdk.Intercom;
+import io.intercom.android.sdk.IntercomContent;
+import io.intercom.android.sdk.IntercomError;
+import io.intercom.android.sdk.IntercomSpace;
+import io.intercom.android.sdk.IntercomStatusCallback;
+import io.intercom.android.sdk.UnreadConversationCountListener;
+import io.intercom.android.sdk.UserAttributes;
+import io.intercom.android.sdk.identity.Registration;
+import io.intercom.android.sdk.push.IntercomPushClient;
+import java.util.Map;
+
+/** {@link IntercomSdk} backed by the Intercom Android SDK. Load it through {@link IntercomSdkLoader}. */
+final class AndroidIntercomSdk implements IntercomSdk {
+
+    // Guarded by this
+    private UnreadConversationCountListener unreadCountListener;
+
+    @Override
+    public void initialize(Application application, String apiKey, String appId) {
+        Intercom.initialize(application, apiKey, appId);
+    }
+
+    @Override
+    public void handlePushMessage() {
+        Intercom.client().handlePushMessage();
+    }
+
+    @Override
+    public void handlePush(Application application, Map<String, String> data) {
+        new IntercomPushClient().handlePush(application, data);
+    }
+
+    @Override
+    public void setUserHash(String userHash) {
+        Intercom.client().setUserHash(userHash);
+    }
+
+    @Override
+    public void loginIdentifiedUser(String userId, String email, Callback callback) {
+        Registration registration = Registration.create();
+        if (email != null) {
+            registration = registration.withEmail(email);
+        }
+        if (userId != null) {
+            registration = registration.withUserId(userId);
+        }
+        Intercom.client().loginIdentifiedUser(registration, statusCallback(callback));
+    }
+
+    @Override
+    public void loginUnidentifiedUser(Callback callback) {
+        Intercom.client().loginUnidentifiedUser(statusCallback(callback));
+    }
+
+    @Override
+    public void updateUser(Map<String, Object> standard, Map<String, Object> custom, Callback callback) {
+        UserAttributes.Builder builder = new UserAttributes.Builder();
+        if (standard.containsKey("name")) {
+            builder = builder.withName((String) standard.get("name"));
+        }
+        if (standard.containsKey("email")) {
+            builder = builder.withEmail((String) standard.get("email"));
+        }
+        if (standard.containsKey("phone")) {
+            builder = builder.withPhone((String) standard.get("phone"));
+        }
+        if (standard.containsKey("language")) {
+            builder = builder.withLanguageOverride((String) standard.get("language"));
+        }
+        for (Map.Entry<String, Object> attribute : custom.entrySet()) {
+            builder = builder.withCustomAttribute(attribute.getKey(), attribute.getValue());
+        }
+        Intercom.client().updateUser(builder.build(), statusCallback(callback));
+    }
+
+    @Override
+    public void logout() {
+        Intercom.client().logout();
+    }
+
+    @Override
+    public void logEvent(String name, Map<String, Object> metadata) {
+        if (metadata == null) {
+            Intercom.client().logEvent(name);
+        } else {
+            Intercom.client().logEvent(name, metadata);
+        }
+    }
+
+    @Override
+    public void presentMessenger() {
+        Intercom.client().present();
+    }
+
+    @Override
+    public void presentHelpCenter() {
+        Intercom.client().present(IntercomSpace.HelpCenter);
+    }
+
+    @Override
+    public void presentArticle(String articleId) {
+        Intercom.client().presentContent(new IntercomContent.Article(articleId));
+    }
+
+    @Override
+    public void presentSurvey(String surveyId) {
+        Intercom.client().presentContent(new IntercomContent.Survey(surveyId));
+    }
+
+    @Override
+    public void presentMessageComposer(String content) {
+        if (content == null) {
+            Intercom.client().displayMessageComposer();
+        } else {
+            Intercom.client().displayMessageComposer(content);
+        }
+    }
+
+    @Override
+    public void hideMessenger() {
+        Intercom.client().hideIntercom();
+    }
+
+    @Override
+    public void setLauncherVisible(boolean visible) {
+        Intercom.client().setLauncherVisibility(visible ? Intercom.VISIBLE : Intercom.GONE);
+    }
+
+    @Override
+    public synchronized void setUnreadCountListener(final UnreadCountListener listener) {
+        if (unreadCountListener != null) {
+            Intercom.client().removeUnreadConversationCountListener(unreadCountListener);
+            unreadCountListener = null;
+        }
+        if (listener != null) {
+            unreadCountListener = listener::onUnreadCountChanged;
+            Intercom.client().addUnreadConversationCountListener(unreadCountListener);
+        }
+    }
+
+    private static IntercomStatusCallback statusCallback(final Callback callback) {
+        return new IntercomStatusCallback() {
+            @Override
+            public void onSuccess() {
+                callback.onSuccess();
+            }
+
+            @Override
+            public void onFailure(@NonNull IntercomError intercomError) {
+                callback.onFailure(intercomError.getErrorMessage());
+            }
+        };
+    }
+}
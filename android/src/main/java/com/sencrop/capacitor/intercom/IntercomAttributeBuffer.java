@@ -0,0 +1,112 @@
+package com.sencrop.capacitor.intercom;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for {@code updateUser} and {@code setCustomAttributes}. Attributes written
+ * during one debounce window are merged (last writer wins) and sent as a single
+ * {@code updateUser}; every caller of that window gets the result of the combined request.
+ */
+final class IntercomAttributeBuffer {
+
+    interface Callback {
+        void onSuccess();
+
+        void onFailure(String message);
+    }
+
+    /** Sends one merged update; called on the executor thread. */
+    interface Flusher {
+        void updateUser(Map<String, Object> standard, Map<String, Object> custom, Callback callback);
+    }
+
+    private final Flusher flusher;
+    private final ScheduledExecutorService executor;
+    private final long debounceMs;
+
+    private Map<String, Object> standard = new LinkedHashMap<>();
+    private Map<String, Object> custom = new LinkedHashMap<>();
+    private List<Callback> waiters = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    IntercomAttributeBuffer(Flusher flusher, ScheduledExecutorService executor, long debounceMs) {
+        this.flusher = flusher;
+        this.executor = executor;
+        this.debounceMs = Math.max(0, debounceMs);
+    }
+
+    /** Merges attributes into the pending update; {@code callback} fires once that update is sent. */
+    synchronized void add(Map<String, Object> standardAttributes, Map<String, Object> customAttributes, Callback callback) {
+        if (standardAttributes != null) {
+            standard.putAll(standardAttributes);
+        }
+        if (customAttributes != null) {
+            custom.putAll(customAttributes);
+        }
+        waiters.add(callback);
+        // Fixed window from the first write so a steady stream of writes can't postpone the flush forever
+        if (scheduledFlush == null) {
+            scheduledFlush = executor.schedule(this::send, debounceMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Sends the pending update now instead of at the end of the window. */
+    synchronized void flush() {
+        if (scheduledFlush != null && scheduledFlush.cancel(false)) {
+            scheduledFlush = executor.schedule(this::send, 0, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    synchronized int getPendingCallCount() {
+        return waiters.size();
+    }
+
+    private void send() {
+        final Map<String, Object> standardToSend;
+        final Map<String, Object> customToSend;
+        final List<Callback> callbacks;
+        synchronized (this) {
+            scheduledFlush = null;
+            if (waiters.isEmpty()) {
+                return;
+            }
+            standardToSend = standard;
+            customToSend = custom;
+            callbacks = waiters;
+            standard = new LinkedHashMap<>();
+            custom = new LinkedHashMap<>();
+            waiters = new ArrayList<>();
+        }
+        try {
+            flusher.updateUser(
+                standardToSend,
+                customToSend,
+                new Callback() {
+                    @Override
+                    public void onSuccess() {
+                        for (Callback callback : callbacks) {
+                            callback.onSuccess();
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(String message) {
+                        for (Callback callback : callbacks) {
+                            callback.onFailure(message);
+                        }
+                    }
+                }
+            );
+        } catch (Throwable e) {
+            for (Callback callback : callbacks) {
+                callback.onFailure("Could not update Intercom user: " + e.getMessage());
+            }
+        }
+    }
+}
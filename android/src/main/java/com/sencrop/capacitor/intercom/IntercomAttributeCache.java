@@ -0,0 +1,167 @@
+package com.sencrop.capacitor.intercom;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers a fingerprint of every attribute value Intercom has acknowledged for the current user,
+ * so unchanged attributes are not sent again. Fingerprints survive process death and are dropped
+ * on logout or when another user logs in.
+ */
+final class IntercomAttributeCache {
+
+    static final String STANDARD_SCOPE = "s:";
+    static final String CUSTOM_SCOPE = "c:";
+
+    private static final String PREFERENCES_NAME = "com.sencrop.capacitor.intercom.attributes";
+    private static final String USER_KEY = "__user";
+
+    /** Persistent backing store; the whole map is rewritten on every change. */
+    interface Storage {
+        Map<String, String> load();
+
+        void save(Map<String, String> values);
+    }
+
+    private final Storage storage;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private Map<String, String> confirmed;
+    // Values handed to the SDK but not yet acknowledged, so a later write of the old value isn't skipped
+    private final Map<String, String> inFlight = new HashMap<>();
+
+    IntercomAttributeCache(Storage storage) {
+        this.storage = storage;
+    }
+
+    static Storage sharedPreferences(Context context) {
+        final SharedPreferences preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        return new Storage() {
+            @Override
+            public Map<String, String> load() {
+                Map<String, String> values = new HashMap<>();
+                for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+                    if (entry.getValue() instanceof String) {
+                        values.put(entry.getKey(), (String) entry.getValue());
+                    }
+                }
+                return values;
+            }
+
+            @Override
+            public void save(Map<String, String> values) {
+                SharedPreferences.Editor editor = preferences.edit().clear();
+                for (Map.Entry<String, String> entry : values.entrySet()) {
+                    editor.putString(entry.getKey(), entry.getValue());
+                }
+                editor.apply();
+            }
+        };
+    }
+
+    /** Returns the attributes whose value differs from what Intercom last acknowledged. */
+    synchronized Map<String, Object> changed(String scope, Map<String, Object> attributes) {
+        if (attributes == null || attributes.isEmpty()) {
+            return attributes;
+        }
+        Map<String, String> known = confirmed();
+        Map<String, Object> changed = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+            String key = scope + attribute.getKey();
+            String fingerprint = fingerprint(attribute.getValue());
+            String current = inFlight.containsKey(key) ? inFlight.get(key) : known.get(key);
+            if (fingerprint.equals(current)) {
+                hits.incrementAndGet();
+            } else {
+                misses.incrementAndGet();
+                changed.put(attribute.getKey(), attribute.getValue());
+                inFlight.put(key, fingerprint);
+            }
+        }
+        return changed;
+    }
+
+    /** Marks values as acknowledged by Intercom. */
+    synchronized void confirm(String scope, Map<String, Object> attributes) {
+        Map<String, String> known = confirmed();
+        for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+            String key = scope + attribute.getKey();
+            String fingerprint = fingerprint(attribute.getValue());
+            known.put(key, fingerprint);
+            if (fingerprint.equals(inFlight.get(key))) {
+                inFlight.remove(key);
+            }
+        }
+        storage.save(known);
+    }
+
+    /** Forgets values whose update failed so they are sent again next time. */
+    synchronized void reject(String scope, Map<String, Object> attributes) {
+        for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+            String key = scope + attribute.getKey();
+            if (fingerprint(attribute.getValue()).equals(inFlight.get(key))) {
+                inFlight.remove(key);
+            }
+        }
+    }
+
+    /** Switches to {@code user}; fingerprints recorded for anyone else are discarded. */
+    synchronized void setUser(String user) {
+        Map<String, String> known = confirmed();
+        if (user != null && user.equals(known.get(USER_KEY))) {
+            return;
+        }
+        known.clear();
+        inFlight.clear();
+        if (user != null) {
+            known.put(USER_KEY, user);
+        }
+        storage.save(known);
+    }
+
+    /**
+     * Called when a login for {@code user} starts: fingerprints recorded for anyone else are
+     * discarded right away, but the cache is only bound to {@code user} by {@link #setUser} once the
+     * login succeeds, so a failed login never leaves another user's values marked as sent.
+     */
+    synchronized void expectUser(String user) {
+        if (user == null || !user.equals(confirmed().get(USER_KEY))) {
+            setUser(null);
+        }
+    }
+
+    synchronized void invalidate() {
+        setUser(null);
+    }
+
+    long getHitCount() {
+        return hits.get();
+    }
+
+    long getMissCount() {
+        return misses.get();
+    }
+
+    private Map<String, String> confirmed() {
+        if (confirmed == null) {
+            confirmed = new HashMap<>(storage.load());
+        }
+        return confirmed;
+    }
+
+    /** 64-bit FNV-1a over the value's type and string form. */
+    static String fingerprint(Object value) {
+        String text = value == null ? "null" : value.getClass().getName() + ':' + value;
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : text.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return Long.toHexString(hash);
+    }
+}
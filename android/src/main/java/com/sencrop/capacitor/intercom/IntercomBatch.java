@@ -0,0 +1,229 @@
+package com.sencrop.capacitor.intercom;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs an ordered list of plugin operations from a single bridge call. Each operation goes through
+ * the regular plugin method with a {@link OperationCall} standing in for the bridge call, so its
+ * resolve/reject becomes a per-operation result instead of a bridge response.
+ *
+ * <p>Operations start in order, and each one waits for the previous to complete. The exception is
+ * a run of buffered operations (attribute updates, events), which are all handed to their buffers
+ * before a single flush, so they can be merged into as few SDK calls as possible.
+ */
+final class IntercomBatch {
+
+    enum Policy {
+        /** Skip the remaining operations after the first failure. */
+        STOP_ON_ERROR,
+        CONTINUE;
+
+        static Policy from(String value) {
+            return "continue".equals(value) ? CONTINUE : STOP_ON_ERROR;
+        }
+    }
+
+    static final class Operation {
+
+        final String method;
+        final JSObject options;
+
+        Operation(String method, JSObject options) {
+            this.method = method;
+            this.options = options != null ? options : new JSObject();
+        }
+    }
+
+    static final class Result {
+
+        static final String FULFILLED = "fulfilled";
+        static final String REJECTED = "rejected";
+        static final String SKIPPED = "skipped";
+
+        final String method;
+        String status = SKIPPED;
+        String error;
+        JSObject data;
+
+        Result(String method) {
+            this.method = method;
+        }
+    }
+
+    interface Dispatcher {
+        /** Starts {@code method} with {@code call}; returns {@code false} if it can't be batched. */
+        boolean dispatch(String method, PluginCall call);
+
+        /** Whether {@code method} only hands its work to a buffer that {@link #flush} drains. */
+        boolean isBuffered(String method);
+
+        void flush();
+    }
+
+    interface Listener {
+        void onComplete(List<Result> results);
+    }
+
+    /** Bridge call stand-in that reports its outcome to the batch. */
+    private final class OperationCall extends PluginCall {
+
+        private final int index;
+        private boolean completed;
+
+        OperationCall(int index, Operation operation) {
+            super(null, "Intercom", "batch-" + index, operation.method, operation.options);
+            this.index = index;
+        }
+
+        @Override
+        public void resolve() {
+            complete(true, null, null);
+        }
+
+        @Override
+        public void resolve(JSObject data) {
+            complete(true, null, data);
+        }
+
+        @Override
+        public void reject(String message) {
+            complete(false, message, null);
+        }
+
+        @Override
+        public void reject(String message, String code, Exception exception, JSObject data) {
+            complete(false, message, null);
+        }
+
+        private void complete(boolean success, String error, JSObject data) {
+            synchronized (IntercomBatch.this) {
+                if (completed) {
+                    return;
+                }
+                completed = true;
+            }
+            onOperationComplete(index, success, error, data);
+        }
+    }
+
+    private final List<Operation> operations;
+    private final Policy policy;
+    private final Dispatcher dispatcher;
+    private final Listener listener;
+    private final List<Result> results;
+
+    // Guarded by this
+    private int next;
+    private int outstanding;
+    private boolean outstandingBuffered;
+    private boolean flushed;
+    private boolean stopped;
+    private boolean finished;
+    private boolean pumping;
+    private boolean pumpAgain;
+
+    IntercomBatch(List<Operation> operations, Policy policy, Dispatcher dispatcher, Listener listener) {
+        this.operations = operations;
+        this.policy = policy;
+        this.dispatcher = dispatcher;
+        this.listener = listener;
+        this.results = new ArrayList<>(operations.size());
+        for (Operation operation : operations) {
+            results.add(new Result(operation.method));
+        }
+    }
+
+    void run() {
+        pump();
+    }
+
+    /**
+     * Starts every operation that may start now. Operations that complete synchronously re-enter
+     * through {@link #onOperationComplete}; the flag pair turns that into another loop iteration
+     * instead of recursion.
+     */
+    private void pump() {
+        synchronized (this) {
+            if (pumping) {
+                pumpAgain = true;
+                return;
+            }
+            pumping = true;
+        }
+        while (true) {
+            Operation operation = null;
+            int index = -1;
+            boolean flush = false;
+            boolean finish = false;
+            synchronized (this) {
+                boolean done = next == operations.size() || stopped;
+                if (outstanding > 0) {
+                    boolean canJoin = !done && outstandingBuffered && dispatcher.isBuffered(operations.get(next).method);
+                    if (canJoin) {
+                        index = next++;
+                        operation = operations.get(index);
+                        outstanding++;
+                    } else if (!flushed && outstandingBuffered) {
+                        flushed = true;
+                        flush = true;
+                    }
+                } else if (done) {
+                    finish = !finished;
+                    finished = true;
+                } else {
+                    index = next++;
+                    operation = operations.get(index);
+                    outstanding = 1;
+                    outstandingBuffered = dispatcher.isBuffered(operation.method);
+                    flushed = false;
+                }
+                if (operation == null && !flush && !finish) {
+                    if (!pumpAgain) {
+                        pumping = false;
+                        return;
+                    }
+                    pumpAgain = false;
+                    continue;
+                }
+            }
+            if (flush) {
+                dispatcher.flush();
+            } else if (finish) {
+                listener.onComplete(results);
+            } else {
+                start(index, operation);
+            }
+        }
+    }
+
+    private void start(int index, Operation operation) {
+        boolean known;
+        OperationCall call = new OperationCall(index, operation);
+        try {
+            known = dispatcher.dispatch(operation.method, call);
+        } catch (RuntimeException e) {
+            call.reject(e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+            return;
+        }
+        if (!known) {
+            call.reject("Unsupported batch operation: " + operation.method);
+        }
+    }
+
+    private void onOperationComplete(int index, boolean success, String error, JSObject data) {
+        synchronized (this) {
+            Result result = results.get(index);
+            result.status = success ? Result.FULFILLED : Result.REJECTED;
+            result.error = error;
+            result.data = data;
+            outstanding--;
+            if (!success && policy == Policy.STOP_ON_ERROR) {
+                stopped = true;
+            }
+        }
+        pump();
+    }
+}
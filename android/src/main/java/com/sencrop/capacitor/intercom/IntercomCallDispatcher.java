@@ -0,0 +1,177 @@
+package com.sencrop.capacitor.intercom;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.json.JSONObject;
+
+/**
+ * Runs plugin calls one at a time, in arrival order, on a dedicated thread instead of the bridge
+ * thread. A call can hand UI work to the main thread with {@link #runOnMain}; the next call starts
+ * only once that work has run, so order holds across both threads without either one blocking.
+ *
+ * <p>The queue is bounded: {@link #submit} refuses calls beyond {@code capacity}, so a storm of
+ * calls is rejected at the bridge instead of piling up behind a slow SDK.
+ */
+final class IntercomCallDispatcher {
+
+    static final class Settings {
+
+        final boolean enabled;
+        final int capacity;
+
+        Settings(boolean enabled, int capacity) {
+            this.enabled = enabled;
+            this.capacity = Math.max(1, capacity);
+        }
+
+        /** Reads {@code plugins.Intercom.callQueue}; every field is optional. */
+        static Settings from(JSONObject json) {
+            if (json == null) {
+                json = new JSONObject();
+            }
+            return new Settings(json.optBoolean("enabled", true), json.optInt("capacity", 256));
+        }
+    }
+
+    private static final class Task {
+
+        final Runnable call;
+        final long enqueuedAt;
+
+        Task(Runnable call, long enqueuedAt) {
+            this.call = call;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private final Executor worker;
+    private final Executor mainThread;
+    private final int capacity;
+    private final ArrayDeque<Task> queue = new ArrayDeque<>();
+    private final IntercomMetrics.Histogram waitTimes = new IntercomMetrics.Histogram();
+
+    // Guarded by this
+    private boolean active;
+    private int maxDepth;
+    private long rejected;
+
+    private volatile Thread runningThread;
+    // Only touched by the thread running a call
+    private List<Runnable> mainWork;
+
+    /** {@code worker} must be single-threaded; {@code mainThread} posts to the main looper. */
+    IntercomCallDispatcher(Executor worker, Executor mainThread, int capacity) {
+        this.worker = worker;
+        this.mainThread = mainThread;
+        this.capacity = capacity;
+    }
+
+    /** Queues {@code call}; returns {@code false} when the queue is full. */
+    boolean submit(Runnable call) {
+        synchronized (this) {
+            if (queue.size() >= capacity) {
+                rejected++;
+                return false;
+            }
+            queue.add(new Task(call, System.nanoTime()));
+            maxDepth = Math.max(maxDepth, queue.size());
+            if (active) {
+                return true;
+            }
+            active = true;
+        }
+        worker.execute(this::drain);
+        return true;
+    }
+
+    /** Whether the current thread is running a dispatched call, which must then continue inline. */
+    boolean isDispatching() {
+        return runningThread == Thread.currentThread();
+    }
+
+    /**
+     * Runs {@code work} on the main thread. From a dispatched call, the next call waits until it
+     * has run; from anywhere else it's simply posted.
+     */
+    void runOnMain(Runnable work) {
+        if (!isDispatching()) {
+            mainThread.execute(work);
+            return;
+        }
+        if (mainWork == null) {
+            mainWork = new ArrayList<>(1);
+        }
+        mainWork.add(work);
+    }
+
+    synchronized int getDepth() {
+        return queue.size();
+    }
+
+    synchronized int getMaxDepth() {
+        return maxDepth;
+    }
+
+    synchronized long getRejectedCount() {
+        return rejected;
+    }
+
+    /** Time calls spent queued before they started. */
+    IntercomMetrics.Histogram getWaitTimes() {
+        return waitTimes;
+    }
+
+    private void drain() {
+        runningThread = Thread.currentThread();
+        // False while this drain still owns the queue; an exit without settling frees it
+        boolean settled = false;
+        try {
+            while (true) {
+                Task task;
+                synchronized (this) {
+                    task = queue.poll();
+                    if (task == null) {
+                        active = false;
+                        settled = true;
+                        return;
+                    }
+                }
+                waitTimes.record(System.nanoTime() - task.enqueuedAt);
+                try {
+                    task.call.run();
+                } catch (Throwable e) {
+                    // An Error must not kill the worker with the queue still marked active
+                    IntercomMetrics.suppressed("callDispatcher.call", e);
+                }
+                if (mainWork != null) {
+                    final List<Runnable> work = mainWork;
+                    mainWork = null;
+                    // Stays active: the main thread resumes draining once the UI work has run
+                    mainThread.execute(() -> {
+                        for (Runnable runnable : work) {
+                            try {
+                                runnable.run();
+                            } catch (Throwable e) {
+                                IntercomMetrics.suppressed("callDispatcher.main", e);
+                            }
+                        }
+                        worker.execute(this::drain);
+                    });
+                    settled = true;
+                    return;
+                }
+            }
+        } finally {
+            runningThread = null;
+            if (!settled) {
+                mainWork = null;
+                // The next submit starts a fresh drain for whatever is still queued
+                synchronized (this) {
+                    active = false;
+                }
+            }
+        }
+    }
+}
@@ -1,50 +1,369 @@
 package com.sencrop.capacitor.intercom;
 
-import android.content.ComponentName;
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
+import android.os.Build;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.json.JSONObject;
 
 /**
  * Utility to enable/disable Intercom SDK components that could be auto-started by the system
  * (e.g., Activities or Services declared by the SDK), effectively deferring their launch
  * until the app explicitly initializes Intercom.
+ *
+ * <p>Each component follows a policy from {@code plugins.Intercom.components}, keyed by simple class
+ * name, with {@code default} for the rest:
+ *
+ * <pre>
+ * "components": { "default": "onInit", "IntercomPushService": "onFirstPresent" }
+ * </pre>
+ *
+ * <p>Component states are read from the package manager once and cached; later calls only write
+ * the components whose state actually changes, in a single batch where the platform allows it.
+ * Which components this build of the SDK has is also resolved once, from the app's manifest
+ * rather than its classes; absent ones are never looked up again.
  */
 class IntercomComponentController {
 
+    static final String[] AUTO_COMPONENTS = {
+        "io.intercom.android.sdk.activities.IntercomPostActivity",
+        "io.intercom.android.sdk.helpcenter.articles.IntercomArticleActivity",
+        "io.intercom.android.sdk.m5.IntercomRootActivity",
+        "io.intercom.android.sdk.push.IntercomPushService",
+        "io.intercom.android.sdk.push.RegistrationIntentService",
+        "io.intercom.android.sdk.push.fcm.IntercomFcmMessengerService",
+        "io.intercom.android.sdk.push.SystemNotificationService",
+    };
+
+    private static final int UNKNOWN_STATE = -1;
+
+    private static final String PREFERENCES_NAME = "com.sencrop.capacitor.intercom.components";
+    private static final String PRESENTED_KEY = "presented";
+
+    /** When a component may run. */
+    enum Policy {
+        /** Enabled from process start, as the SDK declares it. */
+        ALWAYS,
+        /** Enabled once Intercom is initialized. */
+        ON_INIT,
+        /**
+         * Enabled the first time Intercom UI is presented, and from initialization on after that; a
+         * push enables it too, but only until the process ends.
+         */
+        ON_FIRST_PRESENT,
+        NEVER;
+
+        static Policy from(String value, Policy fallback) {
+            if ("always".equals(value)) {
+                return ALWAYS;
+            } else if ("onInit".equals(value)) {
+                return ON_INIT;
+            } else if ("onFirstPresent".equals(value)) {
+                return ON_FIRST_PRESENT;
+            } else if ("never".equals(value)) {
+                return NEVER;
+            }
+            return fallback;
+        }
+    }
+
+    static final class Settings {
+
+        final Policy defaultPolicy;
+        /** By simple class name. */
+        final Map<String, Policy> policies;
+
+        Settings(Policy defaultPolicy, Map<String, Policy> policies) {
+            this.defaultPolicy = defaultPolicy;
+            this.policies = policies;
+        }
+
+        /** Reads {@code plugins.Intercom.components}; every field is optional. */
+        static Settings from(JSONObject json) {
+            if (json == null) {
+                json = new JSONObject();
+            }
+            Policy defaultPolicy = Policy.from(json.optString("default", null), Policy.ON_INIT);
+            Map<String, Policy> policies = new HashMap<>();
+            Iterator<String> names = json.keys();
+            while (names.hasNext()) {
+                String name = names.next();
+                if (!name.equals("default")) {
+                    policies.put(name, Policy.from(json.optString(name, null), defaultPolicy));
+                }
+            }
+            return new Settings(defaultPolicy, policies);
+        }
+
+        Policy policy(String className) {
+            Policy policy = policies.get(className.substring(className.lastIndexOf('.') + 1));
+            return policy != null ? policy : defaultPolicy;
+        }
+    }
+
+    /** Persistent record of whether Intercom UI was ever presented. */
+    interface Storage {
+        boolean wasPresented();
+
+        void setPresented();
+    }
+
+    /**
+     * Package manager access used by the controller; every method call is a binder IPC, except that
+     * {@link #isPresent} reads the manifest once and answers every later lookup from it.
+     * {@code isPresent} must not load the class it asks about.
+     */
+    interface ComponentBackend {
+        boolean isPresent(String className);
+
+        int getState(String className);
+
+        /** Applies all states and returns how many IPCs that took. */
+        int setStates(String[] classNames, int[] states);
+    }
+
+    private static volatile IntercomComponentController instance;
+
+    private final ComponentBackend backend;
+    private final Settings settings;
+    private final Storage storage;
+    private final String[] components;
+    private final AtomicInteger ipcCount = new AtomicInteger();
+    // Lets onPresent return without the lock once everything it would enable is enabled
+    private volatile boolean presentApplied;
+    private volatile boolean pushApplied;
+    private String[] present;
+    private Policy[] policies;
+    private int[] knownStates;
+    private boolean initialized;
+    private Boolean presented;
+    private boolean pushReceived;
+
+    IntercomComponentController(ComponentBackend backend, Settings settings, Storage storage, String... components) {
+        this.backend = backend;
+        this.settings = settings;
+        this.storage = storage;
+        this.components = components;
+    }
+
+    /** Every component {@link Policy#ON_INIT}, nothing persisted. */
+    IntercomComponentController(ComponentBackend backend, String... components) {
+        this(backend, Settings.from(null), null, components);
+    }
+
+    static IntercomComponentController get(Context context) {
+        IntercomComponentController controller = instance;
+        if (controller == null) {
+            synchronized (IntercomComponentController.class) {
+                controller = instance;
+                if (controller == null) {
+                    Context appContext = context.getApplicationContext();
+                    if (appContext == null) {
+                        appContext = context;
+                    }
+                    controller = new IntercomComponentController(
+                        new PackageManagerComponentBackend(new AndroidComponentPackages(appContext), Build.VERSION.SDK_INT),
+                        Settings.from(IntercomConfig.get(appContext).getObject("components")),
+                        sharedPreferences(appContext),
+                        AUTO_COMPONENTS
+                    );
+                    instance = controller;
+                }
+            }
+        }
+        return controller;
+    }
+
     static void disableAutoComponents(Context context) {
-        setComponentEnabled(context, "io.intercom.android.sdk.activities.IntercomPostActivity", false);
-        setComponentEnabled(context, "io.intercom.android.sdk.helpcenter.articles.IntercomArticleActivity", false);
-        setComponentEnabled(context, "io.intercom.android.sdk.m5.IntercomRootActivity", false);
-        setComponentEnabled(context, "io.intercom.android.sdk.push.IntercomPushService", false);
-        setComponentEnabled(context, "io.intercom.android.sdk.push.RegistrationIntentService", false);
-        setComponentEnabled(context, "io.intercom.android.sdk.push.fcm.IntercomFcmMessengerService", false);
-        setComponentEnabled(context, "io.intercom.android.sdk.push.SystemNotificationService", false);
+        get(context).setEnabled(false);
     }
 
     static void enableAutoComponents(Context context) {
-        setComponentEnabled(context, "io.intercom.android.sdk.activities.IntercomPostActivity", true);
-        setComponentEnabled(context, "io.intercom.android.sdk.helpcenter.articles.IntercomArticleActivity", true);
-        setComponentEnabled(context, "io.intercom.android.sdk.m5.IntercomRootActivity", true);
-        setComponentEnabled(context, "io.intercom.android.sdk.push.IntercomPushService", true);
-        setComponentEnabled(context, "io.intercom.android.sdk.push.RegistrationIntentService", true);
-        setComponentEnabled(context, "io.intercom.android.sdk.push.fcm.IntercomFcmMessengerService", true);
-        setComponentEnabled(context, "io.intercom.android.sdk.push.SystemNotificationService", true);
+        get(context).setEnabled(true);
+    }
+
+    /** Call before presenting Intercom UI; enables the {@link Policy#ON_FIRST_PRESENT} components. */
+    static void beforePresent(Context context) {
+        get(context).onPresent();
     }
 
-    private static void setComponentEnabled(Context context, String className, boolean enabled) {
+    /**
+     * Call before handing a push to Intercom; enables the {@link Policy#ON_FIRST_PRESENT} components
+     * its notification may open, for this process only.
+     */
+    static void onPushReceived(Context context) {
+        get(context).onPush();
+    }
+
+    static Storage sharedPreferences(Context context) {
+        final SharedPreferences preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        return new Storage() {
+            @Override
+            public boolean wasPresented() {
+                return preferences.getBoolean(PRESENTED_KEY, false);
+            }
+
+            @Override
+            public void setPresented() {
+                preferences.edit().putBoolean(PRESENTED_KEY, true).apply();
+            }
+        };
+    }
+
+    /** Package manager IPCs issued by the process-wide controller so far. */
+    static int getIpcCount() {
+        IntercomComponentController controller = instance;
+        return controller != null ? controller.getIssuedIpcCount() : 0;
+    }
+
+    int getIssuedIpcCount() {
+        return ipcCount.get();
+    }
+
+    /**
+     * Applies each component's policy for Intercom being initialized ({@code true}) or not yet
+     * ({@code false}); {@link Policy#ALWAYS} and {@link Policy#NEVER} components ignore it.
+     */
+    synchronized void setEnabled(boolean enabled) {
+        initialized = enabled;
+        apply();
+    }
+
+    /** Enables what may run once Intercom UI is shown; free after the first call. */
+    void onPresent() {
+        if (presentApplied) {
+            return;
+        }
+        synchronized (this) {
+            initialized = true;
+            if (!wasPresented()) {
+                presented = true;
+                if (storage != null) {
+                    storage.setPresented();
+                }
+            }
+            presentApplied = apply();
+        }
+    }
+
+    /**
+     * Enables what a push notification may open, without recording that Intercom UI was shown: the
+     * notification may never be tapped. Free after the first call.
+     */
+    void onPush() {
+        if (presentApplied || pushApplied) {
+            return;
+        }
+        synchronized (this) {
+            initialized = true;
+            pushReceived = true;
+            pushApplied = apply();
+        }
+    }
+
+    /** Returns whether every component is now in the state its policy asks for. */
+    // Guarded by this
+    private boolean apply() {
         try {
-            ComponentName componentName = new ComponentName(context, Class.forName(className));
-            int newState = enabled
-                ? PackageManager.COMPONENT_ENABLED_STATE_ENABLED
-                : PackageManager.COMPONENT_ENABLED_STATE_DISABLED;
-            context.getPackageManager().setComponentEnabledSetting(
-                componentName,
-                newState,
-                PackageManager.DONT_KILL_APP
-            );
-        } catch (Throwable ignored) {
+            if (present == null) {
+                present = resolvePresent();
+                policies = new Policy[present.length];
+                for (int i = 0; i < present.length; i++) {
+                    policies[i] = settings.policy(present[i]);
+                }
+                knownStates = new int[present.length];
+                Arrays.fill(knownStates, UNKNOWN_STATE);
+            }
+
+            List<Integer> changed = new ArrayList<>(present.length);
+            for (int i = 0; i < present.length; i++) {
+                if (knownStates[i] == UNKNOWN_STATE) {
+                    knownStates[i] = backend.getState(present[i]);
+                    ipcCount.incrementAndGet();
+                }
+                if (!isInState(knownStates[i], shouldEnable(policies[i]))) {
+                    changed.add(i);
+                }
+            }
+            if (changed.isEmpty()) {
+                return true;
+            }
+
+            String[] classNames = new String[changed.size()];
+            int[] states = new int[changed.size()];
+            for (int i = 0; i < classNames.length; i++) {
+                int index = changed.get(i);
+                classNames[i] = present[index];
+                states[i] = shouldEnable(policies[index])
+                    ? PackageManager.COMPONENT_ENABLED_STATE_ENABLED
+                    : PackageManager.COMPONENT_ENABLED_STATE_DISABLED;
+            }
+            // Forget the states first so a failed write is re-read next time
+            for (int index : changed) {
+                knownStates[index] = UNKNOWN_STATE;
+            }
+            ipcCount.addAndGet(backend.setStates(classNames, states));
+            for (int i = 0; i < classNames.length; i++) {
+                knownStates[changed.get(i)] = states[i];
+            }
+            return true;
+        } catch (Throwable e) {
+            IntercomMetrics.suppressed("componentController.setEnabled", e);
+            return false;
+        }
+    }
+
+    // Guarded by this
+    private boolean shouldEnable(Policy policy) {
+        switch (policy) {
+            case ALWAYS:
+                return true;
+            case ON_INIT:
+                return initialized;
+            case ON_FIRST_PRESENT:
+                return initialized && (pushReceived || wasPresented());
+            default:
+                return false;
         }
     }
-}
 
+    // Guarded by this; reads storage only once, and only if some component depends on it
+    private boolean wasPresented() {
+        if (presented == null) {
+            presented = storage != null && storage.wasPresented();
+        }
+        return presented;
+    }
+
+    private String[] resolvePresent() {
+        if (components.length > 0) {
+            // The backend's one manifest read
+            ipcCount.incrementAndGet();
+        }
+        List<String> resolved = new ArrayList<>(components.length);
+        for (String className : components) {
+            try {
+                if (backend.isPresent(className)) {
+                    resolved.add(className);
+                }
+            } catch (Throwable e) {
+                IntercomMetrics.suppressed("componentController.isPresent", e);
+            }
+        }
+        return resolved.toArray(new String[0]);
+    }
 
+    private static boolean isInState(int state, boolean enabled) {
+        // SDK components are declared enabled in the manifest, so DEFAULT counts as enabled
+        boolean isEnabled =
+            state == PackageManager.COMPONENT_ENABLED_STATE_ENABLED || state == PackageManager.COMPONENT_ENABLED_STATE_DEFAULT;
+        return isEnabled == enabled;
+    }
+}
@@ -0,0 +1,258 @@
+package com.sencrop.capacitor.intercom;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.json.JSONObject;
+
+/**
+ * Process-wide snapshot of the {@code plugins.Intercom} section of {@code capacitor.config.json}.
+ * The asset is opened and streamed once per process; only the Intercom subtree is materialized
+ * through org.json, the rest of the file is skipped token by token.
+ */
+final class IntercomConfig {
+
+    static final String ASSET_NAME = "capacitor.config.json";
+
+    private static final String[] INTERCOM_PATH = { "plugins", "Intercom" };
+
+    /** Opens the raw config stream; abstracted so the parser can run on a plain JVM. */
+    interface Source {
+        InputStream open() throws IOException;
+    }
+
+    private static final Object lock = new Object();
+    private static final AtomicInteger assetOpenCount = new AtomicInteger();
+    private static volatile IntercomConfig instance;
+
+    private final JSONObject values;
+
+    private IntercomConfig(JSONObject values) {
+        this.values = values;
+    }
+
+    static IntercomConfig get(Context context) {
+        IntercomConfig config = instance;
+        if (config != null) {
+            return config;
+        }
+        final AssetManager assets = context.getAssets();
+        return get(() -> assets.open(ASSET_NAME));
+    }
+
+    static IntercomConfig get(Source source) {
+        IntercomConfig config = instance;
+        if (config != null) {
+            return config;
+        }
+        synchronized (lock) {
+            if (instance == null) {
+                instance = new IntercomConfig(load(source));
+            }
+            return instance;
+        }
+    }
+
+    /** Number of times the config asset has been opened in this process. */
+    static int getAssetOpenCount() {
+        return assetOpenCount.get();
+    }
+
+    static void resetForTesting() {
+        synchronized (lock) {
+            instance = null;
+            assetOpenCount.set(0);
+        }
+    }
+
+    private static JSONObject load(Source source) {
+        try {
+            assetOpenCount.incrementAndGet();
+            try (Reader reader = new InputStreamReader(source.open(), StandardCharsets.UTF_8)) {
+                String subtree = new SubtreeScanner(reader).find(INTERCOM_PATH);
+                if (subtree != null) {
+                    Object parsed = new org.json.JSONTokener(subtree).nextValue();
+                    if (parsed instanceof JSONObject) {
+                        return (JSONObject) parsed;
+                    }
+                }
+            }
+        } catch (Throwable e) {
+            // Missing or malformed config behaves like an empty Intercom section
+            IntercomMetrics.suppressed("config.load", e);
+        }
+        return new JSONObject();
+    }
+
+    String getString(String key, String defaultValue) {
+        if (values.isNull(key)) {
+            return defaultValue;
+        }
+        return values.optString(key, defaultValue);
+    }
+
+    boolean getBoolean(String key, boolean defaultValue) {
+        return values.optBoolean(key, defaultValue);
+    }
+
+    int getInt(String key, int defaultValue) {
+        return values.optInt(key, defaultValue);
+    }
+
+    long getLong(String key, long defaultValue) {
+        return values.optLong(key, defaultValue);
+    }
+
+    JSONObject getObject(String key) {
+        return values.optJSONObject(key);
+    }
+
+    String getApiKey() {
+        return getString("android_apiKey", null);
+    }
+
+    /** {@code appId}, falling back to the alternative {@code androidAppId} field name. */
+    String getAppId() {
+        return getString("appId", getString("androidAppId", null));
+    }
+
+    /**
+     * Minimal streaming JSON walker: descends along a key path and returns the raw text of the
+     * value found there, skipping every other value without building it.
+     */
+    static final class SubtreeScanner {
+
+        private final Reader reader;
+        private final char[] buffer = new char[8192];
+        private int position;
+        private int limit;
+
+        SubtreeScanner(Reader reader) {
+            this.reader = reader;
+        }
+
+        String find(String[] path) throws IOException {
+            if (nextNonWhitespace() != '{') {
+                return null;
+            }
+            return findInObject(path, 0);
+        }
+
+        private String findInObject(String[] path, int index) throws IOException {
+            while (true) {
+                int c = nextNonWhitespace();
+                if (c == ',') {
+                    continue;
+                }
+                if (c != '"') {
+                    return null;
+                }
+                String key = readString(new StringBuilder()).toString();
+                if (nextNonWhitespace() != ':') {
+                    return null;
+                }
+                if (!key.equals(path[index])) {
+                    value(null);
+                    continue;
+                }
+                if (index == path.length - 1) {
+                    StringBuilder out = new StringBuilder();
+                    value(out);
+                    return out.toString();
+                }
+                if (nextNonWhitespace() != '{') {
+                    return null;
+                }
+                return findInObject(path, index + 1);
+            }
+        }
+
+        /** Consumes one value, appending its raw text to {@code out} when non-null. */
+        private void value(StringBuilder out) throws IOException {
+            int c = nextNonWhitespace();
+            if (c == '"') {
+                append(out, c);
+                readString(out);
+                append(out, '"');
+                return;
+            }
+            if (c == '{' || c == '[') {
+                append(out, c);
+                int depth = 1;
+                while (depth > 0) {
+                    c = read();
+                    if (c == -1) {
+                        throw new IOException("Unterminated JSON value");
+                    }
+                    append(out, c);
+                    if (c == '"') {
+                        readString(out);
+                        append(out, '"');
+                    } else if (c == '{' || c == '[') {
+                        depth++;
+                    } else if (c == '}' || c == ']') {
+                        depth--;
+                    }
+                }
+                return;
+            }
+            // Literal: number, true, false or null
+            while (c != -1 && c != ',' && c != '}' && c != ']' && !Character.isWhitespace(c)) {
+                append(out, c);
+                c = read();
+            }
+            if (c != -1) {
+                position--;
+            }
+        }
+
+        /** Reads a string body after its opening quote; escapes are kept verbatim. */
+        private StringBuilder readString(StringBuilder out) throws IOException {
+            while (true) {
+                int c = read();
+                if (c == -1) {
+                    throw new IOException("Unterminated JSON string");
+                }
+                if (c == '"') {
+                    return out;
+                }
+                if (c == '\\') {
+                    append(out, c);
+                    c = read();
+                }
+                append(out, c);
+            }
+        }
+
+        private static void append(StringBuilder out, int c) {
+            if (out != null && c != -1) {
+                out.append((char) c);
+            }
+        }
+
+        private int nextNonWhitespace() throws IOException {
+            int c;
+            do {
+                c = read();
+            } while (c != -1 && Character.isWhitespace(c));
+            return c;
+        }
+
+        private int read() throws IOException {
+            if (position == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++];
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.sencrop.capacitor.intercom;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import androidx.annotation.NonNull;
+
+/**
+ * Network reachability for deciding whether Intercom calls should be journaled. Without the
+ * network-state permission or a connectivity service, the device is assumed online.
+ */
+final class IntercomConnectivity {
+
+    private final ConnectivityManager connectivityManager;
+    private ConnectivityManager.NetworkCallback callback;
+
+    IntercomConnectivity(Context context) {
+        this.connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+
+    boolean isOnline() {
+        if (connectivityManager == null) {
+            return true;
+        }
+        try {
+            Network network = connectivityManager.getActiveNetwork();
+            if (network == null) {
+                return false;
+            }
+            NetworkCapabilities capabilities = connectivityManager.getNetworkCapabilities(network);
+            return capabilities != null && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+        } catch (SecurityException e) {
+            IntercomMetrics.suppressed("connectivity.isOnline", e);
+            return true;
+        }
+    }
+
+    /** Runs {@code onAvailable} on a binder thread whenever a network with internet access appears. */
+    void observe(final Runnable onAvailable) {
+        if (connectivityManager == null) {
+            return;
+        }
+        try {
+            NetworkRequest request = new NetworkRequest.Builder().addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET).build();
+            ConnectivityManager.NetworkCallback callback = new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(@NonNull Network network) {
+                    onAvailable.run();
+                }
+            };
+            connectivityManager.registerNetworkCallback(request, callback);
+            this.callback = callback;
+        } catch (RuntimeException e) {
+            // Missing permission or too many callbacks; replay still happens on init and resume
+            IntercomMetrics.suppressed("connectivity.observe", e);
+        }
+    }
+
+    /** Unregisters the {@link #observe} callback, which would otherwise outlive the plugin. */
+    void stop() {
+        if (callback == null) {
+            return;
+        }
+        try {
+            connectivityManager.unregisterNetworkCallback(callback);
+        } catch (RuntimeException e) {
+            IntercomMetrics.suppressed("connectivity.stop", e);
+        }
+        callback = null;
+    }
+}
@@ -0,0 +1,107 @@
+package com.sencrop.capacitor.intercom;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The most recent internal errors, for finding out in the field why a fast path wasn't taken:
+ * where each was caught, its exception class and when. Fed by {@link IntercomMetrics#suppressed}.
+ *
+ * <p>The buffer is a fixed ring that never blocks: a writer claims a sequence number and stores
+ * into that slot, overwriting the oldest entry once the ring is full. Messages aren't kept, as
+ * they may carry user data.
+ */
+final class IntercomDiagnostics {
+
+    static final int DEFAULT_CAPACITY = 32;
+
+    static final class Entry {
+
+        final long sequence;
+        final String site;
+        final String type;
+        final long timestampMs;
+
+        Entry(long sequence, String site, String type, long timestampMs) {
+            this.sequence = sequence;
+            this.site = site;
+            this.type = type;
+            this.timestampMs = timestampMs;
+        }
+    }
+
+    private static final class Ring {
+
+        final AtomicReferenceArray<Entry> slots;
+        final int mask;
+
+        Ring(int size) {
+            slots = new AtomicReferenceArray<>(size);
+            mask = size - 1;
+        }
+    }
+
+    private static final AtomicLong sequence = new AtomicLong();
+    private static volatile Ring ring = new Ring(size(DEFAULT_CAPACITY));
+
+    private IntercomDiagnostics() {}
+
+    /** Sets the ring size, rounded up to a power of two; entries recorded so far are discarded. */
+    static void configure(int capacity) {
+        int size = size(capacity);
+        if (size != getCapacity()) {
+            ring = new Ring(size);
+            sequence.set(0);
+        }
+    }
+
+    private static int size(int capacity) {
+        return capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    static void record(String site, Throwable error) {
+        long number = sequence.getAndIncrement();
+        Ring current = ring;
+        String type = error != null ? error.getClass().getName() : "unknown";
+        current.slots.set((int) (number & current.mask), new Entry(number, site, type, System.currentTimeMillis()));
+    }
+
+    /** The retained entries, oldest first. */
+    static List<Entry> snapshot() {
+        Ring current = ring;
+        long end = sequence.get();
+        long start = end - current.slots.length();
+        List<Entry> entries = new ArrayList<>(current.slots.length());
+        for (int i = 0; i < current.slots.length(); i++) {
+            Entry entry = current.slots.get(i);
+            // Slots may still hold an entry from an earlier lap while a writer is mid-update
+            if (entry != null && entry.sequence >= start && entry.sequence < end) {
+                entries.add(entry);
+            }
+        }
+        Collections.sort(entries, (a, b) -> Long.compare(a.sequence, b.sequence));
+        return entries;
+    }
+
+    static int getCapacity() {
+        return ring.slots.length();
+    }
+
+    /** Errors recorded since startup, retained or not. */
+    static long getRecordedCount() {
+        return sequence.get();
+    }
+
+    /** Errors pushed out of the ring by newer ones. */
+    static long getOverwrittenCount() {
+        return Math.max(0, sequence.get() - getCapacity());
+    }
+
+    static void resetForTesting() {
+        ring = new Ring(size(DEFAULT_CAPACITY));
+        sequence.set(0);
+    }
+}
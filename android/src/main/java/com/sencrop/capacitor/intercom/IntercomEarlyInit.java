@@ -0,0 +1,119 @@
+package com.sencrop.capacitor.intercom;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Startup barrier for the asynchronous early-init mode. {@link IntercomInitProvider} hands the
+ * SDK initialization to the background executor and returns; code that actually needs the SDK
+ * (plugin calls, Intercom activities launched by the system) waits on the barrier instead.
+ */
+final class IntercomEarlyInit {
+
+    interface Work {
+        boolean run() throws Exception;
+    }
+
+    private static final AtomicLong barrierWaitNanos = new AtomicLong();
+    private static volatile CountDownLatch barrier;
+    private static volatile long providerMainThreadNanos;
+    private static volatile long backgroundInitNanos;
+    // Guarded by IntercomEarlyInit.class
+    private static List<Runnable> whenDone = new ArrayList<>();
+
+    private IntercomEarlyInit() {}
+
+    /** Runs {@code work} on the background executor; it returns whether Intercom got initialized. */
+    static void start(final Work work) {
+        final CountDownLatch latch = new CountDownLatch(1);
+        barrier = latch;
+        IntercomExecutors.background().execute(() -> {
+            long start = System.nanoTime();
+            try {
+                work.run();
+            } catch (Throwable e) {
+                // Plugin falls back to inline initialization in ensureInitialized
+                IntercomMetrics.suppressed("earlyInit.background", e);
+            } finally {
+                backgroundInitNanos = System.nanoTime() - start;
+                IntercomMetrics.record(IntercomMetrics.init, "backgroundInit", backgroundInitNanos);
+                latch.countDown();
+            }
+            runWhenDone();
+        });
+    }
+
+    /**
+     * Runs {@code task} once no background initialization is pending: right away, or on the
+     * background thread when it finishes. Unlike {@link #await}, never blocks the caller.
+     */
+    static void whenDone(Runnable task) {
+        synchronized (IntercomEarlyInit.class) {
+            if (isPending()) {
+                whenDone.add(task);
+                return;
+            }
+        }
+        task.run();
+    }
+
+    static boolean isPending() {
+        CountDownLatch latch = barrier;
+        return latch != null && latch.getCount() > 0;
+    }
+
+    /**
+     * Blocks until a pending background initialization completes or the timeout elapses.
+     * Returns {@code false} only when the initialization is still running after the timeout.
+     */
+    static boolean await(long timeoutMs) {
+        CountDownLatch latch = barrier;
+        if (latch == null || latch.getCount() == 0) {
+            return true;
+        }
+        long start = System.nanoTime();
+        try {
+            return latch.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            barrierWaitNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    static void recordProviderMainThread(long nanos) {
+        providerMainThreadNanos = nanos;
+    }
+
+    static long getProviderMainThreadNanos() {
+        return providerMainThreadNanos;
+    }
+
+    static long getBackgroundInitNanos() {
+        return backgroundInitNanos;
+    }
+
+    /** Total time callers spent blocked on the barrier. */
+    static long getBarrierWaitNanos() {
+        return barrierWaitNanos.get();
+    }
+
+    private static void runWhenDone() {
+        List<Runnable> tasks;
+        synchronized (IntercomEarlyInit.class) {
+            tasks = whenDone;
+            whenDone = new ArrayList<>();
+        }
+        for (Runnable task : tasks) {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                IntercomMetrics.suppressed("earlyInit.whenDone", e);
+            }
+        }
+    }
+}
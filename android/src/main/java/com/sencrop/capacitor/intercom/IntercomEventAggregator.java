@@ -0,0 +1,265 @@
+package com.sencrop.capacitor.intercom;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONObject;
+
+/**
+ * Folds counter-style events into one summary per name instead of sending each occurrence.
+ * Configured names are counted in place, with the sum, min and max of one numeric metadata field
+ * and the first and last time seen; {@link #flush} sends each name's aggregates as the metadata of
+ * a single event and starts over.
+ *
+ * <pre>
+ * "eventAggregation": { "flushIntervalMs": 60000, "events": { "scroll": { "value": "distance" } } }
+ * </pre>
+ *
+ * Aggregated events skip metadata conversion and the SDK entirely until the flush.
+ */
+final class IntercomEventAggregator {
+
+    /** Receives summaries; returns {@code false} if they can't be sent yet. */
+    interface SummarySink {
+        boolean logEvent(String name, Map<String, Object> metadata);
+    }
+
+    static final class Rule {
+
+        /** Metadata key holding the number to aggregate; {@code null} to only count. */
+        final String valueKey;
+        /** Name of the summary event. */
+        final String summaryEvent;
+
+        Rule(String valueKey, String summaryEvent) {
+            this.valueKey = valueKey;
+            this.summaryEvent = summaryEvent;
+        }
+
+        static Rule from(String name, JSONObject json) {
+            return new Rule(json.optString("value", null), json.optString("summaryEvent", name));
+        }
+    }
+
+    static final class Settings {
+
+        final boolean enabled;
+        final long flushIntervalMs;
+        final Map<String, Rule> rules;
+
+        Settings(boolean enabled, long flushIntervalMs, Map<String, Rule> rules) {
+            this.enabled = enabled;
+            this.flushIntervalMs = Math.max(0, flushIntervalMs);
+            this.rules = rules;
+        }
+
+        /** Reads {@code plugins.Intercom.eventAggregation}; aggregation is off unless some event is listed. */
+        static Settings from(JSONObject json) {
+            if (json == null) {
+                json = new JSONObject();
+            }
+            Map<String, Rule> rules = new HashMap<>();
+            JSONObject events = json.optJSONObject("events");
+            if (events != null) {
+                Iterator<String> names = events.keys();
+                while (names.hasNext()) {
+                    String name = names.next();
+                    JSONObject rule = events.optJSONObject(name);
+                    rules.put(name, Rule.from(name, rule != null ? rule : new JSONObject()));
+                }
+            }
+            return new Settings(
+                json.optBoolean("enabled", !rules.isEmpty()),
+                json.optLong("flushIntervalMs", 60_000),
+                Collections.unmodifiableMap(rules)
+            );
+        }
+    }
+
+    private static final class Aggregate {
+
+        final Rule rule;
+        // Guarded by this
+        long count;
+        long valueCount;
+        double sum;
+        double min;
+        double max;
+        long firstMs;
+        long lastMs;
+
+        Aggregate(Rule rule) {
+            this.rule = rule;
+        }
+
+        synchronized void add(double value, boolean hasValue, long nowMs) {
+            if (count == 0) {
+                firstMs = nowMs;
+            }
+            count++;
+            lastMs = nowMs;
+            if (hasValue) {
+                if (valueCount == 0 || value < min) {
+                    min = value;
+                }
+                if (valueCount == 0 || value > max) {
+                    max = value;
+                }
+                valueCount++;
+                sum += value;
+            }
+        }
+
+        /** Moves the aggregates into a fresh summary, or returns {@code null} when there are none. */
+        synchronized Map<String, Object> take() {
+            if (count == 0) {
+                return null;
+            }
+            Map<String, Object> metadata = new LinkedHashMap<>();
+            metadata.put("count", count);
+            if (valueCount > 0) {
+                metadata.put("sum", number(sum));
+                metadata.put("min", number(min));
+                metadata.put("max", number(max));
+            }
+            metadata.put("firstAt", firstMs);
+            metadata.put("lastAt", lastMs);
+            count = 0;
+            valueCount = 0;
+            sum = 0;
+            return metadata;
+        }
+
+        /** Merges a summary the sink couldn't take back in, ahead of what arrived since. */
+        synchronized void restore(Map<String, Object> metadata) {
+            long restoredCount = (Long) metadata.get("count");
+            long restoredFirst = (Long) metadata.get("firstAt");
+            if (count == 0) {
+                lastMs = (Long) metadata.get("lastAt");
+            }
+            firstMs = restoredFirst;
+            count += restoredCount;
+            Object restoredSum = metadata.get("sum");
+            if (restoredSum != null) {
+                double restoredMin = ((Number) metadata.get("min")).doubleValue();
+                double restoredMax = ((Number) metadata.get("max")).doubleValue();
+                min = valueCount == 0 ? restoredMin : Math.min(min, restoredMin);
+                max = valueCount == 0 ? restoredMax : Math.max(max, restoredMax);
+                sum += ((Number) restoredSum).doubleValue();
+                // Only whether it is non-zero matters from here on
+                valueCount += restoredCount;
+            }
+        }
+    }
+
+    private final Settings settings;
+    private final Map<String, Aggregate> aggregates;
+    private final AtomicLong aggregatedCount = new AtomicLong();
+    private final AtomicLong summaryCount = new AtomicLong();
+
+    IntercomEventAggregator(Settings settings) {
+        this.settings = settings;
+        Map<String, Aggregate> aggregates = new HashMap<>();
+        for (Map.Entry<String, Rule> entry : settings.rules.entrySet()) {
+            aggregates.put(entry.getKey(), new Aggregate(entry.getValue()));
+        }
+        // Fixed after construction, so lookups need no lock
+        this.aggregates = Collections.unmodifiableMap(aggregates);
+    }
+
+    boolean isAggregated(String name) {
+        return name != null && aggregates.containsKey(name);
+    }
+
+    /**
+     * Counts an occurrence of {@code name}, reading the rule's value from the raw {@code metadata}
+     * (which may be {@code null}); non-numeric values are counted but not summed.
+     */
+    void add(String name, JSONObject metadata, long nowMs) {
+        Aggregate aggregate = aggregates.get(name);
+        Object value = metadata != null && aggregate.rule.valueKey != null ? metadata.opt(aggregate.rule.valueKey) : null;
+        if (value instanceof Number) {
+            aggregate.add(((Number) value).doubleValue(), true, nowMs);
+        } else {
+            aggregate.add(0, false, nowMs);
+        }
+        aggregatedCount.incrementAndGet();
+    }
+
+    /** Sends {@link #flush} every {@code flushIntervalMs} on {@code executor}. */
+    void start(ScheduledExecutorService executor, final SummarySink sink) {
+        if (settings.flushIntervalMs == 0) {
+            return;
+        }
+        executor.scheduleWithFixedDelay(
+            () -> {
+                try {
+                    flush(sink);
+                } catch (RuntimeException e) {
+                    // An exception would cancel the schedule
+                    IntercomMetrics.suppressed("eventAggregator.flush", e);
+                }
+            },
+            settings.flushIntervalMs,
+            settings.flushIntervalMs,
+            TimeUnit.MILLISECONDS
+        );
+    }
+
+    /**
+     * Sends one summary event per name seen since the last flush, with {@code count}, {@code sum},
+     * {@code min}, {@code max}, {@code firstAt} and {@code lastAt} as metadata. Summaries the sink
+     * can't take yet are kept for the next flush.
+     *
+     * @return the number of summaries sent
+     */
+    int flush(SummarySink sink) {
+        int sent = 0;
+        for (Aggregate aggregate : aggregates.values()) {
+            Map<String, Object> metadata = aggregate.take();
+            if (metadata == null) {
+                continue;
+            }
+            if (sink.logEvent(aggregate.rule.summaryEvent, metadata)) {
+                summaryCount.incrementAndGet();
+                sent++;
+            } else {
+                aggregate.restore(metadata);
+            }
+        }
+        return sent;
+    }
+
+    /** Events folded into aggregates instead of being sent. */
+    long getAggregatedCount() {
+        return aggregatedCount.get();
+    }
+
+    long getSummaryCount() {
+        return summaryCount.get();
+    }
+
+    /** Names with aggregates waiting for the next flush. */
+    int getPendingCount() {
+        int pending = 0;
+        for (Aggregate aggregate : aggregates.values()) {
+            synchronized (aggregate) {
+                if (aggregate.count > 0) {
+                    pending++;
+                }
+            }
+        }
+        return pending;
+    }
+
+    /** Whole numbers go out as integers so the summary reads {@code 12} rather than {@code 12.0}. */
+    private static Object number(double value) {
+        long whole = (long) value;
+        return whole == value ? (Object) whole : (Object) value;
+    }
+}
@@ -0,0 +1,227 @@
+package com.sencrop.capacitor.intercom;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONObject;
+
+/**
+ * Bounded buffer between {@code logEvent} calls and the SDK. Events are dispatched in order on a
+ * single background worker once the batch size or flush interval is reached, or when the app goes
+ * to background. Identical events logged again within the coalesce window are sent only once.
+ *
+ * <p>Off unless {@code plugins.Intercom.eventQueue.enabled} is set: with the queue, {@code logEvent}
+ * resolves before the SDK has the event, and SDK errors are only counted, not reported to JS.
+ */
+final class IntercomEventQueue {
+
+    /** Receives the events on the worker thread. */
+    interface Sink {
+        void logEvent(String name, Map<String, Object> metadata);
+    }
+
+    static final class Settings {
+
+        final boolean enabled;
+        final int capacity;
+        final int flushSize;
+        final long flushIntervalMs;
+        final long coalesceWindowMs;
+
+        Settings(boolean enabled, int capacity, int flushSize, long flushIntervalMs, long coalesceWindowMs) {
+            this.enabled = enabled;
+            this.capacity = Math.max(1, capacity);
+            this.flushSize = Math.max(1, Math.min(flushSize, this.capacity));
+            this.flushIntervalMs = Math.max(0, flushIntervalMs);
+            this.coalesceWindowMs = Math.max(0, coalesceWindowMs);
+        }
+
+        /** Reads {@code plugins.Intercom.eventQueue}; every field is optional. */
+        static Settings from(JSONObject json) {
+            if (json == null) {
+                json = new JSONObject();
+            }
+            return new Settings(
+                json.optBoolean("enabled", false),
+                json.optInt("capacity", 500),
+                json.optInt("flushSize", 20),
+                json.optLong("flushIntervalMs", 1000),
+                json.optLong("coalesceWindowMs", 0)
+            );
+        }
+    }
+
+    private static final class Event {
+
+        final String name;
+        final Map<String, Object> metadata;
+        final long enqueuedAtMs;
+
+        Event(String name, Map<String, Object> metadata, long enqueuedAtMs) {
+            this.name = name;
+            this.metadata = metadata;
+            this.enqueuedAtMs = enqueuedAtMs;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Event)) {
+                return false;
+            }
+            Event other = (Event) o;
+            return Objects.equals(name, other.name) && Objects.equals(metadata, other.metadata);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, metadata);
+        }
+    }
+
+    private final Settings settings;
+    private final Sink sink;
+    private final ScheduledExecutorService executor;
+    private final ArrayDeque<Event> pending;
+    // Latest occurrence of each distinct event still inside the coalesce window, oldest first;
+    // never holds more than capacity entries
+    private final LinkedHashMap<Event, Event> latest = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    private long enqueued;
+    private long coalesced;
+    private long dropped;
+    private long dispatched;
+    private long failed;
+
+    IntercomEventQueue(Settings settings, Sink sink, ScheduledExecutorService executor) {
+        this.settings = settings;
+        this.sink = sink;
+        this.executor = executor;
+        this.pending = new ArrayDeque<>(Math.min(settings.capacity, 64));
+    }
+
+    /** Buffers an event; returns {@code false} when it was dropped because the queue is full. */
+    boolean enqueue(String name, Map<String, Object> metadata) {
+        Event event = new Event(name, metadata, System.currentTimeMillis());
+        synchronized (this) {
+            if (settings.coalesceWindowMs > 0) {
+                Event previous = latest.get(event);
+                if (previous != null && event.enqueuedAtMs - previous.enqueuedAtMs <= settings.coalesceWindowMs) {
+                    coalesced++;
+                    return true;
+                }
+            }
+            if (pending.size() >= settings.capacity) {
+                dropped++;
+                return false;
+            }
+            pending.add(event);
+            if (settings.coalesceWindowMs > 0) {
+                // Re-inserted so the map stays ordered by enqueue time
+                latest.remove(event);
+                latest.put(event, event);
+                pruneLatest(event.enqueuedAtMs);
+            }
+            enqueued++;
+
+            if (pending.size() >= settings.flushSize) {
+                scheduleFlush(0);
+            } else if (scheduledFlush == null) {
+                scheduleFlush(settings.flushIntervalMs);
+            }
+        }
+        return true;
+    }
+
+    /** Dispatches everything buffered so far without waiting for the thresholds. */
+    void flush() {
+        synchronized (this) {
+            if (!pending.isEmpty()) {
+                scheduleFlush(0);
+            }
+        }
+    }
+
+    private void scheduleFlush(long delayMs) {
+        if (scheduledFlush != null) {
+            if (delayMs > 0 || scheduledFlush.getDelay(TimeUnit.MILLISECONDS) <= 0) {
+                return;
+            }
+            scheduledFlush.cancel(false);
+        }
+        scheduledFlush = executor.schedule(this::drain, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void drain() {
+        List<Event> batch;
+        synchronized (this) {
+            scheduledFlush = null;
+            batch = new ArrayList<>(pending);
+            pending.clear();
+            pruneLatest(System.currentTimeMillis());
+        }
+        int sent = 0;
+        int errors = 0;
+        for (Event event : batch) {
+            try {
+                sink.logEvent(event.name, event.metadata);
+                sent++;
+            } catch (Throwable e) {
+                errors++;
+                IntercomMetrics.suppressed("eventQueue.dispatch", e);
+            }
+        }
+        synchronized (this) {
+            dispatched += sent;
+            failed += errors;
+        }
+    }
+
+    // Guarded by this
+    private void pruneLatest(long nowMs) {
+        Iterator<Event> iterator = latest.values().iterator();
+        while (iterator.hasNext()) {
+            Event oldest = iterator.next();
+            if (nowMs - oldest.enqueuedAtMs <= settings.coalesceWindowMs && latest.size() <= settings.capacity) {
+                break;
+            }
+            iterator.remove();
+        }
+    }
+
+    /** Distinct events remembered for coalescing. */
+    synchronized int getCoalesceKeyCount() {
+        return latest.size();
+    }
+
+    synchronized int getDepth() {
+        return pending.size();
+    }
+
+    synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    synchronized long getCoalescedCount() {
+        return coalesced;
+    }
+
+    synchronized long getEnqueuedCount() {
+        return enqueued;
+    }
+
+    synchronized long getDispatchedCount() {
+        return dispatched;
+    }
+
+    synchronized long getFailedCount() {
+        return failed;
+    }
+}
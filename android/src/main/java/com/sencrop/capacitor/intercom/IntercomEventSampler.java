@@ -0,0 +1,340 @@
+package com.sencrop.capacitor.intercom;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Per-event-name admission control in front of {@code logEvent}. Deny-listed names are always
+ * dropped and allow-listed names always pass; other names go through their rule, if any: a
+ * first-N-per-session cap, deterministic 1-in-N sampling, then a token bucket.
+ *
+ * <p>The hot path is lock-free: rules are immutable after construction and each name's state is a
+ * few atomics, so admitting an event is a map lookup and a handful of CAS operations. What gets
+ * dropped is counted per name and reported by {@link #emitSummary} as a regular event.
+ */
+final class IntercomEventSampler {
+
+    /** Receives drop summaries; returns {@code false} if they can't be sent yet. */
+    interface SummarySink {
+        boolean logEvent(String name, Map<String, Object> metadata);
+    }
+
+    static final class Rule {
+
+        /** Sustained events per second; 0 disables the token bucket. */
+        final double ratePerSecond;
+        /** Events that may pass back to back before the rate applies. */
+        final int burst;
+        /** Only the first N events of a session are considered, the rest are dropped; 0 for no cap. */
+        final int firstPerSession;
+        /** Fraction of events to keep, between 0 and 1. */
+        final double sampleRate;
+
+        Rule(double ratePerSecond, int burst, int firstPerSession, double sampleRate) {
+            this.ratePerSecond = Math.max(0, ratePerSecond);
+            this.burst = Math.max(1, burst);
+            this.firstPerSession = Math.max(0, firstPerSession);
+            this.sampleRate = Math.max(0, Math.min(1, sampleRate));
+        }
+
+        static Rule from(JSONObject json) {
+            double rate = json.optDouble("ratePerSecond", 0);
+            return new Rule(
+                rate,
+                json.optInt("burst", (int) Math.ceil(rate)),
+                json.optInt("firstPerSession", 0),
+                json.optDouble("sampleRate", 1)
+            );
+        }
+    }
+
+    static final class Settings {
+
+        final boolean enabled;
+        final Set<String> allow;
+        final Set<String> deny;
+        final Map<String, Rule> rules;
+        /** Rule for names without their own; {@code null} lets them through. */
+        final Rule defaultRule;
+        final long summaryIntervalMs;
+        final String summaryEvent;
+        /** Metadata entries per summary event; larger summaries are split. */
+        final int summaryMaxKeys;
+
+        Settings(
+            boolean enabled,
+            Set<String> allow,
+            Set<String> deny,
+            Map<String, Rule> rules,
+            Rule defaultRule,
+            long summaryIntervalMs,
+            String summaryEvent,
+            int summaryMaxKeys
+        ) {
+            this.enabled = enabled;
+            this.allow = allow;
+            this.deny = deny;
+            this.rules = rules;
+            this.defaultRule = defaultRule;
+            this.summaryIntervalMs = Math.max(0, summaryIntervalMs);
+            this.summaryEvent = summaryEvent;
+            this.summaryMaxKeys = Math.max(1, summaryMaxKeys);
+        }
+
+        /** Reads {@code plugins.Intercom.eventSampling}; sampling is off unless the object is present. */
+        static Settings from(JSONObject json) {
+            boolean present = json != null;
+            if (json == null) {
+                json = new JSONObject();
+            }
+            Map<String, Rule> rules = new HashMap<>();
+            JSONObject events = json.optJSONObject("events");
+            if (events != null) {
+                Iterator<String> names = events.keys();
+                while (names.hasNext()) {
+                    String name = names.next();
+                    JSONObject rule = events.optJSONObject(name);
+                    if (rule != null) {
+                        rules.put(name, Rule.from(rule));
+                    }
+                }
+            }
+            JSONObject defaultRule = json.optJSONObject("default");
+            return new Settings(
+                json.optBoolean("enabled", present),
+                names(json.optJSONArray("allow")),
+                names(json.optJSONArray("deny")),
+                rules,
+                defaultRule != null ? Rule.from(defaultRule) : null,
+                json.optLong("summaryIntervalMs", 60_000),
+                json.optString("summaryEvent", "intercom_events_dropped"),
+                json.optInt("summaryMaxKeys", 10)
+            );
+        }
+
+        private static Set<String> names(JSONArray array) {
+            if (array == null) {
+                return Collections.emptySet();
+            }
+            Set<String> names = new HashSet<>();
+            for (int i = 0; i < array.length(); i++) {
+                String name = array.optString(i, null);
+                if (name != null) {
+                    names.add(name);
+                }
+            }
+            return names;
+        }
+    }
+
+    private static final long UNSET = Long.MIN_VALUE;
+
+    private static final class State {
+
+        final Rule rule;
+        final long intervalNanos;
+        final long toleranceNanos;
+        /** Token bucket as a virtual scheduling time: the bucket is full when it's in the past. */
+        final AtomicLong theoreticalArrival = new AtomicLong(UNSET);
+        final AtomicLong sessionCount = new AtomicLong();
+        final AtomicLong sampleCount = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+
+        State(Rule rule) {
+            this.rule = rule;
+            this.intervalNanos = rule.ratePerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rule.ratePerSecond) : 0;
+            this.toleranceNanos = intervalNanos * (rule.burst - 1);
+        }
+
+        boolean admit(long nowNanos) {
+            if (rule.firstPerSession > 0 && sessionCount.incrementAndGet() > rule.firstPerSession) {
+                return false;
+            }
+            if (rule.sampleRate < 1) {
+                // Keeps exactly floor(n * sampleRate) of the first n events, spread evenly
+                long n = sampleCount.getAndIncrement();
+                if ((long) ((n + 1) * rule.sampleRate) == (long) (n * rule.sampleRate)) {
+                    return false;
+                }
+            }
+            return intervalNanos == 0 || takeToken(nowNanos);
+        }
+
+        private boolean takeToken(long nowNanos) {
+            while (true) {
+                long arrival = theoreticalArrival.get();
+                long base = arrival == UNSET || arrival - nowNanos < 0 ? nowNanos : arrival;
+                if (base - nowNanos > toleranceNanos) {
+                    return false;
+                }
+                if (theoreticalArrival.compareAndSet(arrival, base + intervalNanos)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    private final Settings settings;
+    private final ConcurrentHashMap<String, State> states = new ConcurrentHashMap<>();
+    /** Counts drops of deny-listed names, which have no rule state. */
+    private final ConcurrentHashMap<String, AtomicLong> denied = new ConcurrentHashMap<>();
+    private final AtomicLong passedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong summaryCount = new AtomicLong();
+
+    IntercomEventSampler(Settings settings) {
+        this.settings = settings;
+    }
+
+    boolean admit(String name) {
+        return admit(name, System.nanoTime());
+    }
+
+    /** Whether an event named {@code name} should be sent; a {@code false} is counted as dropped. */
+    boolean admit(String name, long nowNanos) {
+        if (name == null || settings.allow.contains(name)) {
+            passedCount.incrementAndGet();
+            return true;
+        }
+        if (settings.deny.contains(name)) {
+            droppedCount.incrementAndGet();
+            counter(denied, name).incrementAndGet();
+            return false;
+        }
+        State state = state(name);
+        if (state == null || state.admit(nowNanos)) {
+            passedCount.incrementAndGet();
+            return true;
+        }
+        droppedCount.incrementAndGet();
+        state.dropped.incrementAndGet();
+        return false;
+    }
+
+    /** Starts a new session for the first-N rules. */
+    void resetSession() {
+        for (State state : states.values()) {
+            state.sessionCount.set(0);
+        }
+    }
+
+    /** Sends {@link #emitSummary} every {@code summaryIntervalMs} on {@code executor}. */
+    void start(ScheduledExecutorService executor, final SummarySink sink) {
+        if (settings.summaryIntervalMs == 0) {
+            return;
+        }
+        executor.scheduleWithFixedDelay(
+            () -> {
+                try {
+                    emitSummary(sink);
+                } catch (RuntimeException e) {
+                    // An exception would cancel the schedule; the counts were restored or are lost either way
+                    IntercomMetrics.suppressed("eventSampler.summary", e);
+                }
+            },
+            settings.summaryIntervalMs,
+            settings.summaryIntervalMs,
+            TimeUnit.MILLISECONDS
+        );
+    }
+
+    /**
+     * Reports the drops since the last summary as {@code summaryEvent} events whose metadata maps
+     * event names to drop counts. Counts the sink can't take yet are kept for the next summary.
+     */
+    void emitSummary(SummarySink sink) {
+        Map<String, Long> drops = new LinkedHashMap<>();
+        for (Map.Entry<String, State> entry : states.entrySet()) {
+            take(drops, entry.getKey(), entry.getValue().dropped);
+        }
+        for (Map.Entry<String, AtomicLong> entry : denied.entrySet()) {
+            take(drops, entry.getKey(), entry.getValue());
+        }
+        if (drops.isEmpty()) {
+            return;
+        }
+        List<Map<String, Object>> chunks = new ArrayList<>();
+        Map<String, Object> chunk = null;
+        for (Map.Entry<String, Long> entry : drops.entrySet()) {
+            if (chunk == null || chunk.size() == settings.summaryMaxKeys) {
+                chunk = new LinkedHashMap<>();
+                chunks.add(chunk);
+            }
+            chunk.put(entry.getKey(), entry.getValue());
+        }
+        for (Map<String, Object> metadata : chunks) {
+            if (sink.logEvent(settings.summaryEvent, metadata)) {
+                summaryCount.incrementAndGet();
+                continue;
+            }
+            for (Map.Entry<String, Object> entry : metadata.entrySet()) {
+                restore(entry.getKey(), (Long) entry.getValue());
+            }
+        }
+    }
+
+    long getPassedCount() {
+        return passedCount.get();
+    }
+
+    long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    long getSummaryCount() {
+        return summaryCount.get();
+    }
+
+    private State state(String name) {
+        State state = states.get(name);
+        if (state != null) {
+            return state;
+        }
+        Rule rule = settings.rules.get(name);
+        if (rule == null) {
+            rule = settings.defaultRule;
+        }
+        if (rule == null) {
+            return null;
+        }
+        State created = new State(rule);
+        state = states.putIfAbsent(name, created);
+        return state != null ? state : created;
+    }
+
+    private void restore(String name, long count) {
+        State state = states.get(name);
+        (state != null ? state.dropped : counter(denied, name)).addAndGet(count);
+    }
+
+    private static void take(Map<String, Long> drops, String name, AtomicLong counter) {
+        long count = counter.getAndSet(0);
+        if (count > 0) {
+            Long previous = drops.get(name);
+            drops.put(name, previous != null ? previous + count : count);
+        }
+    }
+
+    private static AtomicLong counter(ConcurrentHashMap<String, AtomicLong> counters, String name) {
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = counters.putIfAbsent(name, created);
+            counter = counter != null ? counter : created;
+        }
+        return counter;
+    }
+}
@@ -0,0 +1,52 @@
+package com.sencrop.capacitor.intercom;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Shared threads for plugin work that must stay off the main and bridge threads. Created lazily
+ * so processes that never touch Intercom don't pay for them.
+ */
+final class IntercomExecutors {
+
+    private static volatile ScheduledExecutorService background;
+    private static volatile ExecutorService calls;
+
+    private IntercomExecutors() {}
+
+    static ScheduledExecutorService background() {
+        ScheduledExecutorService executor = background;
+        if (executor == null) {
+            synchronized (IntercomExecutors.class) {
+                executor = background;
+                if (executor == null) {
+                    executor = Executors.newSingleThreadScheduledExecutor(runnable -> newThread(runnable, "intercom-background"));
+                    background = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /** Single thread that runs plugin calls in order; see {@link IntercomCallDispatcher}. */
+    static ExecutorService calls() {
+        ExecutorService executor = calls;
+        if (executor == null) {
+            synchronized (IntercomExecutors.class) {
+                executor = calls;
+                if (executor == null) {
+                    executor = Executors.newSingleThreadExecutor(runnable -> newThread(runnable, "intercom-calls"));
+                    calls = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    private static Thread newThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
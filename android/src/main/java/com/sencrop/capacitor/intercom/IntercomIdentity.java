@@ -0,0 +1,260 @@
+package com.sencrop.capacitor.intercom;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tracks which identified user Intercom is logged in as, so a login for that same user returns
+ * immediately instead of going through the SDK again. Only a fingerprint of the identity is kept,
+ * in memory and on disk, so a relaunch recognizes the user the SDK restored.
+ *
+ * <p>Logins run one at a time. A login for another user logs the current one out first, with no
+ * other identity change in between, and a login requested while an identical one is in flight
+ * joins it and gets its result.
+ */
+final class IntercomIdentity {
+
+    /** Persistent backing store for the fingerprint; {@code null} means nobody is logged in. */
+    interface Storage {
+        String load();
+
+        void save(String fingerprint);
+    }
+
+    private static final String PREFERENCES_NAME = "com.sencrop.capacitor.intercom.identity";
+    private static final String FINGERPRINT_KEY = "fingerprint";
+    private static final String UNIDENTIFIED = "unidentified";
+    private static final String UNKNOWN = "\u0000unknown";
+
+    private static final class Login {
+
+        final String fingerprint;
+        final String userId;
+        final String email;
+        final String userHash;
+        final List<IntercomSdk.Callback> callbacks = new ArrayList<>(1);
+
+        Login(String fingerprint, String userId, String email, String userHash) {
+            this.fingerprint = fingerprint;
+            this.userId = userId;
+            this.email = email;
+            this.userHash = userHash;
+        }
+    }
+
+    private final Storage storage;
+    private final IntercomSdk sdk;
+    private final boolean skipUnchanged;
+
+    // Guarded by this
+    private String current = UNKNOWN;
+    private Login inFlight;
+    private final ArrayDeque<Login> waiting = new ArrayDeque<>();
+    private long logins;
+    private long skipped;
+    private long collapsed;
+    private long switches;
+
+    /** With {@code skipUnchanged} off, every login goes to the SDK but is still serialized. */
+    IntercomIdentity(Storage storage, IntercomSdk sdk, boolean skipUnchanged) {
+        this.storage = storage;
+        this.sdk = sdk;
+        this.skipUnchanged = skipUnchanged;
+    }
+
+    /** {@code workspace} is {@code null} for the default workspace, else its app ID. */
+    static Storage sharedPreferences(Context context, String workspace) {
+        final SharedPreferences preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        final String key = workspace == null ? FINGERPRINT_KEY : FINGERPRINT_KEY + ":" + workspace;
+        return new Storage() {
+            @Override
+            public String load() {
+                return preferences.getString(key, null);
+            }
+
+            @Override
+            public void save(String fingerprint) {
+                preferences.edit().putString(key, fingerprint).apply();
+            }
+        };
+    }
+
+    /**
+     * Logs in an identified user; empty strings count as absent. Completes right away when that
+     * user is already logged in.
+     */
+    void login(String userId, String email, String userHash, IntercomSdk.Callback callback) {
+        userId = emptyToNull(userId);
+        email = emptyToNull(email);
+        userHash = emptyToNull(userHash);
+        String fingerprint = fingerprint(userId, email, userHash);
+        Login start = null;
+        synchronized (this) {
+            Login last = waiting.isEmpty() ? inFlight : waiting.peekLast();
+            if (last != null && last.fingerprint.equals(fingerprint)) {
+                last.callbacks.add(callback);
+                collapsed++;
+                return;
+            }
+            if (last == null && skipUnchanged && fingerprint.equals(current())) {
+                skipped++;
+            } else {
+                Login login = new Login(fingerprint, userId, email, userHash);
+                login.callbacks.add(callback);
+                if (inFlight == null) {
+                    inFlight = login;
+                    start = login;
+                } else {
+                    waiting.add(login);
+                }
+                callback = null;
+            }
+        }
+        if (callback != null) {
+            callback.onSuccess();
+        }
+        if (start != null) {
+            start(start);
+        }
+    }
+
+    /** Records a successful {@code loginUnidentifiedUser}. */
+    synchronized void onUnidentifiedLogin() {
+        setCurrent(UNIDENTIFIED);
+    }
+
+    /** Records a logout. */
+    synchronized void onLogout() {
+        setCurrent(null);
+    }
+
+    synchronized long getLoginCount() {
+        return logins;
+    }
+
+    synchronized long getSkippedCount() {
+        return skipped;
+    }
+
+    synchronized long getCollapsedCount() {
+        return collapsed;
+    }
+
+    /** Logins that had to log another identified user out first. */
+    synchronized long getSwitchCount() {
+        return switches;
+    }
+
+    private void start(final Login login) {
+        try {
+            boolean logout;
+            synchronized (this) {
+                String previous = current();
+                // An unidentified user is converted by the SDK rather than logged out
+                logout = previous != null && !previous.equals(UNIDENTIFIED) && !previous.equals(login.fingerprint);
+                logins++;
+                if (logout) {
+                    switches++;
+                }
+                // Until the SDK answers, nobody is known to be logged in
+                setCurrent(null);
+            }
+            if (logout) {
+                sdk.logout();
+            }
+            if (login.userHash != null) {
+                sdk.setUserHash(login.userHash);
+            }
+            final long requested = System.nanoTime();
+            sdk.loginIdentifiedUser(
+                login.userId,
+                login.email,
+                new IntercomSdk.Callback() {
+                    @Override
+                    public void onSuccess() {
+                        IntercomMetrics.recordCallback("loginIdentifiedUser", requested, true);
+                        complete(login, true, null);
+                    }
+
+                    @Override
+                    public void onFailure(String message) {
+                        IntercomMetrics.recordCallback("loginIdentifiedUser", requested, false);
+                        complete(login, false, message);
+                    }
+                }
+            );
+        } catch (RuntimeException e) {
+            complete(login, false, e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+        }
+    }
+
+    private void complete(Login login, boolean success, String error) {
+        Login next;
+        synchronized (this) {
+            if (inFlight != login) {
+                return;
+            }
+            if (success) {
+                setCurrent(login.fingerprint);
+            }
+            next = waiting.poll();
+            inFlight = next;
+        }
+        for (IntercomSdk.Callback callback : login.callbacks) {
+            if (success) {
+                callback.onSuccess();
+            } else {
+                callback.onFailure(error);
+            }
+        }
+        if (next != null) {
+            start(next);
+        }
+    }
+
+    // Guarded by this
+    private String current() {
+        if (UNKNOWN.equals(current)) {
+            current = storage.load();
+        }
+        return current;
+    }
+
+    // Guarded by this
+    private void setCurrent(String fingerprint) {
+        if (UNKNOWN.equals(current) || !equal(current, fingerprint)) {
+            current = fingerprint;
+            storage.save(fingerprint);
+        }
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static String emptyToNull(String value) {
+        return value != null && value.length() > 0 ? value : null;
+    }
+
+    /** SHA-256 of the identity, so neither identifiers nor the hash are stored in the clear. */
+    static String fingerprint(String userId, String email, String userHash) {
+        String identity = "id:" + userId + "\nemail:" + email + "\nhash:" + userHash;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(identity.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return "user:" + hex;
+        } catch (NoSuchAlgorithmException e) {
+            // Every Android release ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
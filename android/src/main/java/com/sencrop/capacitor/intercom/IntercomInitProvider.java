@@ -1,24 +1,19 @@
 package com.sencrop.capacitor.intercom;
 
-import android.app.ActivityManager;
+import android.app.Activity;
 import android.app.Application;
 import android.content.ContentProvider;
 import android.content.ContentValues;
 import android.content.Context;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
-import android.content.res.AssetManager;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
+import androidx.annotation.NonNull;
 
-import io.intercom.android.sdk.Intercom;
-
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-
-import org.json.JSONObject;
+import com.sencrop.capacitor.intercom.IntercomStartupTimings.Phase;
 
 /**
  * Initializes Intercom as early as possible to avoid crashes when Intercom activities
@@ -29,6 +24,12 @@ public class IntercomInitProvider extends ContentProvider {
     private static final String META_ANDROID_API_KEY = "com.sencrop.capacitor.intercom.ANDROID_API_KEY";
     private static final String META_APP_ID = "com.sencrop.capacitor.intercom.APP_ID";
 
+    static final long DEFAULT_EARLY_INIT_TIMEOUT_MS = 10000;
+    /** How long an Intercom activity may block the main thread waiting for early init. */
+    static final long DEFAULT_ACTIVITY_BARRIER_TIMEOUT_MS = 2000;
+    // Stays clear of the 5 s input dispatch ANR whatever the config says
+    static final long MAX_ACTIVITY_BARRIER_TIMEOUT_MS = 4000;
+
     @Override
     public boolean onCreate() {
         Context context = getContext();
@@ -36,121 +37,151 @@ public class IntercomInitProvider extends ContentProvider {
             return false;
         }
 
+        long start = System.nanoTime();
+        boolean mainProcess = false;
         try {
             // Run only in main process
-            if (!isMainProcess(context)) {
+            mainProcess = IntercomProcess.isMainProcess(context);
+            long phaseStart = record(Phase.PROCESS_CHECK, start);
+            if (!mainProcess) {
                 return true;
             }
 
             // Respect opt-in flag for early initialization. Default: do NOT early-init.
-            if (!isEarlyInitEnabled(context)) {
+            final IntercomConfig config = IntercomConfig.get(context);
+            IntercomPlugin.configureMetrics(config);
+            boolean earlyInit = config.getBoolean("enableEarlyInit", false);
+            phaseStart = record(Phase.CONFIG_READ, phaseStart);
+            if (!earlyInit) {
                 // Proactively disable Intercom auto components so they can't be launched early
                 IntercomComponentController.disableAutoComponents(context);
+                record(Phase.COMPONENT_TOGGLE, phaseStart);
                 return true;
             }
 
-            // 1) Try Capacitor assets config (no app manifest changes required)
-            String[] keys = readKeysFromCapacitorAssets(context);
-            if (keys != null && keys[0] != null && keys[1] != null) {
-                Intercom.initialize((Application) context.getApplicationContext(), keys[0], keys[1]);
-                IntercomPlugin.markInitialized();
-                // Enable components now that Intercom is initialized
-                IntercomComponentController.enableAutoComponents(context);
+            // Opt-in: move SDK init and component toggling off the main thread
+            if (config.getBoolean("asyncEarlyInit", false)) {
+                final Context appContext = context.getApplicationContext();
+                IntercomEarlyInit.start(() -> initializeEarly(appContext, config));
+                ((Application) appContext).registerActivityLifecycleCallbacks(new IntercomActivityBarrier(config));
                 return true;
             }
 
-            // 2) Fallback to manifest meta-data if present (backward compatible)
-            PackageManager pm = context.getPackageManager();
-            ApplicationInfo ai = pm.getApplicationInfo(context.getPackageName(), PackageManager.GET_META_DATA);
-            Bundle bundle = ai.metaData;
-            if (bundle != null) {
-                String apiKey = bundle.getString(META_ANDROID_API_KEY);
-                String appId = bundle.getString(META_APP_ID);
-                if (apiKey != null && appId != null) {
-                    Intercom.initialize((Application) context.getApplicationContext(), apiKey, appId);
-                    IntercomPlugin.markInitialized();
-                    IntercomComponentController.enableAutoComponents(context);
-                }
-            }
-        } catch (Throwable ignored) {
+            initializeEarly(context, config);
+        } catch (Throwable e) {
             // Swallow to avoid blocking app start; plugin's initialize() can still run later
+            IntercomMetrics.suppressed("provider.onCreate", e);
+        } finally {
+            if (mainProcess) {
+                IntercomEarlyInit.recordProviderMainThread(System.nanoTime() - start);
+            }
         }
 
         return true;
     }
 
-    private boolean isMainProcess(Context context) {
-        try {
-            int myPid = android.os.Process.myPid();
-            ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
-            if (am == null) return true;
-            for (ActivityManager.RunningAppProcessInfo proc : am.getRunningAppProcesses()) {
-                if (proc != null && proc.pid == myPid) {
-                    return context.getPackageName().equals(proc.processName);
-                }
+    /** Adds the time since {@code phaseStart} to {@code phase} and returns the current time. */
+    private static long record(Phase phase, long phaseStart) {
+        long now = System.nanoTime();
+        IntercomStartupTimings.record(phase, now - phaseStart);
+        return now;
+    }
+
+    private static boolean initializeEarly(Context context, IntercomConfig config) throws PackageManager.NameNotFoundException {
+        long phaseStart = System.nanoTime();
+        // 1) Try Capacitor assets config (no app manifest changes required), in the workspace the
+        // app last switched to
+        IntercomWorkspaces workspaces = IntercomWorkspaces.get(context);
+        IntercomWorkspaces.Workspace workspace = workspaces.initial();
+        String apiKey = workspace != null ? workspace.apiKey : null;
+        String appId = workspace != null ? workspace.appId : null;
+
+        // 2) Fallback to manifest meta-data if present (backward compatible)
+        if (apiKey == null || appId == null) {
+            PackageManager pm = context.getPackageManager();
+            ApplicationInfo ai = pm.getApplicationInfo(context.getPackageName(), PackageManager.GET_META_DATA);
+            Bundle bundle = ai.metaData;
+            if (bundle != null) {
+                apiKey = bundle.getString(META_ANDROID_API_KEY);
+                appId = bundle.getString(META_APP_ID);
+            }
+            if (bundle == null || apiKey == null || appId == null) {
+                record(Phase.CONFIG_READ, phaseStart);
+                return false;
             }
-        } catch (Throwable ignored) {
         }
+        phaseStart = record(Phase.CONFIG_READ, phaseStart);
+
+        IntercomSdkLoader.get().initialize((Application) context.getApplicationContext(), apiKey, appId);
+        workspaces.onInitialized(workspace != null ? workspace : new IntercomWorkspaces.Workspace(appId, apiKey));
+        IntercomPlugin.markInitialized();
+        phaseStart = record(Phase.SDK_INIT, phaseStart);
+        // Enable components now that Intercom is initialized
+        IntercomComponentController.enableAutoComponents(context);
+        record(Phase.COMPONENT_TOGGLE, phaseStart);
+        // Pushes that arrived before initialization, e.g. in an earlier process
+        IntercomPushIntake.onSdkInitialized(context);
         return true;
     }
 
-    private String[] readKeysFromCapacitorAssets(Context context) {
-        try {
-            AssetManager am = context.getAssets();
-            InputStream is = am.open("capacitor.config.json");
-            BufferedReader br = new BufferedReader(new InputStreamReader(is));
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) {
-                sb.append(line);
-            }
-            br.close();
-
-            JSONObject root = new JSONObject(sb.toString());
-            JSONObject plugins = root.optJSONObject("plugins");
-            if (plugins == null) return null;
-            JSONObject intercom = plugins.optJSONObject("Intercom");
-            if (intercom == null) return null;
-
-            String apiKey = intercom.optString("android_apiKey", null);
-            String appId = intercom.optString("appId", null);
-            if (apiKey == null || appId == null) {
-                // Alternative field names fallback
-                String altAppId = intercom.optString("androidAppId", null);
-                if (apiKey != null && altAppId != null) {
-                    appId = altAppId;
-                }
+    /**
+     * Holds back Intercom activities started by the system (e.g. from a notification) until the
+     * background initialization has completed, so they never see an uninitialized SDK. The wait
+     * blocks the main thread, so it is bounded by {@code activityBarrierTimeoutMs} and never allowed
+     * near the ANR threshold; past it the activity starts anyway.
+     */
+    private static final class IntercomActivityBarrier implements Application.ActivityLifecycleCallbacks {
+
+        private static final String INTERCOM_PACKAGE_PREFIX = "io.intercom.android.sdk.";
+
+        private final long timeoutMs;
+
+        IntercomActivityBarrier(IntercomConfig config) {
+            this.timeoutMs = Math.min(
+                config.getLong("activityBarrierTimeoutMs", DEFAULT_ACTIVITY_BARRIER_TIMEOUT_MS),
+                MAX_ACTIVITY_BARRIER_TIMEOUT_MS
+            );
+        }
+
+        private void awaitIfIntercom(Activity activity) {
+            if (activity.getClass().getName().startsWith(INTERCOM_PACKAGE_PREFIX)) {
+                IntercomEarlyInit.await(timeoutMs);
             }
-            if (apiKey != null && appId != null) {
-                return new String[]{apiKey, appId};
+            if (!IntercomEarlyInit.isPending()) {
+                activity.getApplication().unregisterActivityLifecycleCallbacks(this);
             }
-        } catch (Throwable ignored) {
         }
-        return null;
-    }
 
-    private boolean isEarlyInitEnabled(Context context) {
-        // Default false unless explicitly enabled in capacitor.config.json at plugins.Intercom.enableEarlyInit: true
-        try {
-            AssetManager am = context.getAssets();
-            InputStream is = am.open("capacitor.config.json");
-            BufferedReader br = new BufferedReader(new InputStreamReader(is));
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) {
-                sb.append(line);
+        @Override
+        public void onActivityPreCreated(@NonNull Activity activity, Bundle savedInstanceState) {
+            awaitIfIntercom(activity);
+        }
+
+        @Override
+        public void onActivityCreated(@NonNull Activity activity, Bundle savedInstanceState) {
+            // Pre-created callbacks only exist from API 29; from there on the activity already waited once
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+                awaitIfIntercom(activity);
             }
-            br.close();
-
-            JSONObject root = new JSONObject(sb.toString());
-            JSONObject plugins = root.optJSONObject("plugins");
-            if (plugins == null) return false;
-            JSONObject intercom = plugins.optJSONObject("Intercom");
-            if (intercom == null) return false;
-            return intercom.optBoolean("enableEarlyInit", false);
-        } catch (Throwable ignored) {
         }
-        return false;
+
+        @Override
+        public void onActivityStarted(@NonNull Activity activity) {}
+
+        @Override
+        public void onActivityResumed(@NonNull Activity activity) {}
+
+        @Override
+        public void onActivityPaused(@NonNull Activity activity) {}
+
+        @Override
+        public void onActivityStopped(@NonNull Activity activity) {}
+
+        @Override
+        public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {}
+
+        @Override
+        public void onActivityDestroyed(@NonNull Activity activity) {}
     }
 
     @Override
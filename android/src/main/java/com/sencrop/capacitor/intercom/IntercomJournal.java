@@ -0,0 +1,263 @@
+package com.sencrop.capacitor.intercom;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONObject;
+
+/**
+ * Append-only, size-capped journal of Intercom operations that could not be delivered (SDK not
+ * initialized, or device offline). Records are stored one JSON object per line and fsync'ed in
+ * batches; {@link #replay} hands them back in order once delivery is possible again.
+ *
+ * <p>All file access happens on the executor, which must be single-threaded.
+ */
+final class IntercomJournal {
+
+    static final class Settings {
+
+        final boolean enabled;
+        final long maxBytes;
+        final int syncEvery;
+        final long syncIntervalMs;
+        final int maxReplay;
+
+        Settings(boolean enabled, long maxBytes, int syncEvery, long syncIntervalMs, int maxReplay) {
+            this.enabled = enabled;
+            this.maxBytes = Math.max(1024, maxBytes);
+            this.syncEvery = Math.max(1, syncEvery);
+            this.syncIntervalMs = Math.max(0, syncIntervalMs);
+            this.maxReplay = Math.max(1, maxReplay);
+        }
+
+        /** Reads {@code plugins.Intercom.journal}; every field is optional and the journal is off by default. */
+        static Settings from(JSONObject json) {
+            if (json == null) {
+                json = new JSONObject();
+            }
+            return new Settings(
+                json.optBoolean("enabled", false),
+                json.optLong("maxBytes", 256 * 1024),
+                json.optInt("syncEvery", 16),
+                json.optLong("syncIntervalMs", 2000),
+                json.optInt("maxReplay", 500)
+            );
+        }
+    }
+
+    /** Delivers one record; returns {@code false} to stop the replay and keep the rest. */
+    interface Replayer {
+        boolean replay(JSONObject record);
+    }
+
+    private final File file;
+    private final Settings settings;
+    private final ScheduledExecutorService executor;
+
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long backlog = -1;
+    /** Appends handed to the executor but not yet written; counted on the caller's thread. */
+    private final AtomicLong pending = new AtomicLong();
+
+    // Executor-confined
+    private FileOutputStream output;
+    private long size = -1;
+    private int unsynced;
+    private ScheduledFuture<?> scheduledSync;
+
+    IntercomJournal(File file, Settings settings, ScheduledExecutorService executor) {
+        this.file = file;
+        this.settings = settings;
+        this.executor = executor;
+        executor.execute(this::countBacklog);
+    }
+
+    /**
+     * Whether records are waiting, or might be; live operations should then go through the journal
+     * too. Until the file has been counted, and while appends are still on their way to it, the
+     * answer is {@code true}, so nothing sent live can overtake a record already handed over.
+     */
+    boolean hasBacklog() {
+        return backlog != 0 || pending.get() > 0;
+    }
+
+    long getBacklogCount() {
+        return Math.max(0, backlog);
+    }
+
+    long getAppendedCount() {
+        return appended.get();
+    }
+
+    long getReplayedCount() {
+        return replayed.get();
+    }
+
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    void append(final JSONObject record) {
+        pending.incrementAndGet();
+        executor.execute(() -> {
+            try {
+                countBacklog();
+                byte[] line = (record.toString() + '\n').getBytes(StandardCharsets.UTF_8);
+                if (size + line.length > settings.maxBytes) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                openOutput().write(line);
+                size += line.length;
+                backlog++;
+                appended.incrementAndGet();
+                if (++unsynced >= settings.syncEvery) {
+                    sync();
+                } else if (scheduledSync == null) {
+                    scheduledSync = executor.schedule(this::sync, settings.syncIntervalMs, TimeUnit.MILLISECONDS);
+                }
+            } catch (IOException e) {
+                dropped.incrementAndGet();
+                IntercomMetrics.suppressed("journal.append", e);
+                closeOutput();
+            } finally {
+                // After backlog++, so hasBacklog() never reads zero in between
+                pending.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Replays records in order, {@code maxReplay} per pass. A pass that ends because of the cap
+     * schedules the next one; a pass that ends because the replayer refused a record leaves the
+     * rest for the next call.
+     */
+    void replay(final Replayer replayer) {
+        executor.execute(() -> {
+            countBacklog();
+            if (backlog == 0) {
+                return;
+            }
+            closeOutput();
+            File remaining = new File(file.getPath() + ".tmp");
+            long kept = 0;
+            boolean stopped = false;
+            try (
+                BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+                FileOutputStream rest = new FileOutputStream(remaining)
+            ) {
+                int count = 0;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    if (!stopped && count < settings.maxReplay) {
+                        JSONObject record;
+                        try {
+                            record = new JSONObject(line);
+                        } catch (Exception e) {
+                            // Torn write from a crash; nothing to recover
+                            dropped.incrementAndGet();
+                            continue;
+                        }
+                        if (replayer.replay(record)) {
+                            count++;
+                            replayed.incrementAndGet();
+                            continue;
+                        }
+                        stopped = true;
+                    }
+                    rest.write((line + '\n').getBytes(StandardCharsets.UTF_8));
+                    kept++;
+                }
+                rest.getFD().sync();
+            } catch (IOException e) {
+                // The journal itself is untouched; its records are replayed again next time
+                IntercomMetrics.suppressed("journal.replay", e);
+                remaining.delete();
+                return;
+            }
+            if (!remaining.renameTo(file)) {
+                IntercomMetrics.suppressed("journal.rename", new IOException("Could not replace " + file + " with " + remaining));
+                remaining.delete();
+                return;
+            }
+            size = file.length();
+            backlog = kept;
+            if (kept > 0 && !stopped) {
+                replay(replayer);
+            }
+        });
+    }
+
+    private void countBacklog() {
+        if (backlog >= 0) {
+            return;
+        }
+        long records = 0;
+        if (file.exists()) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty()) {
+                        records++;
+                    }
+                }
+            } catch (IOException e) {
+                IntercomMetrics.suppressed("journal.count", e);
+            }
+        }
+        backlog = records;
+        size = file.length();
+    }
+
+    private OutputStream openOutput() throws IOException {
+        if (output == null) {
+            File parent = file.getParentFile();
+            if (parent != null && !parent.exists()) {
+                parent.mkdirs();
+            }
+            output = new FileOutputStream(file, true);
+        }
+        return output;
+    }
+
+    private void sync() {
+        if (scheduledSync != null) {
+            scheduledSync.cancel(false);
+            scheduledSync = null;
+        }
+        unsynced = 0;
+        if (output != null) {
+            try {
+                output.getFD().sync();
+            } catch (IOException e) {
+                IntercomMetrics.suppressed("journal.sync", e);
+            }
+        }
+    }
+
+    private void closeOutput() {
+        sync();
+        if (output != null) {
+            try {
+                output.close();
+            } catch (IOException e) {
+                IntercomMetrics.suppressed("journal.close", e);
+            }
+            output = null;
+        }
+    }
+}
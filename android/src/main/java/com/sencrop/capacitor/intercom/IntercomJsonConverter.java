@@ -0,0 +1,229 @@
+package com.sencrop.capacitor.intercom;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Converts bridge JSON payloads into the {@code Map}/{@code List} trees the Intercom SDK expects.
+ * The conversion is a single iterative pass with presized collections. Payloads pass through
+ * unchanged unless {@link Limits} are configured, in which case oversized metadata is rejected (or,
+ * when asked for, truncated) before it reaches the SDK.
+ */
+final class IntercomJsonConverter {
+
+    static final class Limits {
+
+        /** Nesting depth; the top-level object is depth 1. */
+        final int maxDepth;
+        /** Keys per object, or elements per array. */
+        final int maxKeys;
+        /** Characters per string value. */
+        final int maxStringLength;
+        /** Drop what exceeds the limits instead of failing the conversion. */
+        final boolean truncate;
+
+        Limits(int maxDepth, int maxKeys, int maxStringLength, boolean truncate) {
+            this.maxDepth = Math.max(1, maxDepth);
+            this.maxKeys = Math.max(1, maxKeys);
+            this.maxStringLength = Math.max(1, maxStringLength);
+            this.truncate = truncate;
+        }
+
+        /**
+         * Reads {@code plugins.Intercom.metadataLimits}; every field is optional. Unset limits are
+         * unbounded, and a payload over a configured limit fails the call unless {@code onOverflow}
+         * is {@code "truncate"}, so data is never rewritten without the app asking for it.
+         */
+        static Limits from(JSONObject json) {
+            if (json == null) {
+                json = new JSONObject();
+            }
+            return new Limits(
+                json.optInt("maxDepth", Integer.MAX_VALUE),
+                json.optInt("maxKeys", Integer.MAX_VALUE),
+                json.optInt("maxStringLength", Integer.MAX_VALUE),
+                "truncate".equals(json.optString("onOverflow", "reject"))
+            );
+        }
+    }
+
+    /**
+     * A JSON container whose copy is in progress. Frames form a linked stack through {@code parent},
+     * so no separate stack structure is allocated.
+     */
+    private static final class Frame {
+
+        final Object source;
+        final Object target;
+        final Iterator<String> keys;
+        final Frame parent;
+        final int depth;
+        int index;
+
+        Frame(JSONObject source, Map<String, Object> target, int depth, Frame parent) {
+            this.source = source;
+            this.target = target;
+            this.keys = source.keys();
+            this.depth = depth;
+            this.parent = parent;
+        }
+
+        Frame(JSONArray source, List<Object> target, int index, int depth, Frame parent) {
+            this.source = source;
+            this.target = target;
+            this.keys = null;
+            this.index = index;
+            this.depth = depth;
+            this.parent = parent;
+        }
+    }
+
+    private final Limits limits;
+
+    IntercomJsonConverter(Limits limits) {
+        this.limits = limits;
+    }
+
+    /**
+     * Returns {@code null} for a {@code null} input.
+     *
+     * @throws IllegalArgumentException when the payload exceeds the limits and truncation is off
+     */
+    @SuppressWarnings("unchecked")
+    Map<String, Object> toMap(JSONObject json) {
+        if (json == null) {
+            return null;
+        }
+        Map<String, Object> root = newMap(json.length());
+        Frame frame = new Frame(json, root, 1, null);
+
+        while (frame != null) {
+            Frame top = frame;
+            if (frame.keys != null) {
+                Map<String, Object> map = (Map<String, Object>) frame.target;
+                if (!frame.keys.hasNext()) {
+                    frame = frame.parent;
+                } else if (map.size() >= limits.maxKeys) {
+                    overflow("more than " + limits.maxKeys + " keys in an object");
+                    frame = frame.parent;
+                } else {
+                    String key = frame.keys.next();
+                    Object value = ((JSONObject) frame.source).opt(key);
+                    List<Object> flat = value instanceof JSONArray ? flatList((JSONArray) value, frame.depth) : null;
+                    if (flat != null) {
+                        map.put(key, flat);
+                    } else if (value instanceof JSONObject || value instanceof JSONArray) {
+                        frame = descend(value, frame);
+                        if (frame != top) {
+                            map.put(key, frame.target);
+                        }
+                    } else {
+                        value = leaf(value);
+                        if (value != null) {
+                            map.put(key, value);
+                        }
+                    }
+                }
+            } else {
+                JSONArray array = (JSONArray) frame.source;
+                List<Object> list = (List<Object>) frame.target;
+                frame = frame.parent;
+                // Copy primitives inline; only a nested container needs its own frame
+                for (int i = top.index, count = array.length(); i < count; i++) {
+                    if (i >= limits.maxKeys) {
+                        overflow("more than " + limits.maxKeys + " elements in an array");
+                        break;
+                    }
+                    Object value = array.opt(i);
+                    List<Object> flat = value instanceof JSONArray ? flatList((JSONArray) value, top.depth) : null;
+                    if (flat != null) {
+                        list.add(flat);
+                    } else if (value instanceof JSONObject || value instanceof JSONArray) {
+                        // Resume this array after the child container is done
+                        top.index = i + 1;
+                        frame = descend(value, top);
+                        if (frame != top) {
+                            list.add(frame.target);
+                        }
+                        break;
+                    } else {
+                        value = leaf(value);
+                        if (value != null) {
+                            list.add(value);
+                        }
+                    }
+                }
+            }
+        }
+        return root;
+    }
+
+    /** Opens a frame for a nested container, or returns {@code parent} when it is too deep. */
+    private Frame descend(Object container, Frame parent) {
+        if (parent.depth >= limits.maxDepth) {
+            overflow("nesting deeper than " + limits.maxDepth + " levels");
+            return parent;
+        }
+        if (container instanceof JSONObject) {
+            JSONObject object = (JSONObject) container;
+            return new Frame(object, newMap(object.length()), parent.depth + 1, parent);
+        }
+        JSONArray array = (JSONArray) container;
+        return new Frame(array, new ArrayList<>(Math.min(array.length(), limits.maxKeys)), 0, parent.depth + 1, parent);
+    }
+
+    /**
+     * Copies an array of primitives without opening a frame. Returns {@code null} when the array
+     * holds containers or sits too deep, leaving it to the frame-based path.
+     */
+    private List<Object> flatList(JSONArray array, int parentDepth) {
+        if (parentDepth >= limits.maxDepth) {
+            return null;
+        }
+        int count = array.length();
+        List<Object> list = new ArrayList<>(Math.min(count, limits.maxKeys));
+        for (int i = 0; i < count; i++) {
+            Object value = array.opt(i);
+            if (value instanceof JSONObject || value instanceof JSONArray) {
+                return null;
+            }
+            if (i >= limits.maxKeys) {
+                overflow("more than " + limits.maxKeys + " elements in an array");
+                break;
+            }
+            value = leaf(value);
+            if (value != null) {
+                list.add(value);
+            }
+        }
+        return list;
+    }
+
+    private Object leaf(Object value) {
+        if (value instanceof String) {
+            String string = (String) value;
+            if (string.length() > limits.maxStringLength) {
+                overflow("a string longer than " + limits.maxStringLength + " characters");
+                return string.substring(0, limits.maxStringLength);
+            }
+        }
+        return value;
+    }
+
+    private void overflow(String what) {
+        if (!limits.truncate) {
+            throw new IllegalArgumentException("Intercom payload has " + what);
+        }
+    }
+
+    private Map<String, Object> newMap(int size) {
+        int expected = Math.min(size, limits.maxKeys);
+        // Capacity for the expected size at the default 0.75 load factor, so the map never rehashes
+        return new HashMap<>(expected < 3 ? expected + 1 : (int) (expected / 0.75f) + 1);
+    }
+}
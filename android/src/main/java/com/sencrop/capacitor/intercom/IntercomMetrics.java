@@ -0,0 +1,184 @@
+package com.sencrop.capacitor.intercom;
+
+import android.os.Trace;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process-wide counters and latency histograms. Instruments are created on first use; recording
+ * into an existing one is a map lookup and a few atomic updates, with no allocation.
+ *
+ * <p>With trace mode on, {@link #beginCall}/{@link #endCall} also open an {@code android.os.Trace}
+ * section so plugin calls show up in systrace and Perfetto captures.
+ */
+final class IntercomMetrics {
+
+    /** Fixed-bucket latency histogram; percentiles are reported as the upper bound of their bucket. */
+    static final class Histogram {
+
+        /** Bucket upper bounds in microseconds; one more bucket holds everything slower. */
+        static final long[] BOUNDS_MICROS = {
+            50,
+            100,
+            250,
+            500,
+            1_000,
+            2_500,
+            5_000,
+            10_000,
+            25_000,
+            50_000,
+            100_000,
+            250_000,
+            500_000,
+            1_000_000,
+            2_500_000,
+        };
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_MICROS.length + 1);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            long micros = nanos / 1000;
+            int bucket = 0;
+            while (bucket < BOUNDS_MICROS.length && micros > BOUNDS_MICROS[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            long max;
+            while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {}
+        }
+
+        long getCount() {
+            return count.get();
+        }
+
+        long getTotalNanos() {
+            return totalNanos.get();
+        }
+
+        long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        /** Upper bound of the bucket holding the {@code quantile}; the maximum for the last bucket. */
+        long getPercentileNanos(double quantile) {
+            long total = count.get();
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < BOUNDS_MICROS.length; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(BOUNDS_MICROS[i] * 1000, maxNanos.get());
+                }
+            }
+            return maxNanos.get();
+        }
+    }
+
+    /** Plugin method durations, by method name. */
+    static final ConcurrentHashMap<String, Histogram> calls = new ConcurrentHashMap<>();
+    /** Time from an SDK request to its onSuccess/onFailure callback, by operation. */
+    static final ConcurrentHashMap<String, Histogram> callbacks = new ConcurrentHashMap<>();
+    /** Initialization phases, by phase name. */
+    static final ConcurrentHashMap<String, Histogram> init = new ConcurrentHashMap<>();
+    /** Display call to first Intercom frame, by {@code <method>.cold} or {@code <method>.warm}. */
+    static final ConcurrentHashMap<String, Histogram> present = new ConcurrentHashMap<>();
+    /** Failed SDK callbacks, by operation. */
+    static final ConcurrentHashMap<String, AtomicLong> callbackFailures = new ConcurrentHashMap<>();
+    /** Caught-and-swallowed exceptions, by site. */
+    static final ConcurrentHashMap<String, AtomicLong> suppressedErrors = new ConcurrentHashMap<>();
+    /** Caught-and-swallowed exceptions, by exception class. */
+    static final ConcurrentHashMap<String, AtomicLong> suppressedErrorTypes = new ConcurrentHashMap<>();
+
+    private static volatile boolean enabled = true;
+    private static volatile boolean trace;
+
+    private IntercomMetrics() {}
+
+    /** Applies {@code plugins.Intercom.metrics}: {@code enabled} (default true) and {@code trace} (default false). */
+    static void configure(boolean enabled, boolean trace) {
+        IntercomMetrics.enabled = enabled;
+        IntercomMetrics.trace = trace;
+    }
+
+    static void record(ConcurrentHashMap<String, Histogram> histograms, String name, long nanos) {
+        if (!enabled) {
+            return;
+        }
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            Histogram created = new Histogram();
+            histogram = histograms.putIfAbsent(name, created);
+            histogram = histogram != null ? histogram : created;
+        }
+        histogram.record(nanos);
+    }
+
+    static void increment(ConcurrentHashMap<String, AtomicLong> counters, String name) {
+        if (!enabled) {
+            return;
+        }
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = counters.putIfAbsent(name, created);
+            counter = counter != null ? counter : created;
+        }
+        counter.incrementAndGet();
+    }
+
+    /** Starts timing a plugin call; pass the result to {@link #endCall}. */
+    static long beginCall(String method) {
+        if (trace) {
+            // Trace mode is for local profiling, so the section name may allocate
+            Trace.beginSection("Intercom." + method);
+        }
+        return System.nanoTime();
+    }
+
+    static void endCall(String method, long start) {
+        if (trace) {
+            Trace.endSection();
+        }
+        record(calls, method, System.nanoTime() - start);
+    }
+
+    static void recordCallback(String operation, long start, boolean success) {
+        record(callbacks, operation, System.nanoTime() - start);
+        if (!success) {
+            increment(callbackFailures, operation);
+        }
+    }
+
+    /**
+     * Counts an exception that was caught and deliberately not rethrown at {@code site}, and keeps
+     * it in {@link IntercomDiagnostics} even when metrics are disabled.
+     */
+    static void suppressed(String site, Throwable error) {
+        increment(suppressedErrors, site);
+        increment(suppressedErrorTypes, error != null ? error.getClass().getName() : "unknown");
+        IntercomDiagnostics.record(site, error);
+    }
+
+    static void resetForTesting() {
+        calls.clear();
+        callbacks.clear();
+        init.clear();
+        present.clear();
+        callbackFailures.clear();
+        suppressedErrors.clear();
+        suppressedErrorTypes.clear();
+        IntercomDiagnostics.resetForTesting();
+        enabled = true;
+        trace = false;
+    }
+}
@@ -0,0 +1,120 @@
+package com.sencrop.capacitor.intercom;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONObject;
+
+/**
+ * Ordered queue for plugin calls made before Intercom is initialized in deferred mode. Calls are
+ * parked here instead of initializing the SDK inline, and run in arrival order by {@link #drain}
+ * once initialization has happened at an idle point.
+ *
+ * <p>The queue stays open until {@link #drain} runs, so a call can never overtake one that was
+ * queued before it. Run {@link #drain} on the thread that delivers plugin calls.
+ */
+final class IntercomPendingCalls {
+
+    static final class Settings {
+
+        final boolean enabled;
+        /** {@code "idle"} for the first main-looper idle, {@code "firstFrame"} for after the first drawn frame. */
+        final String trigger;
+        /** Upper bound on how long initialization waits for the trigger. */
+        final long maxDelayMs;
+        final int maxPending;
+
+        Settings(boolean enabled, String trigger, long maxDelayMs, int maxPending) {
+            this.enabled = enabled;
+            this.trigger = trigger;
+            this.maxDelayMs = Math.max(0, maxDelayMs);
+            this.maxPending = Math.max(1, maxPending);
+        }
+
+        /** Reads {@code plugins.Intercom.deferredInit}; every field is optional. */
+        static Settings from(JSONObject json) {
+            if (json == null) {
+                json = new JSONObject();
+            }
+            return new Settings(
+                json.optBoolean("enabled", false),
+                json.optString("trigger", "idle"),
+                json.optLong("maxDelayMs", 5000),
+                json.optInt("maxPending", 100)
+            );
+        }
+    }
+
+    enum Result {
+        QUEUED,
+        FULL,
+        /** Already drained; run the call inline. */
+        CLOSED
+    }
+
+    private final int maxPending;
+    private List<Runnable> pending = new ArrayList<>();
+    private Thread drainingThread;
+
+    IntercomPendingCalls(int maxPending) {
+        this.maxPending = maxPending;
+    }
+
+    synchronized Result offer(Runnable call) {
+        // A parked call being replayed re-enters its plugin method, which must then run inline
+        if (pending == null || drainingThread == Thread.currentThread()) {
+            return Result.CLOSED;
+        }
+        if (pending.size() >= maxPending) {
+            return Result.FULL;
+        }
+        pending.add(call);
+        return Result.QUEUED;
+    }
+
+    synchronized boolean isOpen() {
+        return pending != null;
+    }
+
+    synchronized int size() {
+        return pending != null ? pending.size() : 0;
+    }
+
+    /**
+     * Runs the parked calls in order, then closes the queue. Calls offered from other threads while
+     * draining are queued behind the ones already parked. Later invocations do nothing.
+     *
+     * <p>Parked calls are expected to settle their own failures. One that throws anyway ends this
+     * drain with its exception; the calls behind it stay parked for the next {@code drain()}.
+     */
+    void drain() {
+        synchronized (this) {
+            if (pending == null || drainingThread != null) {
+                return;
+            }
+            drainingThread = Thread.currentThread();
+        }
+        int index = 0;
+        boolean done = false;
+        try {
+            while (true) {
+                Runnable next;
+                synchronized (this) {
+                    if (index == pending.size()) {
+                        pending = null;
+                        done = true;
+                        return;
+                    }
+                    next = pending.get(index++);
+                }
+                next.run();
+            }
+        } finally {
+            synchronized (this) {
+                drainingThread = null;
+                if (!done) {
+                    pending.subList(0, index).clear();
+                }
+            }
+        }
+    }
+}
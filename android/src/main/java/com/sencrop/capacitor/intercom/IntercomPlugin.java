@@ -2,24 +2,23 @@ package com.sencrop.capacitor.intercom;
 
 import android.app.Application;
 import android.content.Context;
-import androidx.annotation.NonNull;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
-import io.intercom.android.sdk.Intercom;
-import io.intercom.android.sdk.IntercomContent;
-import io.intercom.android.sdk.IntercomError;
-import io.intercom.android.sdk.IntercomSpace;
-import io.intercom.android.sdk.IntercomStatusCallback;
-import io.intercom.android.sdk.UserAttributes;
-import io.intercom.android.sdk.identity.Registration;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import org.json.JSONArray;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 @CapacitorPlugin(name = "Intercom")
@@ -27,306 +26,1337 @@ public class IntercomPlugin extends Plugin {
 
     private static volatile boolean isInitialized = false;
 
+    private static final long USER_CHANGE_FLUSH_TIMEOUT_MS = 2000;
+
+    private IntercomEventQueue eventQueue;
+    private IntercomAttributeBuffer attributeBuffer;
+    private IntercomAttributeCache attributeCache;
+    private IntercomJsonConverter jsonConverter;
+    private IntercomTracker tracker;
+    private IntercomJournal journal;
+    private IntercomConnectivity connectivity;
+    private IntercomPendingCalls pendingCalls;
+    private IntercomPrewarmer prewarmer;
+    private IntercomEventSampler eventSampler;
+    private IntercomEventAggregator eventAggregator;
+    private IntercomCallDispatcher callDispatcher;
+    private IntercomIdentity identity;
+    private final Map<String, IntercomIdentity> identities = new HashMap<>();
+    private IntercomUnreadCountStream unreadCountStream;
+    private volatile boolean unreadCountWatched;
+
     public static void markInitialized() {
         isInitialized = true;
     }
 
+    static boolean isSdkInitialized() {
+        return isInitialized;
+    }
+
     @Override
     public void load() {
         // Do not auto-initialize; allow explicit initialize() to control timing
-    }
+        IntercomConfig config = IntercomConfig.get(getContext());
+        configureMetrics(config);
+        IntercomCallDispatcher.Settings callQueueSettings = IntercomCallDispatcher.Settings.from(config.getObject("callQueue"));
+        if (callQueueSettings.enabled) {
+            callDispatcher = new IntercomCallDispatcher(
+                IntercomExecutors.calls(),
+                new Handler(Looper.getMainLooper())::post,
+                callQueueSettings.capacity
+            );
+        }
+        jsonConverter = new IntercomJsonConverter(IntercomJsonConverter.Limits.from(config.getObject("metadataLimits")));
+        if (config.getBoolean("attributeCache", true)) {
+            attributeCache = new IntercomAttributeCache(IntercomAttributeCache.sharedPreferences(getContext()));
+        }
+        IntercomEventQueue.Settings queueSettings = IntercomEventQueue.Settings.from(config.getObject("eventQueue"));
+        if (queueSettings.enabled) {
+            eventQueue = new IntercomEventQueue(
+                queueSettings,
+                (name, metadata) -> sdk().logEvent(name, metadata),
+                IntercomExecutors.background()
+            );
+        }
+        IntercomEventSampler.Settings samplingSettings = IntercomEventSampler.Settings.from(config.getObject("eventSampling"));
+        if (samplingSettings.enabled) {
+            eventSampler = new IntercomEventSampler(samplingSettings);
+            eventSampler.start(IntercomExecutors.background(), this::sendSummary);
+        }
+        IntercomEventAggregator.Settings aggregationSettings = IntercomEventAggregator.Settings.from(config.getObject("eventAggregation"));
+        if (aggregationSettings.enabled) {
+            eventAggregator = new IntercomEventAggregator(aggregationSettings);
+            eventAggregator.start(IntercomExecutors.background(), this::sendSummary);
+        }
+        tracker = new IntercomTracker(
+            jsonConverter,
+            eventAggregator,
+            eventSampler,
+            eventQueue,
+            attributeCache,
+            IntercomExecutors.background(),
+            config.getLong("attributeDebounceMs", 250),
+            new IntercomTracker.Journal() {
+                @Override
+                public boolean shouldJournal() {
+                    return IntercomPlugin.this.shouldJournal();
+                }
 
-    private static Map<String, Object> mapFromJSON(JSONObject jsonObject) {
-        if (jsonObject == null) {
-            return null;
+                @Override
+                public void append(JSONObject record) throws JSONException {
+                    tagWorkspace(record);
+                    appendToJournal(record);
+                }
+            }
+        );
+        attributeBuffer = tracker.getAttributeBuffer();
+        IntercomPendingCalls.Settings deferredSettings = IntercomPendingCalls.Settings.from(config.getObject("deferredInit"));
+        if (deferredSettings.enabled && !isInitialized) {
+            pendingCalls = new IntercomPendingCalls(deferredSettings.maxPending);
+            scheduleDeferredInit(deferredSettings);
+        }
+        IntercomJournal.Settings journalSettings = IntercomJournal.Settings.from(config.getObject("journal"));
+        if (journalSettings.enabled) {
+            journal = new IntercomJournal(
+                new File(getContext().getFilesDir(), "intercom/journal.jsonl"),
+                journalSettings,
+                IntercomExecutors.background()
+            );
+            connectivity = new IntercomConnectivity(getContext());
+            connectivity.observe(this::replayJournal);
+            replayJournal();
         }
-        Map<String, Object> map = new HashMap<>();
-        Iterator<String> keysIter = jsonObject.keys();
-        while (keysIter.hasNext()) {
-            String key = keysIter.next();
-            Object value = getObject(jsonObject.opt(key));
-            if (value != null) {
-                map.put(key, value);
+        IntercomPrewarmer.Settings prewarmSettings = IntercomPrewarmer.Settings.from(config.getObject("prewarm"));
+        prewarmer = new IntercomPrewarmer(
+            IntercomExecutors.background(),
+            getContext().getClassLoader(),
+            prewarmSettings.classes,
+            this::initializeForPrewarm
+        );
+        IntercomPresentWatcher.register((Application) getContext().getApplicationContext());
+        if (prewarmSettings.auto) {
+            schedulePrewarm(prewarmSettings.delayMs);
+        }
+        IntercomUnreadCountStream.Settings unreadCountSettings = IntercomUnreadCountStream.Settings.from(config.getObject("unreadCount"));
+        if (unreadCountSettings.enabled) {
+            unreadCountStream = createUnreadCountStream(unreadCountSettings.windowFrames);
+            if (isInitialized) {
+                watchUnreadCount();
             }
         }
-        return map;
     }
 
-    private static Object getObject(Object value) {
-        if (value instanceof JSONObject) {
-            value = mapFromJSON((JSONObject) value);
-        } else if (value instanceof JSONArray) {
-            value = listFromJSON((JSONArray) value);
+    @Override
+    protected void handleOnResume() {
+        replayJournal();
+    }
+
+    @Override
+    protected void handleOnStop() {
+        // App is going to background: don't leave buffered events or attributes behind
+        if (eventSampler != null) {
+            eventSampler.emitSummary(this::sendSummary);
+            // Back in the foreground is a new session for the first-N rules
+            eventSampler.resetSession();
         }
-        return value;
+        if (eventAggregator != null) {
+            eventAggregator.flush(this::sendSummary);
+        }
+        if (eventQueue != null) {
+            eventQueue.flush();
+        }
+        attributeBuffer.flush();
     }
 
-    private static List<Object> listFromJSON(JSONArray jsonArray) {
-        List<Object> list = new ArrayList<>();
-        for (int i = 0, count = jsonArray.length(); i < count; i++) {
-            Object value = getObject(jsonArray.opt(i));
-            if (value != null) {
-                list.add(value);
-            }
+    @Override
+    protected void handleOnDestroy() {
+        if (unreadCountWatched) {
+            sdk().setUnreadCountListener(null);
+            unreadCountWatched = false;
+        }
+        if (connectivity != null) {
+            connectivity.stop();
         }
-        return list;
     }
 
     @PluginMethod
     public void initialize(PluginCall call) {
-        if (!ensureInitialized(call)) {
+        if (dispatch(call, () -> initialize(call))) {
             return;
         }
-
+        long start = IntercomMetrics.beginCall("initialize");
         try {
-            Intercom.client().handlePushMessage();
-        } catch (Throwable ignored) {}
-        try {
-            Context context = getContext();
-            if (context != null) {
-                IntercomComponentController.enableAutoComponents(context);
+            // An explicit initialize() doesn't wait for the deferred idle point
+            boolean initialized = ensureInitialized(call);
+            if (pendingCalls != null) {
+                pendingCalls.drain();
+            }
+            if (!initialized) {
+                return;
+            }
+
+            try {
+                sdk().handlePushMessage();
+            } catch (Throwable e) {
+                IntercomMetrics.suppressed("initialize.handlePushMessage", e);
+            }
+            try {
+                Context context = getContext();
+                if (context != null) {
+                    IntercomComponentController.enableAutoComponents(context);
+                }
+            } catch (Throwable e) {
+                IntercomMetrics.suppressed("initialize.enableAutoComponents", e);
             }
-        } catch (Throwable ignored) {}
 
-        call.resolve();
+            call.resolve();
+        } finally {
+            IntercomMetrics.endCall("initialize", start);
+        }
     }
 
     @PluginMethod
     public void loginIdentifiedUser(PluginCall call) {
-        if (!ensureInitialized(call)) {
+        if (dispatch(call, () -> loginIdentifiedUser(call))) {
             return;
         }
-        String email = call.getString("email");
-        String userId = call.getString("userId");
-        String userHash = call.getString("userHash");
-
-        if (userHash != null && userHash.length() > 0) {
-            Intercom.client().setUserHash(userHash);
-        }
-
-        Registration registration = Registration.create();
+        long start = IntercomMetrics.beginCall("loginIdentifiedUser");
+        try {
+            if (deferUntilInitialized(call, () -> loginIdentifiedUser(call))) {
+                return;
+            }
+            if (!ensureInitialized(call)) {
+                return;
+            }
+            String email = call.getString("email");
+            String userId = call.getString("userId");
+            String userHash = call.getString("userHash");
 
-        if (email != null && email.length() > 0) {
-            registration = registration.withEmail(email);
-        }
-        if (userId != null && userId.length() > 0) {
-            registration = registration.withUserId(userId);
-        }
+            final String cacheUser = userId != null && userId.length() > 0 ? "id:" + userId : "email:" + email;
+            // Events and updates still buffered were made for the user logged in now
+            tracker.flushBeforeUserChange(USER_CHANGE_FLUSH_TIMEOUT_MS);
+            if (attributeCache != null) {
+                attributeCache.expectUser(cacheUser);
+            }
 
-        Intercom
-            .client()
-            .loginIdentifiedUser(
-                registration,
-                new IntercomStatusCallback() {
+            identity().login(
+                userId,
+                email,
+                userHash,
+                new IntercomSdk.Callback() {
                     @Override
                     public void onSuccess() {
+                        if (attributeCache != null) {
+                            attributeCache.setUser(cacheUser);
+                        }
                         call.resolve();
                     }
 
                     @Override
-                    public void onFailure(@NonNull IntercomError intercomError) {
-                        call.reject("Intercom error : " + intercomError.getErrorMessage());
+                    public void onFailure(String message) {
+                        call.reject("Intercom error : " + message);
                     }
                 }
             );
+        } finally {
+            IntercomMetrics.endCall("loginIdentifiedUser", start);
+        }
     }
 
     @PluginMethod
     public void loginUnidentifiedUser(PluginCall call) {
-        if (!ensureInitialized(call)) {
+        if (dispatch(call, () -> loginUnidentifiedUser(call))) {
             return;
         }
-        Intercom
-            .client()
-            .loginUnidentifiedUser(
-                new IntercomStatusCallback() {
-                    @Override
-                    public void onSuccess() {
-                        call.resolve();
-                    }
+        long start = IntercomMetrics.beginCall("loginUnidentifiedUser");
+        try {
+            if (deferUntilInitialized(call, () -> loginUnidentifiedUser(call))) {
+                return;
+            }
+            if (!ensureInitialized(call)) {
+                return;
+            }
+            tracker.flushBeforeUserChange(USER_CHANGE_FLUSH_TIMEOUT_MS);
+            if (attributeCache != null) {
+                attributeCache.expectUser("unidentified");
+            }
+            final long requested = System.nanoTime();
+            sdk()
+                .loginUnidentifiedUser(
+                    new IntercomSdk.Callback() {
+                        @Override
+                        public void onSuccess() {
+                            IntercomMetrics.recordCallback("loginUnidentifiedUser", requested, true);
+                            identity().onUnidentifiedLogin();
+                            if (attributeCache != null) {
+                                attributeCache.setUser("unidentified");
+                            }
+                            call.resolve();
+                        }
 
-                    @Override
-                    public void onFailure(@NonNull IntercomError intercomError) {
-                        call.reject("Intercom error : " + intercomError.getErrorMessage());
+                        @Override
+                        public void onFailure(String message) {
+                            IntercomMetrics.recordCallback("loginUnidentifiedUser", requested, false);
+                            call.reject("Intercom error : " + message);
+                        }
                     }
-                }
-            );
+                );
+        } finally {
+            IntercomMetrics.endCall("loginUnidentifiedUser", start);
+        }
     }
 
     @PluginMethod
     public void updateUser(PluginCall call) {
-        if (!ensureInitialized(call)) {
+        if (dispatch(call, () -> updateUser(call))) {
             return;
         }
-        String email = call.getString("email");
-        String phone = call.getString("phone");
-        String name = call.getString("name");
-        String language = call.getString("language");
-
-        UserAttributes userAttributes = new UserAttributes.Builder()
-            .withName(name)
-            .withEmail(email)
-            .withPhone(phone)
-            .withLanguageOverride(language)
-            .build();
-        Intercom
-            .client()
-            .updateUser(
-                userAttributes,
-                new IntercomStatusCallback() {
-                    @Override
-                    public void onSuccess() {
-                        call.resolve();
-                    }
-
-                    @Override
-                    public void onFailure(@NonNull IntercomError intercomError) {
-                        call.reject("Intercom error : " + intercomError.getErrorMessage());
-                    }
-                }
-            );
+        long start = IntercomMetrics.beginCall("updateUser");
+        try {
+            if (deferUntilInitialized(call, () -> updateUser(call))) {
+                return;
+            }
+            if (!ensureInitializedOrJournaled(call)) {
+                return;
+            }
+            tracker.updateUser(call);
+        } finally {
+            IntercomMetrics.endCall("updateUser", start);
+        }
     }
 
     @PluginMethod
     public void setCustomAttributes(PluginCall call) {
-        if (!ensureInitialized(call)) {
+        if (dispatch(call, () -> setCustomAttributes(call))) {
             return;
         }
-        Map<String, Object> attributes = mapFromJSON(call.getObject("attributes"));
-
-        UserAttributes.Builder userAttributesBuilder = new UserAttributes.Builder();
-
-        for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
-            String key = attribute.getKey();
-            Object value = attribute.getValue();
-            userAttributesBuilder = userAttributesBuilder.withCustomAttribute(key, value);
+        long start = IntercomMetrics.beginCall("setCustomAttributes");
+        try {
+            if (deferUntilInitialized(call, () -> setCustomAttributes(call))) {
+                return;
+            }
+            if (!ensureInitializedOrJournaled(call)) {
+                return;
+            }
+            tracker.setCustomAttributes(call);
+        } finally {
+            IntercomMetrics.endCall("setCustomAttributes", start);
         }
-
-        UserAttributes userAttributes = userAttributesBuilder.build();
-        Intercom
-            .client()
-            .updateUser(
-                userAttributes,
-                new IntercomStatusCallback() {
-                    @Override
-                    public void onSuccess() {
-                        call.resolve();
-                    }
-
-                    @Override
-                    public void onFailure(@NonNull IntercomError intercomError) {
-                        call.reject("Intercom error : " + intercomError.getErrorMessage());
-                    }
-                }
-            );
     }
 
     @PluginMethod
     public void logout(PluginCall call) {
-        if (!ensureInitialized(call)) {
+        if (dispatch(call, () -> logout(call))) {
             return;
         }
-        Intercom.client().logout();
-        call.resolve();
+        long start = IntercomMetrics.beginCall("logout");
+        try {
+            if (deferUntilInitialized(call, () -> logout(call))) {
+                return;
+            }
+            if (!ensureInitialized(call)) {
+                return;
+            }
+            flushBeforeLogout();
+            sdk().logout();
+            identity().onLogout();
+            if (attributeCache != null) {
+                attributeCache.invalidate();
+            }
+            if (eventSampler != null) {
+                eventSampler.resetSession();
+            }
+            call.resolve();
+        } finally {
+            IntercomMetrics.endCall("logout", start);
+        }
     }
 
     @PluginMethod
     public void logEvent(PluginCall call) {
-        if (!ensureInitialized(call)) {
+        if (dispatch(call, () -> logEvent(call))) {
             return;
         }
-        String eventName = call.getString("name");
-        Map<String, Object> metaData = mapFromJSON(call.getObject("data"));
-
-        if (metaData == null) {
-            Intercom.client().logEvent(eventName);
-        } else {
-            Intercom.client().logEvent(eventName, metaData);
+        long start = IntercomMetrics.beginCall("logEvent");
+        try {
+            if (deferUntilInitialized(call, () -> logEvent(call))) {
+                return;
+            }
+            if (!ensureInitializedOrJournaled(call)) {
+                return;
+            }
+            tracker.logEvent(call);
+        } finally {
+            IntercomMetrics.endCall("logEvent", start);
         }
-
-        call.resolve();
     }
 
     @PluginMethod
     public void displayMessenger(PluginCall call) {
-        if (!ensureInitialized(call)) {
+        if (dispatch(call, () -> displayMessenger(call))) {
             return;
         }
-        Intercom.client().present();
-        call.resolve();
+        long start = IntercomMetrics.beginCall("displayMessenger");
+        try {
+            if (deferUntilInitialized(call, () -> displayMessenger(call))) {
+                return;
+            }
+            if (!ensureInitialized(call)) {
+                return;
+            }
+            IntercomComponentController.beforePresent(getContext());
+            runOnMainThread(call, () -> {
+                IntercomPresentTimer.begin("displayMessenger", prewarmer.isWarm());
+                sdk().presentMessenger();
+                call.resolve();
+            });
+        } finally {
+            IntercomMetrics.endCall("displayMessenger", start);
+        }
     }
 
     @PluginMethod
     public void displayMessageComposer(PluginCall call) {
-        if (!ensureInitialized(call)) {
+        if (dispatch(call, () -> displayMessageComposer(call))) {
             return;
         }
-        String messageContent = call.getString("content");
-        if (messageContent == null) {
-            Intercom.client().displayMessageComposer();
-        } else {
-            Intercom.client().displayMessageComposer(messageContent);
+        long start = IntercomMetrics.beginCall("displayMessageComposer");
+        try {
+            if (deferUntilInitialized(call, () -> displayMessageComposer(call))) {
+                return;
+            }
+            if (!ensureInitialized(call)) {
+                return;
+            }
+            String messageContent = call.getString("content");
+            IntercomComponentController.beforePresent(getContext());
+            runOnMainThread(call, () -> {
+                sdk().presentMessageComposer(messageContent);
+                call.resolve();
+            });
+        } finally {
+            IntercomMetrics.endCall("displayMessageComposer", start);
         }
-        call.resolve();
     }
 
     @PluginMethod
     public void displayHelpCenter(PluginCall call) {
-        if (!ensureInitialized(call)) {
+        if (dispatch(call, () -> displayHelpCenter(call))) {
             return;
         }
-        Intercom.client().present(IntercomSpace.HelpCenter);
-        call.resolve();
+        long start = IntercomMetrics.beginCall("displayHelpCenter");
+        try {
+            if (deferUntilInitialized(call, () -> displayHelpCenter(call))) {
+                return;
+            }
+            if (!ensureInitialized(call)) {
+                return;
+            }
+            IntercomComponentController.beforePresent(getContext());
+            runOnMainThread(call, () -> {
+                IntercomPresentTimer.begin("displayHelpCenter", prewarmer.isWarm());
+                sdk().presentHelpCenter();
+                call.resolve();
+            });
+        } finally {
+            IntercomMetrics.endCall("displayHelpCenter", start);
+        }
     }
 
     @PluginMethod
     public void hideMessenger(PluginCall call) {
-        if (!ensureInitialized(call)) {
+        if (dispatch(call, () -> hideMessenger(call))) {
             return;
         }
-        Intercom.client().hideIntercom();
-        call.resolve();
+        long start = IntercomMetrics.beginCall("hideMessenger");
+        try {
+            if (deferUntilInitialized(call, () -> hideMessenger(call))) {
+                return;
+            }
+            if (!ensureInitialized(call)) {
+                return;
+            }
+            runOnMainThread(call, () -> {
+                sdk().hideMessenger();
+                call.resolve();
+            });
+        } finally {
+            IntercomMetrics.endCall("hideMessenger", start);
+        }
     }
 
     @PluginMethod
     public void displayLauncher(PluginCall call) {
-        if (!ensureInitialized(call)) {
+        if (dispatch(call, () -> displayLauncher(call))) {
             return;
         }
-        Intercom.client().setLauncherVisibility(Intercom.VISIBLE);
-        call.resolve();
+        long start = IntercomMetrics.beginCall("displayLauncher");
+        try {
+            if (deferUntilInitialized(call, () -> displayLauncher(call))) {
+                return;
+            }
+            if (!ensureInitialized(call)) {
+                return;
+            }
+            runOnMainThread(call, () -> {
+                sdk().setLauncherVisible(true);
+                call.resolve();
+            });
+        } finally {
+            IntercomMetrics.endCall("displayLauncher", start);
+        }
     }
 
     @PluginMethod
     public void hideLauncher(PluginCall call) {
-        if (!ensureInitialized(call)) {
+        if (dispatch(call, () -> hideLauncher(call))) {
             return;
         }
-        Intercom.client().setLauncherVisibility(Intercom.GONE);
-        call.resolve();
+        long start = IntercomMetrics.beginCall("hideLauncher");
+        try {
+            if (deferUntilInitialized(call, () -> hideLauncher(call))) {
+                return;
+            }
+            if (!ensureInitialized(call)) {
+                return;
+            }
+            runOnMainThread(call, () -> {
+                sdk().setLauncherVisible(false);
+                call.resolve();
+            });
+        } finally {
+            IntercomMetrics.endCall("hideLauncher", start);
+        }
     }
 
     @PluginMethod
     public void displayArticle(PluginCall call) {
-        if (!ensureInitialized(call)) {
+        if (dispatch(call, () -> displayArticle(call))) {
             return;
         }
-        String articleId = call.getString("id");
-        Intercom.client().presentContent(new IntercomContent.Article(articleId));
-        call.resolve();
+        long start = IntercomMetrics.beginCall("displayArticle");
+        try {
+            if (deferUntilInitialized(call, () -> displayArticle(call))) {
+                return;
+            }
+            if (!ensureInitialized(call)) {
+                return;
+            }
+            String articleId = call.getString("id");
+            IntercomComponentController.beforePresent(getContext());
+            runOnMainThread(call, () -> {
+                IntercomPresentTimer.begin("displayArticle", prewarmer.isWarm());
+                sdk().presentArticle(articleId);
+                call.resolve();
+            });
+        } finally {
+            IntercomMetrics.endCall("displayArticle", start);
+        }
     }
 
     @PluginMethod
     public void displaySurvey(PluginCall call) {
-        if (!ensureInitialized(call)) {
+        if (dispatch(call, () -> displaySurvey(call))) {
+            return;
+        }
+        long start = IntercomMetrics.beginCall("displaySurvey");
+        try {
+            if (deferUntilInitialized(call, () -> displaySurvey(call))) {
+                return;
+            }
+            if (!ensureInitialized(call)) {
+                return;
+            }
+            String surveyId = call.getString("id");
+            IntercomComponentController.beforePresent(getContext());
+            runOnMainThread(call, () -> {
+                IntercomPresentTimer.begin("displaySurvey", prewarmer.isWarm());
+                sdk().presentSurvey(surveyId);
+                call.resolve();
+            });
+        } finally {
+            IntercomMetrics.endCall("displaySurvey", start);
+        }
+    }
+
+    @PluginMethod
+    public void prewarm(final PluginCall call) {
+        if (dispatch(call, () -> prewarm(call))) {
+            return;
+        }
+        long start = IntercomMetrics.beginCall("prewarm");
+        try {
+            // No deferral: prewarm initializes off the main thread, which is what deferred mode waits for
+            prewarmer.prewarm(warm -> {
+                if (!warm) {
+                    call.reject("Could not initialize Intercom for prewarm");
+                    return;
+                }
+                JSObject result = new JSObject();
+                result.put("durationMs", toMillis(prewarmer.getDurationNanos()));
+                result.put("classesLoaded", prewarmer.getLoadedClassCount());
+                call.resolve(result);
+            });
+        } finally {
+            IntercomMetrics.endCall("prewarm", start);
+        }
+    }
+
+    @PluginMethod
+    public void flushAggregates(PluginCall call) {
+        if (dispatch(call, () -> flushAggregates(call))) {
+            return;
+        }
+        long start = IntercomMetrics.beginCall("flushAggregates");
+        try {
+            if (deferUntilInitialized(call, () -> flushAggregates(call))) {
+                return;
+            }
+            if (!ensureInitialized(call)) {
+                return;
+            }
+            int events = eventAggregator != null ? eventAggregator.flush(this::sendSummary) : 0;
+            if (eventQueue != null) {
+                eventQueue.flush();
+            }
+            JSObject result = new JSObject();
+            result.put("events", events);
+            call.resolve(result);
+        } finally {
+            IntercomMetrics.endCall("flushAggregates", start);
+        }
+    }
+
+    @PluginMethod
+    public void getDiagnostics(PluginCall call) {
+        if (dispatch(call, () -> getDiagnostics(call))) {
+            return;
+        }
+        long start = IntercomMetrics.beginCall("getDiagnostics");
+        try {
+            JSArray errors = new JSArray();
+            for (IntercomDiagnostics.Entry entry : IntercomDiagnostics.snapshot()) {
+                JSObject error = new JSObject();
+                error.put("site", entry.site);
+                error.put("type", entry.type);
+                error.put("timestamp", entry.timestampMs);
+                errors.put(error);
+            }
+            JSObject result = new JSObject();
+            result.put("errors", errors);
+            result.put("recorded", IntercomDiagnostics.getRecordedCount());
+            result.put("overwritten", IntercomDiagnostics.getOverwrittenCount());
+            call.resolve(result);
+        } finally {
+            IntercomMetrics.endCall("getDiagnostics", start);
+        }
+    }
+
+    @PluginMethod
+    public void switchWorkspace(PluginCall call) {
+        if (dispatch(call, () -> switchWorkspace(call))) {
+            return;
+        }
+        long start = IntercomMetrics.beginCall("switchWorkspace");
+        try {
+            String appId = call.getString("appId");
+            if (appId == null) {
+                call.reject("appId is required");
+                return;
+            }
+            final Context context = getContext();
+            IntercomWorkspaces workspaces = IntercomWorkspaces.get(context);
+            if (workspaces.get(appId) == null) {
+                call.reject("Unknown Intercom workspace: " + appId);
+                return;
+            }
+            // No deferral: before initialization, switching only picks the workspace to initialize
+            long switchStart = System.nanoTime();
+            boolean switched;
+            // Holds off initialization by prewarm or deferred mode until the switch is done
+            synchronized (IntercomPlugin.class) {
+                try {
+                    switched = workspaces.switchTo(appId, isInitialized, workspaceClient(context));
+                } catch (RuntimeException e) {
+                    call.reject("Could not switch Intercom workspace: " + e.getMessage());
+                    return;
+                }
+            }
+            if (switched && unreadCountWatched) {
+                sdk().setUnreadCountListener(unreadCountStream);
+            }
+            JSObject result = new JSObject();
+            result.put("appId", appId);
+            result.put("switched", switched);
+            result.put("durationMs", toMillis(System.nanoTime() - switchStart));
+            call.resolve(result);
+        } finally {
+            IntercomMetrics.endCall("switchWorkspace", start);
+        }
+    }
+
+    @PluginMethod
+    public void batch(final PluginCall call) {
+        if (dispatch(call, () -> batch(call))) {
             return;
         }
-        String surveyId = call.getString("id");
-        Intercom.client().presentContent(new IntercomContent.Survey(surveyId));
-        call.resolve();
+        long start = IntercomMetrics.beginCall("batch");
+        try {
+            if (deferUntilInitialized(call, () -> batch(call))) {
+                return;
+            }
+            // Initialize once up front; every operation then takes the initialized fast path
+            if (!ensureInitialized(call)) {
+                return;
+            }
+            JSArray array = call.getArray("operations");
+            if (array == null) {
+                call.reject("Missing operations");
+                return;
+            }
+            List<IntercomBatch.Operation> operations = new ArrayList<>(array.length());
+            try {
+                for (int i = 0; i < array.length(); i++) {
+                    JSONObject operation = array.getJSONObject(i);
+                    JSONObject options = operation.optJSONObject("options");
+                    operations.add(
+                        new IntercomBatch.Operation(
+                            operation.getString("method"),
+                            options != null ? JSObject.fromJSONObject(options) : null
+                        )
+                    );
+                }
+            } catch (JSONException e) {
+                call.reject("Invalid batch operation: " + e.getMessage());
+                return;
+            }
+
+            new IntercomBatch(
+                operations,
+                IntercomBatch.Policy.from(call.getString("policy")),
+                new IntercomBatch.Dispatcher() {
+                    @Override
+                    public boolean dispatch(String method, PluginCall operationCall) {
+                        return dispatchBatchOperation(method, operationCall);
+                    }
+
+                    @Override
+                    public boolean isBuffered(String method) {
+                        return "updateUser".equals(method) || "setCustomAttributes".equals(method) || "logEvent".equals(method);
+                    }
+
+                    @Override
+                    public void flush() {
+                        attributeBuffer.flush();
+                    }
+                },
+                results -> {
+                    JSArray resultArray = new JSArray();
+                    for (IntercomBatch.Result result : results) {
+                        JSObject entry = new JSObject();
+                        entry.put("method", result.method);
+                        entry.put("status", result.status);
+                        if (result.error != null) {
+                            entry.put("error", result.error);
+                        }
+                        if (result.data != null) {
+                            entry.put("data", result.data);
+                        }
+                        resultArray.put(entry);
+                    }
+                    JSObject response = new JSObject();
+                    response.put("results", resultArray);
+                    call.resolve(response);
+                }
+            ).run();
+        } finally {
+            IntercomMetrics.endCall("batch", start);
+        }
+    }
+
+    private boolean dispatchBatchOperation(String method, PluginCall call) {
+        switch (method) {
+            case "loginIdentifiedUser":
+                loginIdentifiedUser(call);
+                return true;
+            case "loginUnidentifiedUser":
+                loginUnidentifiedUser(call);
+                return true;
+            case "updateUser":
+                updateUser(call);
+                return true;
+            case "setCustomAttributes":
+                setCustomAttributes(call);
+                return true;
+            case "logout":
+                logout(call);
+                return true;
+            case "logEvent":
+                logEvent(call);
+                return true;
+            case "displayMessenger":
+                displayMessenger(call);
+                return true;
+            case "displayMessageComposer":
+                displayMessageComposer(call);
+                return true;
+            case "displayHelpCenter":
+                displayHelpCenter(call);
+                return true;
+            case "hideMessenger":
+                hideMessenger(call);
+                return true;
+            case "displayLauncher":
+                displayLauncher(call);
+                return true;
+            case "hideLauncher":
+                hideLauncher(call);
+                return true;
+            case "displayArticle":
+                displayArticle(call);
+                return true;
+            case "displaySurvey":
+                displaySurvey(call);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @PluginMethod
+    public void getMetrics(PluginCall call) {
+        if (dispatch(call, () -> getMetrics(call))) {
+            return;
+        }
+        long start = IntercomMetrics.beginCall("getMetrics");
+        try {
+            JSObject eventQueueMetrics = new JSObject();
+            eventQueueMetrics.put("depth", eventQueue != null ? eventQueue.getDepth() : 0);
+            eventQueueMetrics.put("enqueued", eventQueue != null ? eventQueue.getEnqueuedCount() : 0);
+            eventQueueMetrics.put("coalesced", eventQueue != null ? eventQueue.getCoalescedCount() : 0);
+            eventQueueMetrics.put("dropped", eventQueue != null ? eventQueue.getDroppedCount() : 0);
+            eventQueueMetrics.put("dispatched", eventQueue != null ? eventQueue.getDispatchedCount() : 0);
+            eventQueueMetrics.put("failed", eventQueue != null ? eventQueue.getFailedCount() : 0);
+
+            JSObject attributeCacheMetrics = new JSObject();
+            attributeCacheMetrics.put("hits", attributeCache != null ? attributeCache.getHitCount() : 0);
+            attributeCacheMetrics.put("misses", attributeCache != null ? attributeCache.getMissCount() : 0);
+
+            JSObject journalMetrics = new JSObject();
+            journalMetrics.put("appended", journal != null ? journal.getAppendedCount() : 0);
+            journalMetrics.put("replayed", journal != null ? journal.getReplayedCount() : 0);
+            journalMetrics.put("dropped", journal != null ? journal.getDroppedCount() : 0);
+            journalMetrics.put("backlog", journal != null ? journal.getBacklogCount() : 0);
+
+            JSObject startupMetrics = new JSObject();
+            startupMetrics.put("processCheckMs", toMillis(IntercomStartupTimings.getNanos(IntercomStartupTimings.Phase.PROCESS_CHECK)));
+            startupMetrics.put("configReadMs", toMillis(IntercomStartupTimings.getNanos(IntercomStartupTimings.Phase.CONFIG_READ)));
+            startupMetrics.put("sdkInitMs", toMillis(IntercomStartupTimings.getNanos(IntercomStartupTimings.Phase.SDK_INIT)));
+            startupMetrics.put("componentToggleMs", toMillis(IntercomStartupTimings.getNanos(IntercomStartupTimings.Phase.COMPONENT_TOGGLE)));
+            startupMetrics.put("providerMainThreadMs", toMillis(IntercomEarlyInit.getProviderMainThreadNanos()));
+            startupMetrics.put("backgroundInitMs", toMillis(IntercomEarlyInit.getBackgroundInitNanos()));
+            startupMetrics.put("barrierWaitMs", toMillis(IntercomEarlyInit.getBarrierWaitNanos()));
+
+            JSObject prewarmMetrics = new JSObject();
+            prewarmMetrics.put("warm", prewarmer != null && prewarmer.isWarm());
+            prewarmMetrics.put("durationMs", prewarmer != null ? toMillis(prewarmer.getDurationNanos()) : 0);
+            prewarmMetrics.put("classesLoaded", prewarmer != null ? prewarmer.getLoadedClassCount() : 0);
+            prewarmMetrics.put("classesMissing", prewarmer != null ? prewarmer.getMissingClassCount() : 0);
+
+            JSObject samplingMetrics = new JSObject();
+            samplingMetrics.put("passed", eventSampler != null ? eventSampler.getPassedCount() : 0);
+            samplingMetrics.put("dropped", eventSampler != null ? eventSampler.getDroppedCount() : 0);
+            samplingMetrics.put("summaries", eventSampler != null ? eventSampler.getSummaryCount() : 0);
+
+            JSObject aggregationMetrics = new JSObject();
+            aggregationMetrics.put("aggregated", eventAggregator != null ? eventAggregator.getAggregatedCount() : 0);
+            aggregationMetrics.put("summaries", eventAggregator != null ? eventAggregator.getSummaryCount() : 0);
+            aggregationMetrics.put("pending", eventAggregator != null ? eventAggregator.getPendingCount() : 0);
+
+            JSObject callQueueMetrics = new JSObject();
+            callQueueMetrics.put("depth", callDispatcher != null ? callDispatcher.getDepth() : 0);
+            callQueueMetrics.put("maxDepth", callDispatcher != null ? callDispatcher.getMaxDepth() : 0);
+            callQueueMetrics.put("rejected", callDispatcher != null ? callDispatcher.getRejectedCount() : 0);
+            callQueueMetrics.put("wait", toJSObject(callDispatcher != null ? callDispatcher.getWaitTimes() : new IntercomMetrics.Histogram()));
+
+            JSObject identityMetrics = new JSObject();
+            identityMetrics.put("logins", identity != null ? identity.getLoginCount() : 0);
+            identityMetrics.put("skipped", identity != null ? identity.getSkippedCount() : 0);
+            identityMetrics.put("collapsed", identity != null ? identity.getCollapsedCount() : 0);
+            identityMetrics.put("switches", identity != null ? identity.getSwitchCount() : 0);
+
+            IntercomPushRouter pushRouter = IntercomPushIntake.peek();
+            JSObject pushMetrics = new JSObject();
+            pushMetrics.put("received", pushRouter != null ? pushRouter.getReceivedCount() : 0);
+            pushMetrics.put("forwarded", pushRouter != null ? pushRouter.getForwardedCount() : 0);
+            pushMetrics.put("queued", pushRouter != null ? pushRouter.getQueuedCount() : 0);
+            pushMetrics.put("replayed", pushRouter != null ? pushRouter.getReplayedCount() : 0);
+            pushMetrics.put("duplicates", pushRouter != null ? pushRouter.getDuplicateCount() : 0);
+            pushMetrics.put("dropped", pushRouter != null ? pushRouter.getDroppedCount() : 0);
+            pushMetrics.put("pending", pushRouter != null ? pushRouter.getPendingCount() : 0);
+            pushMetrics.put(
+                "replayDelay",
+                toJSObject(pushRouter != null ? pushRouter.getReplayDelays() : new IntercomMetrics.Histogram())
+            );
+
+            JSObject unreadCountMetrics = new JSObject();
+            unreadCountMetrics.put("updates", unreadCountStream != null ? unreadCountStream.getUpdateCount() : 0);
+            unreadCountMetrics.put("emitted", unreadCountStream != null ? unreadCountStream.getEmittedCount() : 0);
+            unreadCountMetrics.put("coalesced", unreadCountStream != null ? unreadCountStream.getCoalescedCount() : 0);
+            unreadCountMetrics.put("suppressed", unreadCountStream != null ? unreadCountStream.getSuppressedCount() : 0);
+
+            IntercomWorkspaces workspaces = IntercomWorkspaces.get(getContext());
+            IntercomWorkspaces.Workspace activeWorkspace = workspaces.getActive();
+            JSObject workspaceMetrics = new JSObject();
+            workspaceMetrics.put("active", activeWorkspace != null ? activeWorkspace.appId : null);
+            workspaceMetrics.put("switches", workspaces.getSwitchCount());
+            workspaceMetrics.put("switch", toJSObject(workspaces.getSwitchTimes()));
+            workspaceMetrics.put("discardedRecords", workspaces.getDiscardedRecordCount());
+
+            JSObject result = new JSObject();
+            result.put("callQueue", callQueueMetrics);
+            result.put("eventQueue", eventQueueMetrics);
+            result.put("attributeCache", attributeCacheMetrics);
+            result.put("identity", identityMetrics);
+            result.put("journal", journalMetrics);
+            result.put("push", pushMetrics);
+            result.put("unreadCount", unreadCountMetrics);
+            result.put("workspaces", workspaceMetrics);
+            result.put("eventSampling", samplingMetrics);
+            result.put("eventAggregation", aggregationMetrics);
+            result.put("startup", startupMetrics);
+            result.put("prewarm", prewarmMetrics);
+            result.put("calls", toJSObject(IntercomMetrics.calls, null));
+            result.put("callbacks", toJSObject(IntercomMetrics.callbacks, IntercomMetrics.callbackFailures));
+            result.put("init", toJSObject(IntercomMetrics.init, null));
+            result.put("present", toJSObject(IntercomMetrics.present, null));
+            JSObject errors = new JSObject();
+            for (Map.Entry<String, AtomicLong> entry : IntercomMetrics.suppressedErrors.entrySet()) {
+                errors.put(entry.getKey(), entry.getValue().get());
+            }
+            result.put("suppressedErrors", errors);
+            JSObject errorTypes = new JSObject();
+            for (Map.Entry<String, AtomicLong> entry : IntercomMetrics.suppressedErrorTypes.entrySet()) {
+                errorTypes.put(entry.getKey(), entry.getValue().get());
+            }
+            result.put("suppressedErrorTypes", errorTypes);
+            JSObject diagnosticsMetrics = new JSObject();
+            diagnosticsMetrics.put("recorded", IntercomDiagnostics.getRecordedCount());
+            diagnosticsMetrics.put("overwritten", IntercomDiagnostics.getOverwrittenCount());
+            result.put("diagnostics", diagnosticsMetrics);
+            call.resolve(result);
+        } finally {
+            IntercomMetrics.endCall("getMetrics", start);
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    static void configureMetrics(IntercomConfig config) {
+        JSONObject metrics = config.getObject("metrics");
+        IntercomMetrics.configure(
+            metrics == null || metrics.optBoolean("enabled", true),
+            metrics != null && metrics.optBoolean("trace", false)
+        );
+        JSONObject diagnostics = config.getObject("diagnostics");
+        IntercomDiagnostics.configure(
+            diagnostics != null ? diagnostics.optInt("capacity", IntercomDiagnostics.DEFAULT_CAPACITY) : IntercomDiagnostics.DEFAULT_CAPACITY
+        );
+    }
+
+    private static JSObject toJSObject(IntercomMetrics.Histogram histogram) {
+        JSObject snapshot = new JSObject();
+        snapshot.put("count", histogram.getCount());
+        snapshot.put("totalMs", toMillis(histogram.getTotalNanos()));
+        snapshot.put("maxMs", toMillis(histogram.getMaxNanos()));
+        snapshot.put("p50Ms", toMillis(histogram.getPercentileNanos(0.5)));
+        snapshot.put("p90Ms", toMillis(histogram.getPercentileNanos(0.9)));
+        snapshot.put("p99Ms", toMillis(histogram.getPercentileNanos(0.99)));
+        return snapshot;
+    }
+
+    private static JSObject toJSObject(Map<String, IntercomMetrics.Histogram> histograms, Map<String, AtomicLong> failures) {
+        JSObject result = new JSObject();
+        for (Map.Entry<String, IntercomMetrics.Histogram> entry : histograms.entrySet()) {
+            JSObject snapshot = toJSObject(entry.getValue());
+            if (failures != null) {
+                AtomicLong failed = failures.get(entry.getKey());
+                snapshot.put("failures", failed != null ? failed.get() : 0);
+            }
+            result.put(entry.getKey(), snapshot);
+        }
+        return result;
+    }
+
+    /** Logs a sampling or aggregation summary, bypassing both; keeps the counts while Intercom isn't ready. */
+    private boolean sendSummary(String name, Map<String, Object> metadata) {
+        if (!isInitialized) {
+            return false;
+        }
+        if (eventQueue != null) {
+            return eventQueue.enqueue(name, metadata);
+        }
+        sdk().logEvent(name, metadata);
+        return true;
+    }
+
+    /**
+     * Whether an event or attribute update must go to the journal: the SDK can't be initialized yet,
+     * the device is offline, or older journaled records still have to be delivered first.
+     */
+    private boolean shouldJournal() {
+        if (journal == null) {
+            return false;
+        }
+        return !ensureInitialized(null) || !connectivity.isOnline() || journal.hasBacklog();
+    }
+
+    /**
+     * Like {@link #ensureInitialized}, but with a journal an SDK that isn't up yet doesn't fail the
+     * call: it is journaled and delivered later. Without a workspace to deliver to, the call is
+     * rejected with "Missing Intercom configuration" as it would be without a journal.
+     */
+    private boolean ensureInitializedOrJournaled(PluginCall call) {
+        if (journal == null) {
+            return ensureInitialized(call);
+        }
+        if (isInitialized || configuredWorkspace(getContext()) != null) {
+            return true;
+        }
+        call.reject("Missing Intercom configuration");
+        return false;
+    }
+
+    /**
+     * Journals {@code record}. When it was journaled only to stay behind older records, a replay is
+     * scheduled right away; otherwise it waits for initialization or the network.
+     */
+    private void appendToJournal(JSONObject record) {
+        journal.append(record);
+        if (isInitialized && connectivity.isOnline()) {
+            replayJournal();
+        }
+    }
+
+    private void replayJournal() {
+        if (journal == null || !isInitialized) {
+            return;
+        }
+        journal.replay(this::replayRecord);
+    }
+
+    /** Runs on the journal executor; returning {@code false} keeps the record for a later replay. */
+    private boolean replayRecord(JSONObject record) {
+        if (!isInitialized || !connectivity.isOnline()) {
+            return false;
+        }
+        String appId = record.optString("appId", null);
+        if (appId != null) {
+            IntercomWorkspaces workspaces = IntercomWorkspaces.get(getContext());
+            IntercomWorkspaces.Workspace active = workspaces.getActive();
+            if (active == null || !appId.equals(active.appId)) {
+                // Written before a switch; sending it now would file it under the wrong workspace
+                workspaces.onRecordDiscarded();
+                return true;
+            }
+        }
+        Map<String, Object> standard;
+        Map<String, Object> custom;
+        try {
+            if ("event".equals(record.optString("type"))) {
+                String name = record.optString("name");
+                Map<String, Object> metadata = jsonConverter.toMap(record.optJSONObject("metadata"));
+                if (eventQueue != null) {
+                    // A full queue means the SDK is falling behind; try again on the next replay
+                    return eventQueue.enqueue(name, metadata);
+                }
+                sdk().logEvent(name, metadata);
+                return true;
+            }
+            standard = jsonConverter.toMap(record.optJSONObject("standard"));
+            custom = jsonConverter.toMap(record.optJSONObject("custom"));
+        } catch (RuntimeException e) {
+            // Records were converted once already; one that no longer converts is dropped
+            return true;
+        }
+        attributeBuffer.add(
+            standard,
+            custom,
+            new IntercomAttributeBuffer.Callback() {
+                @Override
+                public void onSuccess() {}
+
+                @Override
+                public void onFailure(String message) {}
+            }
+        );
+        return true;
     }
 
+    /**
+     * Hands a plugin call to the ordered call thread. Returns {@code true} when the call was queued
+     * (or rejected because the queue is full); {@code false} means run it inline, either because
+     * dispatching is off or because this already is the dispatched run.
+     */
+    private boolean dispatch(final PluginCall call, final Runnable method) {
+        if (callDispatcher == null || callDispatcher.isDispatching()) {
+            return false;
+        }
+        boolean queued = callDispatcher.submit(() -> {
+            try {
+                method.run();
+            } catch (Throwable e) {
+                // Off the bridge thread nothing else turns an exception into a rejection
+                IntercomMetrics.suppressed("plugin.dispatch", e);
+                call.reject("Intercom error : " + e.getMessage());
+            }
+        });
+        if (!queued) {
+            call.reject("Intercom call queue is full");
+        }
+        return true;
+    }
+
+    /** Runs SDK UI work on the main thread, ahead of the next dispatched call. */
+    private void runOnMainThread(final PluginCall call, final Runnable work) {
+        Runnable guarded = () -> {
+            try {
+                work.run();
+            } catch (RuntimeException e) {
+                call.reject("Intercom error : " + e.getMessage());
+            }
+        };
+        if (callDispatcher != null) {
+            callDispatcher.runOnMain(guarded);
+        } else {
+            guarded.run();
+        }
+    }
+
+    /**
+     * In deferred mode, parks a call made before initialization instead of initializing inline.
+     * Returns {@code true} when the call was queued (or rejected because the queue is full).
+     */
+    private boolean deferUntilInitialized(final PluginCall call, final Runnable replay) {
+        if (pendingCalls == null) {
+            return false;
+        }
+        Runnable parked = () -> {
+            try {
+                replay.run();
+            } catch (Throwable e) {
+                // Nobody else holds the call once it is parked; leaving it unsettled would hang the JS side
+                IntercomMetrics.suppressed("pendingCalls.call", e);
+                call.reject("Intercom error : " + e.getMessage());
+            }
+        };
+        switch (pendingCalls.offer(parked)) {
+            case QUEUED:
+                return true;
+            case FULL:
+                call.reject("Intercom pre-initialization queue is full");
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Initializes Intercom on the main thread at the first looper idle (or after the first frame),
+     * and at the latest after {@code maxDelayMs}, then drains the parked calls on the call thread.
+     * When the asynchronous early init is still running at that point, the drain waits for it
+     * instead, without blocking the main thread.
+     */
+    private void scheduleDeferredInit(IntercomPendingCalls.Settings settings) {
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        final AtomicBoolean fired = new AtomicBoolean();
+        final Runnable fire = () -> {
+            if (!fired.compareAndSet(false, true)) {
+                return;
+            }
+            // Failures surface when each parked call re-checks initialization. Draining on the call
+            // thread lets the parked calls run inline, in order with everything queued after them.
+            final Runnable drain = () -> {
+                if (callDispatcher == null || !callDispatcher.submit(pendingCalls::drain)) {
+                    getBridge().execute(pendingCalls::drain);
+                }
+            };
+            if (IntercomEarlyInit.isPending()) {
+                // The SDK is already being initialized in the background; waiting for it here would
+                // block the main thread at the very point deferral is meant to keep free
+                IntercomEarlyInit.whenDone(drain);
+                return;
+            }
+            ensureInitialized(null);
+            drain.run();
+        };
+        final boolean afterFirstFrame = "firstFrame".equals(settings.trigger);
+        mainHandler.post(() -> {
+            if (afterFirstFrame) {
+                // Post from the frame callback so init runs once the frame has been drawn
+                Choreographer.getInstance().postFrameCallback(frameTimeNanos -> mainHandler.post(fire));
+            } else {
+                Looper.myQueue().addIdleHandler(() -> {
+                    fire.run();
+                    return false;
+                });
+            }
+        });
+        mainHandler.postDelayed(fire, settings.maxDelayMs);
+    }
+
+    /** Runs on the background executor for {@link IntercomPrewarmer}. */
+    private boolean initializeForPrewarm() {
+        if (!ensureInitialized(null)) {
+            return false;
+        }
+        // Cached states make this free when initialization already enabled them
+        IntercomComponentController.enableAutoComponents(getContext());
+        return true;
+    }
+
+    /** Prewarms at the first main-looper idle after {@code delayMs}. */
+    private void schedulePrewarm(long delayMs) {
+        new Handler(Looper.getMainLooper()).postDelayed(
+            () ->
+                Looper.myQueue().addIdleHandler(() -> {
+                    prewarmer.prewarm(null);
+                    return false;
+                }),
+            delayMs
+        );
+    }
+
+    private IntercomUnreadCountStream createUnreadCountStream(final int windowFrames) {
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        return new IntercomUnreadCountStream(
+            flush -> mainHandler.post(() -> runAfterFrames(flush, windowFrames)),
+            new IntercomUnreadCountStream.Sink() {
+                @Override
+                public boolean isListening() {
+                    return hasListeners(IntercomUnreadCountStream.EVENT);
+                }
+
+                @Override
+                public void emit(int count) {
+                    JSObject data = new JSObject();
+                    data.put("count", count);
+                    notifyListeners(IntercomUnreadCountStream.EVENT, data);
+                }
+            }
+        );
+    }
+
+    /** Runs {@code work} on the main thread once {@code frames} frames have been drawn; call it from there. */
+    private static void runAfterFrames(final Runnable work, final int frames) {
+        Choreographer.getInstance().postFrameCallback(frameTimeNanos -> {
+            if (frames > 1) {
+                runAfterFrames(work, frames - 1);
+            } else {
+                work.run();
+            }
+        });
+    }
+
+    /** Registers the unread count stream with the SDK once it is initialized. */
+    private void watchUnreadCount() {
+        if (unreadCountStream == null || unreadCountWatched) {
+            return;
+        }
+        synchronized (this) {
+            if (unreadCountWatched) {
+                return;
+            }
+            unreadCountWatched = true;
+        }
+        sdk().setUnreadCountListener(unreadCountStream);
+    }
+
+    private IntercomWorkspaces.Client workspaceClient(final Context context) {
+        return new IntercomWorkspaces.Client() {
+            @Override
+            public void leave(IntercomWorkspaces.Workspace from) {
+                // Buffered work belongs to the workspace being left: send it before the SDK resets
+                flushBeforeLogout();
+            }
+
+            @Override
+            public void logout() {
+                flushBeforeLogout();
+                sdk().logout();
+                identity().onLogout();
+                if (attributeCache != null) {
+                    attributeCache.invalidate();
+                }
+                if (eventSampler != null) {
+                    eventSampler.resetSession();
+                }
+            }
+
+            @Override
+            public void initialize(IntercomWorkspaces.Workspace to) {
+                sdk().initialize((Application) context.getApplicationContext(), to.apiKey, to.appId);
+            }
+        };
+    }
+
+    /** Sends the summaries, queued events and attribute updates of the user about to be logged out. */
+    private void flushBeforeLogout() {
+        if (eventSampler != null) {
+            eventSampler.emitSummary(this::sendSummary);
+        }
+        if (eventAggregator != null) {
+            eventAggregator.flush(this::sendSummary);
+        }
+        tracker.flushBeforeUserChange(USER_CHANGE_FLUSH_TIMEOUT_MS);
+    }
+
+    /** Marks {@code record} with its workspace when there are several, so it's never replayed into another. */
+    private void tagWorkspace(JSONObject record) throws JSONException {
+        IntercomWorkspaces workspaces = IntercomWorkspaces.get(getContext());
+        IntercomWorkspaces.Workspace workspace = workspaces.initial();
+        if (workspaces.isMultiple() && workspace != null) {
+            record.put("appId", workspace.appId);
+        }
+    }
+
+    private static IntercomSdk sdk() {
+        return IntercomSdkLoader.get();
+    }
+
+    /**
+     * The identity of the active workspace, created on first use so the SDK facade isn't loaded
+     * with the plugin. Each workspace keeps its own, so a switch never skips a login.
+     */
+    private synchronized IntercomIdentity identity() {
+        IntercomWorkspaces workspaces = IntercomWorkspaces.get(getContext());
+        IntercomWorkspaces.Workspace workspace = workspaces.getActive();
+        String key = workspace == null || workspaces.isDefault(workspace) ? null : workspace.appId;
+        IntercomIdentity current = identities.get(key);
+        if (current == null) {
+            current = new IntercomIdentity(
+                IntercomIdentity.sharedPreferences(getContext(), key),
+                sdk(),
+                IntercomConfig.get(getContext()).getBoolean("identityFastPath", true)
+            );
+            identities.put(key, current);
+        }
+        identity = current;
+        return current;
+    }
+
+    /** Also attaches the SDK listeners, whichever path initialized the SDK. */
     private boolean ensureInitialized(PluginCall call) {
+        if (!initializeSdk(call)) {
+            return false;
+        }
+        watchUnreadCount();
+        return true;
+    }
+
+    private boolean initializeSdk(PluginCall call) {
         if (isInitialized) {
             return true;
         }
@@ -339,27 +1369,76 @@ public class IntercomPlugin extends Plugin {
             return false;
         }
 
-        String apiKey = getConfig().getString("android_apiKey", null);
-        String appId = getConfig().getString("appId", getConfig().getString("androidAppId", null));
+        // Async early init may still be running on the background executor
+        IntercomConfig config = IntercomConfig.get(context);
+        if (IntercomEarlyInit.isPending()) {
+            long timeoutMs = config.getLong("earlyInitTimeoutMs", IntercomInitProvider.DEFAULT_EARLY_INIT_TIMEOUT_MS);
+            if (!IntercomEarlyInit.await(timeoutMs)) {
+                if (call != null) {
+                    call.reject("Intercom early initialization is still in progress");
+                }
+                return false;
+            }
+            if (isInitialized) {
+                return true;
+            }
+        }
 
-        if (apiKey == null || appId == null) {
+        // Reuse the snapshot already parsed by IntercomInitProvider, in the active workspace; fall
+        // back to the bridge config for apps that hand Capacitor a config object instead of the
+        // bundled asset.
+        IntercomWorkspaces workspaces = IntercomWorkspaces.get(context);
+        IntercomWorkspaces.Workspace workspace = configuredWorkspace(context);
+        if (workspace == null) {
             if (call != null) {
                 call.reject("Missing Intercom configuration");
             }
             return false;
         }
 
-        try {
-            Application application = (Application) context.getApplicationContext();
-            Intercom.initialize(application, apiKey, appId);
-            isInitialized = true;
-            IntercomComponentController.enableAutoComponents(context);
-            return true;
-        } catch (Exception e) {
-            if (call != null) {
-                call.reject("Could not initialize Intercom: " + e.getMessage());
+        // Prewarm may be initializing on the background executor at the same time
+        synchronized (IntercomPlugin.class) {
+            if (isInitialized) {
+                return true;
+            }
+            // A switch may have picked another workspace while this thread waited for the lock
+            IntercomWorkspaces.Workspace active = workspaces.getActive();
+            if (active != null) {
+                workspace = active;
+            }
+            try {
+                long start = System.nanoTime();
+                Application application = (Application) context.getApplicationContext();
+                sdk().initialize(application, workspace.apiKey, workspace.appId);
+                workspaces.onInitialized(workspace);
+                isInitialized = true;
+                IntercomMetrics.record(IntercomMetrics.init, "pluginSdkInit", System.nanoTime() - start);
+                start = System.nanoTime();
+                IntercomComponentController.enableAutoComponents(context);
+                IntercomMetrics.record(IntercomMetrics.init, "pluginComponentToggle", System.nanoTime() - start);
+            } catch (Exception e) {
+                IntercomMetrics.suppressed("plugin.initialize", e);
+                if (call != null) {
+                    call.reject("Could not initialize Intercom: " + e.getMessage());
+                }
+                return false;
+            }
+        }
+        replayJournal();
+        IntercomPushIntake.onSdkInitialized(context);
+        return true;
+    }
+
+    /** The workspace to initialize with, or {@code null} when the app configures none. */
+    private IntercomWorkspaces.Workspace configuredWorkspace(Context context) {
+        IntercomWorkspaces.Workspace workspace = IntercomWorkspaces.get(context).initial();
+        if (workspace == null) {
+            String apiKey = getConfig().getString("android_apiKey", null);
+            String appId = getConfig().getString("appId", getConfig().getString("androidAppId", null));
+            if (apiKey != null && appId != null) {
+                workspace = new IntercomWorkspaces.Workspace(appId, apiKey);
             }
-            return false;
         }
+        return workspace;
     }
 }
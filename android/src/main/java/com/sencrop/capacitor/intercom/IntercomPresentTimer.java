@@ -0,0 +1,61 @@
+package com.sencrop.capacitor.intercom;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures time-to-present: from a display method call to the first frame of the Intercom activity
+ * it starts. Samples go to {@link IntercomMetrics#present} as {@code <method>.cold} for the first
+ * presentation in a process that wasn't prewarmed, and {@code <method>.warm} otherwise.
+ */
+final class IntercomPresentTimer {
+
+    /** A presentation that hasn't shown up by then is assumed to have failed, not to be slow. */
+    static final long EXPIRY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private static final class Pending {
+
+        final String method;
+        final long start;
+        final boolean warm;
+
+        Pending(String method, long start, boolean warm) {
+            this.method = method;
+            this.start = start;
+            this.warm = warm;
+        }
+    }
+
+    private static volatile Pending pending;
+    private static volatile boolean presented;
+
+    private IntercomPresentTimer() {}
+
+    /** Call right before asking the SDK to present; {@code prewarmed} is whether a prewarm completed. */
+    static void begin(String method, boolean prewarmed) {
+        pending = new Pending(method, System.nanoTime(), prewarmed || presented);
+    }
+
+    static boolean isPending() {
+        return pending != null;
+    }
+
+    /** Call once an Intercom activity has drawn its first frame; see {@link IntercomPresentWatcher}. */
+    static void onPresented() {
+        Pending current = pending;
+        pending = null;
+        presented = true;
+        if (current == null) {
+            return;
+        }
+        long nanos = System.nanoTime() - current.start;
+        if (nanos > EXPIRY_NANOS) {
+            return;
+        }
+        IntercomMetrics.record(IntercomMetrics.present, current.method + (current.warm ? ".warm" : ".cold"), nanos);
+    }
+
+    static void resetForTesting() {
+        pending = null;
+        presented = false;
+    }
+}
@@ -0,0 +1,49 @@
+package com.sencrop.capacitor.intercom;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+
+/** Reports the first frame of each Intercom activity to {@link IntercomPresentTimer}. */
+final class IntercomPresentWatcher implements Application.ActivityLifecycleCallbacks {
+
+    private static boolean registered;
+
+    private IntercomPresentWatcher() {}
+
+    /** Starts watching for Intercom activities; idempotent. */
+    static synchronized void register(Application application) {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        application.registerActivityLifecycleCallbacks(new IntercomPresentWatcher());
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+        if (!IntercomPresentTimer.isPending() || !activity.getClass().getName().startsWith("io.intercom.android.sdk.")) {
+            return;
+        }
+        // Runs after the traversal scheduled by the resume, i.e. once the first frame is drawn
+        activity.getWindow().getDecorView().post(IntercomPresentTimer::onPresented);
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {}
+
+    @Override
+    public void onActivityStarted(Activity activity) {}
+
+    @Override
+    public void onActivityPaused(Activity activity) {}
+
+    @Override
+    public void onActivityStopped(Activity activity) {}
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {}
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {}
+}
@@ -0,0 +1,167 @@
+package com.sencrop.capacitor.intercom;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Pays the first-presentation costs of the Intercom UI ahead of time: SDK initialization, enabling
+ * the SDK activities, and loading and initializing the classes the messenger needs. Runs on the
+ * background executor; concurrent requests share one run, and a completed run is not repeated.
+ */
+final class IntercomPrewarmer {
+
+    /** SDK activities the display methods start, plus the UI toolkit classes they pull in. */
+    static final String[] DEFAULT_CLASSES = {
+        "io.intercom.android.sdk.m5.IntercomRootActivity",
+        "io.intercom.android.sdk.helpcenter.articles.IntercomArticleActivity",
+        "io.intercom.android.sdk.activities.IntercomPostActivity",
+        "androidx.compose.ui.platform.ComposeView",
+        "androidx.compose.runtime.Recomposer",
+    };
+
+    static final class Settings {
+
+        /** Prewarm at the first main-looper idle after the plugin loads. */
+        final boolean auto;
+        /** Extra wait before looking for the idle point, so prewarm stays clear of app startup. */
+        final long delayMs;
+        final List<String> classes;
+
+        Settings(boolean auto, long delayMs, List<String> classes) {
+            this.auto = auto;
+            this.delayMs = Math.max(0, delayMs);
+            this.classes = classes;
+        }
+
+        /** Reads {@code plugins.Intercom.prewarm}; every field is optional. */
+        static Settings from(JSONObject json) {
+            if (json == null) {
+                json = new JSONObject();
+            }
+            List<String> classes = new ArrayList<>(Arrays.asList(DEFAULT_CLASSES));
+            JSONArray extra = json.optJSONArray("classes");
+            if (extra != null) {
+                for (int i = 0; i < extra.length(); i++) {
+                    String name = extra.optString(i, null);
+                    if (name != null && !classes.contains(name)) {
+                        classes.add(name);
+                    }
+                }
+            }
+            return new Settings(json.optBoolean("auto", false), json.optLong("delayMs", 0), classes);
+        }
+    }
+
+    interface Initializer {
+        /** Initializes the SDK and enables its components; returns whether Intercom is usable. */
+        boolean initialize() throws Exception;
+    }
+
+    interface Listener {
+        void onComplete(boolean warm);
+    }
+
+    private final Executor executor;
+    private final ClassLoader classLoader;
+    private final List<String> classes;
+    private final Initializer initializer;
+
+    // Guarded by this
+    private boolean running;
+    private boolean warm;
+    private final List<Listener> waiting = new ArrayList<>();
+
+    private volatile long durationNanos;
+    private volatile int loadedClasses;
+    private volatile int missingClasses;
+
+    IntercomPrewarmer(Executor executor, ClassLoader classLoader, List<String> classes, Initializer initializer) {
+        this.executor = executor;
+        this.classLoader = classLoader;
+        this.classes = classes;
+        this.initializer = initializer;
+    }
+
+    /** Starts a prewarm unless one is running or has completed; {@code listener} may be null. */
+    void prewarm(Listener listener) {
+        synchronized (this) {
+            if (warm) {
+                if (listener != null) {
+                    listener.onComplete(true);
+                }
+                return;
+            }
+            if (listener != null) {
+                waiting.add(listener);
+            }
+            if (running) {
+                return;
+            }
+            running = true;
+        }
+        executor.execute(this::run);
+    }
+
+    synchronized boolean isWarm() {
+        return warm;
+    }
+
+    long getDurationNanos() {
+        return durationNanos;
+    }
+
+    int getLoadedClassCount() {
+        return loadedClasses;
+    }
+
+    /** Classes from the list that aren't in this build of the SDK; they're skipped, not retried. */
+    int getMissingClassCount() {
+        return missingClasses;
+    }
+
+    private void run() {
+        long start = System.nanoTime();
+        boolean initialized = false;
+        try {
+            initialized = initializer.initialize();
+        } catch (Throwable e) {
+            IntercomMetrics.suppressed("prewarm.initialize", e);
+        }
+        if (initialized) {
+            loadClasses();
+            durationNanos = System.nanoTime() - start;
+            IntercomMetrics.record(IntercomMetrics.init, "prewarm", durationNanos);
+        }
+        List<Listener> listeners;
+        synchronized (this) {
+            running = false;
+            // A failed run leaves the prewarmer cold so a later request can try again
+            warm = initialized;
+            listeners = new ArrayList<>(waiting);
+            waiting.clear();
+        }
+        for (Listener listener : listeners) {
+            listener.onComplete(initialized);
+        }
+    }
+
+    private void loadClasses() {
+        int loaded = 0;
+        int missing = 0;
+        for (String name : classes) {
+            try {
+                // Initialize too: static initializers are a large part of the first-launch cost
+                Class.forName(name, true, classLoader);
+                loaded++;
+            } catch (ClassNotFoundException | LinkageError e) {
+                missing++;
+            }
+        }
+        loadedClasses = loaded;
+        missingClasses = missing;
+    }
+}
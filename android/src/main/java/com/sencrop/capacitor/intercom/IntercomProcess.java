@@ -0,0 +1,96 @@
+package com.sencrop.capacitor.intercom;
+
+import android.app.ActivityManager;
+import android.app.Application;
+import android.content.Context;
+import android.os.Build;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Identifies the current process without listing every running process over binder. Uses
+ * {@code Application.getProcessName()} on API 28+, {@code /proc/self/cmdline} before that, and
+ * {@code ActivityManager.getRunningAppProcesses()} only as a last resort. The answer never changes
+ * for a process, so it is computed once.
+ */
+final class IntercomProcess {
+
+    private static volatile String processName;
+
+    private IntercomProcess() {}
+
+    /** Defaults to {@code true} when the process name can't be determined. */
+    static boolean isMainProcess(Context context) {
+        String name = getProcessName(context);
+        return name == null || name.equals(context.getPackageName());
+    }
+
+    static String getProcessName(Context context) {
+        String name = processName;
+        if (name == null) {
+            name = resolveProcessName(context);
+            processName = name;
+        }
+        return name;
+    }
+
+    private static String resolveProcessName(Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            String name = Application.getProcessName();
+            if (name != null && !name.isEmpty()) {
+                return name;
+            }
+        }
+        String name = readCmdline();
+        if (name != null) {
+            return name;
+        }
+        return queryActivityManager(context);
+    }
+
+    private static String readCmdline() {
+        try (InputStream in = new FileInputStream("/proc/self/cmdline")) {
+            byte[] buffer = new byte[256];
+            int length = 0;
+            int read;
+            while (length < buffer.length && (read = in.read(buffer, length, buffer.length - length)) > 0) {
+                length += read;
+            }
+            return parseCmdline(buffer, length);
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
+    }
+
+    /** The first NUL-terminated argument of a cmdline buffer, or {@code null} if it is empty. */
+    static String parseCmdline(byte[] buffer, int length) {
+        int end = 0;
+        while (end < length && buffer[end] != 0) {
+            end++;
+        }
+        String name = new String(buffer, 0, end, StandardCharsets.UTF_8).trim();
+        return name.isEmpty() ? null : name;
+    }
+
+    private static String queryActivityManager(Context context) {
+        try {
+            int myPid = android.os.Process.myPid();
+            ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+            List<ActivityManager.RunningAppProcessInfo> processes = am != null ? am.getRunningAppProcesses() : null;
+            if (processes == null) {
+                return null;
+            }
+            for (ActivityManager.RunningAppProcessInfo proc : processes) {
+                if (proc != null && proc.pid == myPid) {
+                    return proc.processName;
+                }
+            }
+        } catch (Throwable e) {
+            IntercomMetrics.suppressed("process.activityManager", e);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,85 @@
+package com.sencrop.capacitor.intercom;
+
+import android.app.Application;
+import android.content.Context;
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Entry point for Intercom pushes received by the app's own messaging service. Pushes are handed
+ * to the SDK right away once it is initialized; before that they wait in an
+ * {@link IntercomPushQueue} on disk and are replayed together when initialization completes, so a
+ * push that wakes the app before the plugin has loaded still produces its notification.
+ *
+ * <p>Call {@link #handle} from {@code FirebaseMessagingService.onMessageReceived}:
+ *
+ * <pre>
+ * if (IntercomPushIntake.handle(this, message.getMessageId(), message.getData())) {
+ *     return;
+ * }
+ * </pre>
+ */
+public final class IntercomPushIntake {
+
+    private static volatile IntercomPushRouter router;
+
+    private IntercomPushIntake() {}
+
+    /**
+     * Takes a push received by the app. Returns {@code false} if it isn't an Intercom push, in
+     * which case the app should handle it itself.
+     *
+     * @param messageId the FCM message id, used to drop duplicates; may be {@code null}
+     */
+    public static boolean handle(Context context, String messageId, Map<String, String> data) {
+        if (!isIntercomPush(data)) {
+            return false;
+        }
+        router(context).accept(messageId, data, System.currentTimeMillis());
+        return true;
+    }
+
+    /** Whether {@code data} is an Intercom push, checked without loading the SDK. */
+    public static boolean isIntercomPush(Map<String, String> data) {
+        return IntercomPushRouter.isIntercomPush(data);
+    }
+
+    /** Replays queued pushes in the background; called once the SDK is initialized. */
+    static void onSdkInitialized(Context context) {
+        router(context).scheduleReplay();
+    }
+
+    /** The process-wide router, or {@code null} if no push or initialization has needed it yet. */
+    static IntercomPushRouter peek() {
+        return router;
+    }
+
+    private static IntercomPushRouter router(Context context) {
+        IntercomPushRouter instance = router;
+        if (instance == null) {
+            synchronized (IntercomPushIntake.class) {
+                instance = router;
+                if (instance == null) {
+                    final Application application = (Application) context.getApplicationContext();
+                    IntercomPushQueue.Settings settings = IntercomPushQueue.Settings.from(
+                        IntercomConfig.get(application).getObject("pushQueue")
+                    );
+                    instance = new IntercomPushRouter(
+                        new IntercomPushQueue(new File(application.getFilesDir(), "intercom/push-queue.json"), settings),
+                        settings.enabled,
+                        data -> {
+                            // The notification opens Intercom UI when tapped, which may never happen
+                            IntercomComponentController.onPushReceived(application);
+                            IntercomSdkLoader.get().handlePush(application, data);
+                        },
+                        IntercomPlugin::isSdkInitialized,
+                        IntercomExecutors.background()
+                    );
+                    router = instance;
+                }
+            }
+        }
+        return instance;
+    }
+}
+
@@ -0,0 +1,195 @@
+package com.sencrop.capacitor.intercom;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Small on-disk queue for Intercom pushes that arrive while the SDK isn't initialized. The whole
+ * queue is one JSON file, rewritten through a temporary file on every change; at a few dozen
+ * entries that is cheaper and simpler than an append log. When full, the oldest push is dropped.
+ */
+final class IntercomPushQueue {
+
+    static final class Settings {
+
+        final boolean enabled;
+        final int capacity;
+        /** Pushes older than this by replay time are dropped instead of shown late. */
+        final long maxAgeMs;
+
+        Settings(boolean enabled, int capacity, long maxAgeMs) {
+            this.enabled = enabled;
+            this.capacity = Math.max(1, capacity);
+            this.maxAgeMs = Math.max(0, maxAgeMs);
+        }
+
+        /** Reads {@code plugins.Intercom.pushQueue}; every field is optional. */
+        static Settings from(JSONObject json) {
+            if (json == null) {
+                json = new JSONObject();
+            }
+            return new Settings(
+                json.optBoolean("enabled", true),
+                json.optInt("capacity", 20),
+                json.optLong("maxAgeMs", 24 * 60 * 60 * 1000L)
+            );
+        }
+    }
+
+    static final class Push {
+
+        final String id;
+        final long receivedAtMs;
+        final Map<String, String> data;
+
+        Push(String id, long receivedAtMs, Map<String, String> data) {
+            this.id = id;
+            this.receivedAtMs = receivedAtMs;
+            this.data = data;
+        }
+    }
+
+    enum Result {
+        QUEUED,
+        DUPLICATE,
+        /** Queued, but the oldest push had to go to make room. */
+        QUEUED_DROPPING_OLDEST
+    }
+
+    private final File file;
+    private final Settings settings;
+
+    // Guarded by this
+    private List<Push> pushes;
+    private long expired;
+
+    IntercomPushQueue(File file, Settings settings) {
+        this.file = file;
+        this.settings = settings;
+    }
+
+    synchronized Result offer(Push push) {
+        List<Push> queue = pushes();
+        for (Push queued : queue) {
+            if (queued.id.equals(push.id)) {
+                return Result.DUPLICATE;
+            }
+        }
+        boolean full = queue.size() >= settings.capacity;
+        if (full) {
+            queue.remove(0);
+        }
+        queue.add(push);
+        save();
+        return full ? Result.QUEUED_DROPPING_OLDEST : Result.QUEUED;
+    }
+
+    /** Empties the queue and returns the pushes still young enough to show, oldest first. */
+    synchronized List<Push> drain(long nowMs) {
+        List<Push> queue = pushes();
+        if (queue.isEmpty()) {
+            return queue;
+        }
+        List<Push> fresh = new ArrayList<>(queue.size());
+        for (Push push : queue) {
+            if (nowMs - push.receivedAtMs <= settings.maxAgeMs) {
+                fresh.add(push);
+            } else {
+                expired++;
+            }
+        }
+        // Cleared before the caller replays: a crash mid-replay loses pushes rather than showing them twice
+        pushes = new ArrayList<>();
+        save();
+        return fresh;
+    }
+
+    synchronized int size() {
+        return pushes().size();
+    }
+
+    /** Pushes dropped by {@link #drain} for being older than {@code maxAgeMs}. */
+    synchronized long getExpiredCount() {
+        return expired;
+    }
+
+    private List<Push> pushes() {
+        if (pushes == null) {
+            pushes = load();
+        }
+        return pushes;
+    }
+
+    private List<Push> load() {
+        List<Push> loaded = new ArrayList<>();
+        if (!file.exists()) {
+            return loaded;
+        }
+        try (InputStream input = new FileInputStream(file)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            JSONArray array = new JSONArray(new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject entry = array.getJSONObject(i);
+                Map<String, String> data = new HashMap<>();
+                JSONObject json = entry.getJSONObject("data");
+                Iterator<String> keys = json.keys();
+                while (keys.hasNext()) {
+                    String key = keys.next();
+                    data.put(key, json.getString(key));
+                }
+                loaded.add(new Push(entry.getString("id"), entry.getLong("receivedAt"), data));
+            }
+        } catch (IOException | JSONException e) {
+            // A queue torn by a crash is not worth recovering; start over
+            IntercomMetrics.suppressed("pushQueue.load", e);
+            loaded.clear();
+        }
+        return loaded;
+    }
+
+    private void save() {
+        if (pushes.isEmpty()) {
+            file.delete();
+            return;
+        }
+        File temporary = new File(file.getPath() + ".tmp");
+        try {
+            JSONArray array = new JSONArray();
+            for (Push push : pushes) {
+                array.put(new JSONObject().put("id", push.id).put("receivedAt", push.receivedAtMs).put("data", new JSONObject(push.data)));
+            }
+            File parent = file.getParentFile();
+            if (parent != null && !parent.exists()) {
+                parent.mkdirs();
+            }
+            try (FileOutputStream output = new FileOutputStream(temporary)) {
+                output.write(array.toString().getBytes(StandardCharsets.UTF_8));
+                output.getFD().sync();
+            }
+            if (!temporary.renameTo(file)) {
+                throw new IOException("Could not replace " + file);
+            }
+        } catch (IOException | JSONException e) {
+            IntercomMetrics.suppressed("pushQueue.save", e);
+            temporary.delete();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.sencrop.capacitor.intercom;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides what happens to each Intercom push: straight to the SDK once it is initialized, into the
+ * {@link IntercomPushQueue} before that, and dropped when it was already seen. Pushes are keyed by
+ * message id, or by their content when they have none. {@link #replay} hands the queue to the SDK
+ * in one pass and records how long each push waited.
+ */
+final class IntercomPushRouter {
+
+    /** Hands a push to the SDK. */
+    interface Forwarder {
+        void handlePush(Map<String, String> data);
+    }
+
+    /** Whether the SDK is initialized and can take pushes directly. */
+    interface Readiness {
+        boolean isReady();
+    }
+
+    private static final String RECEIVER_KEY = "receiver";
+    private static final String INTERCOM_RECEIVER = "intercom_sdk";
+    /** Ids remembered after handling, so a redelivered push isn't shown twice. */
+    private static final int RECENT_IDS = 64;
+
+    private final IntercomPushQueue queue;
+    private final boolean queueEnabled;
+    private final Forwarder forwarder;
+    private final Readiness readiness;
+    private final Executor replayExecutor;
+    private final Map<String, Boolean> recentIds = new LinkedHashMap<String, Boolean>(RECENT_IDS, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > RECENT_IDS;
+        }
+    };
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong forwarded = new AtomicLong();
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final IntercomMetrics.Histogram replayDelays = new IntercomMetrics.Histogram();
+
+    IntercomPushRouter(IntercomPushQueue queue, boolean queueEnabled, Forwarder forwarder, Readiness readiness, Executor replayExecutor) {
+        this.queue = queue;
+        this.queueEnabled = queueEnabled;
+        this.forwarder = forwarder;
+        this.readiness = readiness;
+        this.replayExecutor = replayExecutor;
+    }
+
+    /** Whether {@code data} is an Intercom push, checked without loading the SDK. */
+    static boolean isIntercomPush(Map<String, String> data) {
+        return data != null && INTERCOM_RECEIVER.equals(data.get(RECEIVER_KEY));
+    }
+
+    void accept(String messageId, Map<String, String> data, long nowMs) {
+        received.incrementAndGet();
+        String id = messageId != null && messageId.length() > 0 ? messageId : contentKey(data);
+        if (readiness.isReady()) {
+            if (remember(id)) {
+                forward(data);
+            } else {
+                duplicates.incrementAndGet();
+            }
+            return;
+        }
+        if (!queueEnabled) {
+            dropped.incrementAndGet();
+            return;
+        }
+        if (isRecent(id)) {
+            duplicates.incrementAndGet();
+            return;
+        }
+        switch (queue.offer(new IntercomPushQueue.Push(id, nowMs, data))) {
+            case DUPLICATE:
+                duplicates.incrementAndGet();
+                return;
+            case QUEUED_DROPPING_OLDEST:
+                dropped.incrementAndGet();
+                queued.incrementAndGet();
+                break;
+            default:
+                queued.incrementAndGet();
+                break;
+        }
+        // Initialization may have finished, and replayed, while this push was being queued
+        if (readiness.isReady()) {
+            scheduleReplay();
+        }
+    }
+
+    void scheduleReplay() {
+        replayExecutor.execute(() -> replay(System.currentTimeMillis()));
+    }
+
+    /** Forwards every queued push still young enough, oldest first, recording how long each waited. */
+    void replay(long nowMs) {
+        if (!queueEnabled) {
+            return;
+        }
+        long expiredBefore = queue.getExpiredCount();
+        List<IntercomPushQueue.Push> pushes = queue.drain(nowMs);
+        dropped.addAndGet(queue.getExpiredCount() - expiredBefore);
+        for (IntercomPushQueue.Push push : pushes) {
+            if (!remember(push.id)) {
+                duplicates.incrementAndGet();
+                continue;
+            }
+            replayDelays.record(TimeUnit.MILLISECONDS.toNanos(Math.max(0, nowMs - push.receivedAtMs)));
+            if (forward(push.data)) {
+                replayed.incrementAndGet();
+            }
+        }
+    }
+
+    long getReceivedCount() {
+        return received.get();
+    }
+
+    long getForwardedCount() {
+        return forwarded.get();
+    }
+
+    long getQueuedCount() {
+        return queued.get();
+    }
+
+    long getDuplicateCount() {
+        return duplicates.get();
+    }
+
+    /** Pushes lost to a full or disabled queue, or too old to show by the time of replay. */
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    long getReplayedCount() {
+        return replayed.get();
+    }
+
+    int getPendingCount() {
+        return queueEnabled ? queue.size() : 0;
+    }
+
+    /** Time between receiving a queued push and handing it to the SDK. */
+    IntercomMetrics.Histogram getReplayDelays() {
+        return replayDelays;
+    }
+
+    private boolean forward(Map<String, String> data) {
+        try {
+            forwarder.handlePush(data);
+            forwarded.incrementAndGet();
+            return true;
+        } catch (RuntimeException e) {
+            dropped.incrementAndGet();
+            IntercomMetrics.suppressed("pushRouter.forward", e);
+            return false;
+        }
+    }
+
+    /**
+     * Key for a push without a message id: a SHA-256 of its entries in key order, each length-prefixed
+     * so no two payloads serialize alike. A 32-bit hash would let distinct pushes collide and be
+     * dropped as duplicates.
+     */
+    static String contentKey(Map<String, String> data) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Map.Entry<String, String> entry : new TreeMap<>(data).entrySet()) {
+                update(digest, entry.getKey());
+                update(digest, entry.getValue());
+            }
+            byte[] hash = digest.digest();
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return "data:" + hex;
+        } catch (NoSuchAlgorithmException e) {
+            // Every Android release ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update((byte) '-');
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update((bytes.length + ":").getBytes(StandardCharsets.UTF_8));
+        digest.update(bytes);
+    }
+
+    /** Records {@code id} as handled; returns {@code false} if it already was. */
+    private synchronized boolean remember(String id) {
+        return recentIds.put(id, Boolean.TRUE) == null;
+    }
+
+    private synchronized boolean isRecent(String id) {
+        return recentIds.containsKey(id);
+    }
+}
@@ -0,0 +1,64 @@
+package com.sencrop.capacitor.intercom;
+
+import android.app.Application;
+import java.util.Map;
+
+/**
+ * Everything the plugin asks of the Intercom SDK. Only {@link AndroidIntercomSdk} references SDK
+ * types, and it is loaded by {@link IntercomSdkLoader} on first use, so a session that never
+ * touches Intercom never loads the SDK or its Kotlin and Compose dependencies.
+ */
+interface IntercomSdk {
+
+    /** Outcome of an SDK request; {@code message} is the SDK's error message. */
+    interface Callback {
+        void onSuccess();
+
+        void onFailure(String message);
+    }
+
+    /** Receives the unread conversation count each time the SDK reports it. */
+    interface UnreadCountListener {
+        void onUnreadCountChanged(int count);
+    }
+
+    void initialize(Application application, String apiKey, String appId);
+
+    void handlePushMessage();
+
+    /** Shows the notification for an Intercom push received by the app. */
+    void handlePush(Application application, Map<String, String> data);
+
+    void setUserHash(String userHash);
+
+    /** Either identifier may be {@code null}, but not both. */
+    void loginIdentifiedUser(String userId, String email, Callback callback);
+
+    void loginUnidentifiedUser(Callback callback);
+
+    /** {@code standard} holds the keys in {@code IntercomTracker.STANDARD_ATTRIBUTES}. */
+    void updateUser(Map<String, Object> standard, Map<String, Object> custom, Callback callback);
+
+    void logout();
+
+    /** {@code metadata} may be {@code null}. */
+    void logEvent(String name, Map<String, Object> metadata);
+
+    void presentMessenger();
+
+    void presentHelpCenter();
+
+    void presentArticle(String articleId);
+
+    void presentSurvey(String surveyId);
+
+    /** {@code content} pre-fills the composer; {@code null} opens it empty. */
+    void presentMessageComposer(String content);
+
+    void hideMessenger();
+
+    void setLauncherVisible(boolean visible);
+
+    /** Replaces the unread count listener; {@code null} removes it. */
+    void setUnreadCountListener(UnreadCountListener listener);
+}
@@ -0,0 +1,28 @@
+package com.sencrop.capacitor.intercom;
+
+/**
+ * Hands out the {@link IntercomSdk}. The SDK-backed implementation sits in a holder class, so it
+ * (and through it the SDK) is loaded when {@link #get} is first called rather than when the plugin
+ * or provider classes are.
+ */
+final class IntercomSdkLoader {
+
+    private static final class Holder {
+
+        static final IntercomSdk INSTANCE = new AndroidIntercomSdk();
+    }
+
+    private static volatile IntercomSdk override;
+
+    private IntercomSdkLoader() {}
+
+    static IntercomSdk get() {
+        IntercomSdk sdk = override;
+        return sdk != null ? sdk : Holder.INSTANCE;
+    }
+
+    /** Replaces the SDK, e.g. with an in-memory fake; {@code null} restores the real one. */
+    static void setForTesting(IntercomSdk sdk) {
+        override = sdk;
+    }
+}
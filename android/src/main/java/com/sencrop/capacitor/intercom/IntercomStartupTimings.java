@@ -0,0 +1,37 @@
+package com.sencrop.capacitor.intercom;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Time {@link IntercomInitProvider} spends in each startup phase, for this process. Phases that
+ * run on the background executor in async early-init mode are recorded there.
+ */
+final class IntercomStartupTimings {
+
+    enum Phase {
+        PROCESS_CHECK("processCheck"),
+        CONFIG_READ("configRead"),
+        SDK_INIT("sdkInit"),
+        COMPONENT_TOGGLE("componentToggle");
+
+        /** Key in the {@link IntercomMetrics#init} histograms. */
+        final String key;
+
+        Phase(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final AtomicLongArray nanos = new AtomicLongArray(Phase.values().length);
+
+    private IntercomStartupTimings() {}
+
+    static void record(Phase phase, long elapsedNanos) {
+        nanos.addAndGet(phase.ordinal(), elapsedNanos);
+        IntercomMetrics.record(IntercomMetrics.init, phase.key, elapsedNanos);
+    }
+
+    static long getNanos(Phase phase) {
+        return nanos.get(phase.ordinal());
+    }
+}
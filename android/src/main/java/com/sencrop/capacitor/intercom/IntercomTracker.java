@@ -0,0 +1,271 @@
+package com.sencrop.capacitor.intercom;
+
+import com.getcapacitor.PluginCall;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * What {@code logEvent}, {@code updateUser} and {@code setCustomAttributes} do once a call is past
+ * the bridge and Intercom is ready (or the call may be journaled): aggregation, sampling, metadata
+ * conversion and the attribute cache, then the journal, the event queue, the attribute buffer or
+ * the SDK. Each optional stage is {@code null} when it is turned off.
+ *
+ * <p>{@link IntercomPlugin} owns the bridge side; keeping the rest here lets tests drive exactly
+ * the code the plugin runs.
+ */
+final class IntercomTracker {
+
+    private static final String[] STANDARD_ATTRIBUTES = { "name", "email", "phone", "language" };
+
+    /** Holds what can't be delivered yet; see {@link IntercomJournal}. */
+    interface Journal {
+        /** Whether this event or update must be journaled instead of sent. */
+        boolean shouldJournal();
+
+        void append(JSONObject record) throws JSONException;
+    }
+
+    private final IntercomJsonConverter jsonConverter;
+    private final IntercomEventAggregator eventAggregator;
+    private final IntercomEventSampler eventSampler;
+    private final IntercomEventQueue eventQueue;
+    private final IntercomAttributeCache attributeCache;
+    private final IntercomAttributeBuffer attributeBuffer;
+    private final ScheduledExecutorService executor;
+    private final Journal journal;
+
+    IntercomTracker(
+        IntercomJsonConverter jsonConverter,
+        IntercomEventAggregator eventAggregator,
+        IntercomEventSampler eventSampler,
+        IntercomEventQueue eventQueue,
+        IntercomAttributeCache attributeCache,
+        ScheduledExecutorService executor,
+        long attributeDebounceMs,
+        Journal journal
+    ) {
+        this.jsonConverter = jsonConverter;
+        this.eventAggregator = eventAggregator;
+        this.eventSampler = eventSampler;
+        this.eventQueue = eventQueue;
+        this.attributeCache = attributeCache;
+        this.attributeBuffer = new IntercomAttributeBuffer(this::sendUserAttributes, executor, attributeDebounceMs);
+        this.executor = executor;
+        this.journal = journal;
+    }
+
+    IntercomAttributeBuffer getAttributeBuffer() {
+        return attributeBuffer;
+    }
+
+    /**
+     * Sends queued events and buffered attribute updates now and waits up to {@code timeoutMs} for
+     * them to reach the SDK. Call before the SDK's user changes, so they land on the user they were
+     * made for.
+     */
+    void flushBeforeUserChange(long timeoutMs) {
+        boolean queued = eventQueue != null && eventQueue.getDepth() > 0;
+        if (!queued && attributeBuffer.getPendingCallCount() == 0) {
+            return;
+        }
+        if (eventQueue != null) {
+            eventQueue.flush();
+        }
+        attributeBuffer.flush();
+        awaitExecutor(timeoutMs);
+    }
+
+    void logEvent(PluginCall call) {
+        String eventName = call.getString("name");
+        if (eventAggregator != null && eventAggregator.isAggregated(eventName)) {
+            // Counted in place; goes out with the next summary
+            eventAggregator.add(eventName, call.getObject("data"), System.currentTimeMillis());
+            call.resolve();
+            return;
+        }
+        if (eventSampler != null && !eventSampler.admit(eventName)) {
+            // Dropped on purpose; the count goes out with the next sampling summary
+            call.resolve();
+            return;
+        }
+        Map<String, Object> metaData;
+        try {
+            metaData = jsonConverter.toMap(call.getObject("data"));
+        } catch (IllegalArgumentException e) {
+            call.reject(e.getMessage());
+            return;
+        }
+
+        if (journal != null && journal.shouldJournal()) {
+            try {
+                JSONObject record = new JSONObject();
+                record.put("type", "event");
+                record.put("name", eventName);
+                if (metaData != null) {
+                    record.put("metadata", new JSONObject(metaData));
+                }
+                journal.append(record);
+                call.resolve();
+            } catch (JSONException e) {
+                call.reject("Could not journal Intercom event: " + e.getMessage());
+            }
+            return;
+        }
+
+        if (eventQueue != null) {
+            if (eventQueue.enqueue(eventName, metaData)) {
+                call.resolve();
+            } else {
+                call.reject("Intercom event queue is full");
+            }
+            return;
+        }
+
+        IntercomSdkLoader.get().logEvent(eventName, metaData);
+
+        call.resolve();
+    }
+
+    void updateUser(PluginCall call) {
+        // Only forward the fields the caller actually passed, so merged updates don't clear each other
+        Map<String, Object> standard = new HashMap<>(8);
+        for (String key : STANDARD_ATTRIBUTES) {
+            if (call.getData().has(key)) {
+                standard.put(key, call.getString(key));
+            }
+        }
+        if (attributeCache != null) {
+            standard = attributeCache.changed(IntercomAttributeCache.STANDARD_SCOPE, standard);
+        }
+        if (standard.isEmpty()) {
+            call.resolve();
+            return;
+        }
+        if (journal != null && journal.shouldJournal()) {
+            journalAttributes(call, standard, null);
+            return;
+        }
+        attributeBuffer.add(standard, null, attributeCallback(call));
+    }
+
+    void setCustomAttributes(PluginCall call) {
+        Map<String, Object> attributes;
+        try {
+            attributes = jsonConverter.toMap(call.getObject("attributes"));
+        } catch (IllegalArgumentException e) {
+            call.reject(e.getMessage());
+            return;
+        }
+        if (attributeCache != null) {
+            attributes = attributeCache.changed(IntercomAttributeCache.CUSTOM_SCOPE, attributes);
+        }
+        if (attributes == null || attributes.isEmpty()) {
+            call.resolve();
+            return;
+        }
+        if (journal != null && journal.shouldJournal()) {
+            journalAttributes(call, null, attributes);
+            return;
+        }
+        attributeBuffer.add(null, attributes, attributeCallback(call));
+    }
+
+    private void journalAttributes(PluginCall call, Map<String, Object> standard, Map<String, Object> custom) {
+        try {
+            JSONObject record = new JSONObject();
+            record.put("type", "attributes");
+            if (standard != null) {
+                record.put("standard", new JSONObject(standard));
+            }
+            if (custom != null) {
+                record.put("custom", new JSONObject(custom));
+            }
+            journal.append(record);
+            call.resolve();
+        } catch (JSONException e) {
+            call.reject("Could not journal Intercom attributes: " + e.getMessage());
+        }
+    }
+
+    /** Waits for the work already handed to the executor, which runs tasks in order. */
+    private void awaitExecutor(long timeoutMs) {
+        try {
+            executor.submit(() -> {}).get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            IntercomMetrics.suppressed("tracker.flush", e);
+        }
+    }
+
+    private static IntercomAttributeBuffer.Callback attributeCallback(final PluginCall call) {
+        return new IntercomAttributeBuffer.Callback() {
+            @Override
+            public void onSuccess() {
+                call.resolve();
+            }
+
+            @Override
+            public void onFailure(String message) {
+                call.reject(message);
+            }
+        };
+    }
+
+    private void sendUserAttributes(
+        final Map<String, Object> standard,
+        final Map<String, Object> custom,
+        final IntercomAttributeBuffer.Callback callback
+    ) {
+        final IntercomAttributeBuffer.Callback tracked = new IntercomAttributeBuffer.Callback() {
+            @Override
+            public void onSuccess() {
+                if (attributeCache != null) {
+                    attributeCache.confirm(IntercomAttributeCache.STANDARD_SCOPE, standard);
+                    attributeCache.confirm(IntercomAttributeCache.CUSTOM_SCOPE, custom);
+                }
+                callback.onSuccess();
+            }
+
+            @Override
+            public void onFailure(String message) {
+                if (attributeCache != null) {
+                    attributeCache.reject(IntercomAttributeCache.STANDARD_SCOPE, standard);
+                    attributeCache.reject(IntercomAttributeCache.CUSTOM_SCOPE, custom);
+                }
+                callback.onFailure(message);
+            }
+        };
+
+        try {
+            final long requested = System.nanoTime();
+            IntercomSdkLoader
+                .get()
+                .updateUser(
+                    standard,
+                    custom,
+                    new IntercomSdk.Callback() {
+                        @Override
+                        public void onSuccess() {
+                            IntercomMetrics.recordCallback("updateUser", requested, true);
+                            tracked.onSuccess();
+                        }
+
+                        @Override
+                        public void onFailure(String message) {
+                            IntercomMetrics.recordCallback("updateUser", requested, false);
+                            tracked.onFailure("Intercom error : " + message);
+                        }
+                    }
+                );
+        } catch (RuntimeException e) {
+            tracked.onFailure("Could not update Intercom user: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.sencrop.capacitor.intercom;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONObject;
+
+/**
+ * Turns the SDK's unread count callbacks into at most one bridge notification per frame window.
+ * Counts reported within a window replace each other and only the latest is sent; a count equal
+ * to the last one sent is not sent again. Nothing is scheduled or sent while no JS listener is
+ * attached.
+ */
+final class IntercomUnreadCountStream implements IntercomSdk.UnreadCountListener {
+
+    static final String EVENT = "unreadCountChange";
+
+    static final class Settings {
+
+        final boolean enabled;
+        /** Frames to wait before sending, so that a burst spanning a few frames is sent once. */
+        final int windowFrames;
+
+        Settings(boolean enabled, int windowFrames) {
+            this.enabled = enabled;
+            this.windowFrames = Math.max(1, windowFrames);
+        }
+
+        /** Reads {@code plugins.Intercom.unreadCount}; every field is optional. */
+        static Settings from(JSONObject json) {
+            if (json == null) {
+                json = new JSONObject();
+            }
+            return new Settings(json.optBoolean("enabled", true), json.optInt("windowFrames", 1));
+        }
+    }
+
+    /** Runs {@code flush} at the end of the current frame window, on the main thread. */
+    interface FrameScheduler {
+        void schedule(Runnable flush);
+    }
+
+    /** The JS side of the stream. */
+    interface Sink {
+        boolean isListening();
+
+        void emit(int count);
+    }
+
+    private static final int NONE = Integer.MIN_VALUE;
+
+    private final FrameScheduler scheduler;
+    private final Sink sink;
+    /** Latest count not sent yet, or {@link #NONE}. */
+    private final AtomicInteger pending = new AtomicInteger(NONE);
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicLong updates = new AtomicLong();
+    private final AtomicLong emitted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+    // Only touched by the flushing thread
+    private int lastEmitted = NONE;
+
+    IntercomUnreadCountStream(FrameScheduler scheduler, Sink sink) {
+        this.scheduler = scheduler;
+        this.sink = sink;
+    }
+
+    @Override
+    public void onUnreadCountChanged(int count) {
+        updates.incrementAndGet();
+        if (!sink.isListening()) {
+            suppressed.incrementAndGet();
+            return;
+        }
+        if (pending.getAndSet(count) != NONE) {
+            coalesced.incrementAndGet();
+        }
+        if (scheduled.compareAndSet(false, true)) {
+            scheduler.schedule(this::flush);
+        }
+    }
+
+    void flush() {
+        // Cleared first: a count arriving from here on schedules the next window
+        scheduled.set(false);
+        int count = pending.getAndSet(NONE);
+        if (count == NONE) {
+            return;
+        }
+        if (!sink.isListening()) {
+            suppressed.incrementAndGet();
+            // A listener attached later gets the next count even if it hasn't changed
+            lastEmitted = NONE;
+            return;
+        }
+        if (count == lastEmitted) {
+            coalesced.incrementAndGet();
+            return;
+        }
+        lastEmitted = count;
+        emitted.incrementAndGet();
+        sink.emit(count);
+    }
+
+    /** Counts reported by the SDK. */
+    long getUpdateCount() {
+        return updates.get();
+    }
+
+    long getEmittedCount() {
+        return emitted.get();
+    }
+
+    /** Counts replaced by a later one in the same window, or equal to the last one sent. */
+    long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /** Counts dropped because no JS listener was attached. */
+    long getSuppressedCount() {
+        return suppressed.get();
+    }
+}
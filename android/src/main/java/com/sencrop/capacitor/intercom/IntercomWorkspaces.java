@@ -0,0 +1,225 @@
+package com.sencrop.capacitor.intercom;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONObject;
+
+/**
+ * The Intercom workspaces an app can talk to, keyed by app ID, and which one the SDK is
+ * initialized for. The top-level {@code android_apiKey}/{@code appId} pair is the default
+ * workspace; {@code plugins.Intercom.workspaces} adds more:
+ *
+ * <pre>
+ * "workspaces": { "b2bAppId": { "android_apiKey": "android_sdk-..." } }
+ * </pre>
+ *
+ * The active workspace is remembered across launches so that early initialization starts in the
+ * workspace the app last used. Switching logs the current user out and initializes the SDK again
+ * for the other workspace, all in-process.
+ */
+final class IntercomWorkspaces {
+
+    static final class Workspace {
+
+        final String appId;
+        final String apiKey;
+
+        Workspace(String appId, String apiKey) {
+            this.appId = appId;
+            this.apiKey = apiKey;
+        }
+    }
+
+    /** Persistent record of the active app ID; {@code null} when none was saved. */
+    interface Storage {
+        String load();
+
+        void save(String appId);
+    }
+
+    /** The SDK side of a switch. */
+    interface Client {
+        /** Called before the SDK is reset, while it still serves {@code from}. */
+        void leave(Workspace from);
+
+        void logout();
+
+        void initialize(Workspace to);
+    }
+
+    private static final String PREFERENCES_NAME = "com.sencrop.capacitor.intercom.workspace";
+    private static final String APP_ID_KEY = "appId";
+
+    private static volatile IntercomWorkspaces instance;
+
+    private final Map<String, Workspace> workspaces;
+    private final Workspace defaultWorkspace;
+    private final Storage storage;
+    private final IntercomMetrics.Histogram switchTimes = new IntercomMetrics.Histogram();
+    private final AtomicLong discardedRecords = new AtomicLong();
+
+    // Guarded by this
+    private Workspace active;
+    private long switches;
+
+    IntercomWorkspaces(Map<String, Workspace> workspaces, Workspace defaultWorkspace, Storage storage) {
+        this.workspaces = workspaces;
+        this.defaultWorkspace = defaultWorkspace;
+        this.storage = storage;
+    }
+
+    /**
+     * Reads the workspaces from the plugin config; {@code apiKey}/{@code appId} is the default
+     * pair, either of which may be {@code null} when the app configures none.
+     */
+    static IntercomWorkspaces from(String apiKey, String appId, JSONObject json, Storage storage) {
+        Map<String, Workspace> workspaces = new LinkedHashMap<>();
+        Workspace defaultWorkspace = null;
+        if (apiKey != null && appId != null) {
+            defaultWorkspace = new Workspace(appId, apiKey);
+            workspaces.put(appId, defaultWorkspace);
+        }
+        if (json != null) {
+            Iterator<String> appIds = json.keys();
+            while (appIds.hasNext()) {
+                String id = appIds.next();
+                JSONObject entry = json.optJSONObject(id);
+                String key = entry != null ? entry.optString("android_apiKey", null) : null;
+                if (key != null && !workspaces.containsKey(id)) {
+                    workspaces.put(id, new Workspace(id, key));
+                }
+            }
+        }
+        return new IntercomWorkspaces(Collections.unmodifiableMap(workspaces), defaultWorkspace, storage);
+    }
+
+    /** The process-wide registry, read from the plugin config on first use. */
+    static IntercomWorkspaces get(Context context) {
+        IntercomWorkspaces workspaces = instance;
+        if (workspaces == null) {
+            synchronized (IntercomWorkspaces.class) {
+                workspaces = instance;
+                if (workspaces == null) {
+                    Context appContext = context.getApplicationContext();
+                    IntercomConfig config = IntercomConfig.get(appContext);
+                    workspaces = from(config.getApiKey(), config.getAppId(), config.getObject("workspaces"), sharedPreferences(appContext));
+                    instance = workspaces;
+                }
+            }
+        }
+        return workspaces;
+    }
+
+    static Storage sharedPreferences(Context context) {
+        final SharedPreferences preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        return new Storage() {
+            @Override
+            public String load() {
+                return preferences.getString(APP_ID_KEY, null);
+            }
+
+            @Override
+            public void save(String appId) {
+                preferences.edit().putString(APP_ID_KEY, appId).apply();
+            }
+        };
+    }
+
+    Workspace get(String appId) {
+        return workspaces.get(appId);
+    }
+
+    boolean isDefault(Workspace workspace) {
+        return workspace == defaultWorkspace;
+    }
+
+    /** Whether more than one workspace is configured, so records need to say which one they belong to. */
+    boolean isMultiple() {
+        return workspaces.size() > 1;
+    }
+
+    /** The workspace to initialize at startup: the last active one if still configured, else the default. */
+    synchronized Workspace initial() {
+        if (active != null) {
+            return active;
+        }
+        String saved = storage.load();
+        Workspace workspace = saved != null ? workspaces.get(saved) : null;
+        return workspace != null ? workspace : defaultWorkspace;
+    }
+
+    /** Records that the SDK was initialized for {@code workspace}. */
+    synchronized void onInitialized(Workspace workspace) {
+        setActive(workspace);
+    }
+
+    /** The workspace the SDK is initialized for, or {@code null} before initialization. */
+    synchronized Workspace getActive() {
+        return active;
+    }
+
+    /**
+     * Makes {@code appId} the active workspace. When the SDK is already initialized for another
+     * workspace, that means one logout and one initialization; before initialization it only
+     * changes which workspace initialization will use.
+     *
+     * @return whether the SDK had to be reset
+     * @throws IllegalArgumentException if {@code appId} isn't configured
+     */
+    synchronized boolean switchTo(String appId, boolean initialized, Client client) {
+        Workspace target = workspaces.get(appId);
+        if (target == null) {
+            throw new IllegalArgumentException("Unknown Intercom workspace: " + appId);
+        }
+        if (!initialized) {
+            setActive(target);
+            return false;
+        }
+        Workspace current = active;
+        if (current != null && current.appId.equals(appId)) {
+            return false;
+        }
+        long start = System.nanoTime();
+        if (current != null) {
+            client.leave(current);
+        }
+        client.logout();
+        client.initialize(target);
+        setActive(target);
+        switches++;
+        switchTimes.record(System.nanoTime() - start);
+        return true;
+    }
+
+    synchronized long getSwitchCount() {
+        return switches;
+    }
+
+    /** Journal records dropped on replay because they were written for another workspace. */
+    long getDiscardedRecordCount() {
+        return discardedRecords.get();
+    }
+
+    void onRecordDiscarded() {
+        discardedRecords.incrementAndGet();
+    }
+
+    /** Time from the start of a switch until the SDK was initialized for the new workspace. */
+    IntercomMetrics.Histogram getSwitchTimes() {
+        return switchTimes;
+    }
+
+    // Guarded by this
+    private void setActive(Workspace workspace) {
+        if (active == workspace) {
+            return;
+        }
+        active = workspace;
+        storage.save(workspace.appId);
+    }
+}
@@ -0,0 +1,64 @@
+package com.sencrop.capacitor.intercom;
+
+import android.content.pm.PackageManager;
+import android.os.Build;
+import java.util.Set;
+
+/**
+ * {@link IntercomComponentController.ComponentBackend} backed by the real {@link PackageManager}.
+ * Which components exist is read once from the app's own manifest rather than by loading SDK
+ * classes, and from API 33 several writes go out as one batch.
+ *
+ * <p>The package manager sits behind {@link Packages} ({@link AndroidComponentPackages} on a
+ * device), so this class itself runs on a plain JVM.
+ */
+class PackageManagerComponentBackend implements IntercomComponentController.ComponentBackend {
+
+    /** The package manager calls this backend makes, by component class name; each is one binder IPC. */
+    interface Packages {
+        /** Activities and services declared in the app's merged manifest, disabled ones included. */
+        Set<String> getDeclaredComponents();
+
+        int getComponentEnabledSetting(String className);
+
+        void setComponentEnabledSetting(String className, int state);
+
+        /** API 33 and later only. */
+        void setComponentEnabledSettings(String[] classNames, int[] states);
+    }
+
+    private final Packages packages;
+    private final int sdkInt;
+    // Guarded by the controller's lock
+    private Set<String> declared;
+
+    PackageManagerComponentBackend(Packages packages, int sdkInt) {
+        this.packages = packages;
+        this.sdkInt = sdkInt;
+    }
+
+    @Override
+    public boolean isPresent(String className) {
+        if (declared == null) {
+            declared = packages.getDeclaredComponents();
+        }
+        return declared.contains(className);
+    }
+
+    @Override
+    public int getState(String className) {
+        return packages.getComponentEnabledSetting(className);
+    }
+
+    @Override
+    public int setStates(String[] classNames, int[] states) {
+        if (classNames.length > 1 && sdkInt >= Build.VERSION_CODES.TIRAMISU) {
+            packages.setComponentEnabledSettings(classNames, states);
+            return 1;
+        }
+        for (int i = 0; i < classNames.length; i++) {
+            packages.setComponentEnabledSetting(classNames[i], states[i]);
+        }
+        return classNames.length;
+    }
+}
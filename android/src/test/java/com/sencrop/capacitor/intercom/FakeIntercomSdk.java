@@ -0,0 +1,172 @@
+package com.sencrop.capacitor.intercom;
+
+import android.app.Application;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/** In-memory {@link IntercomSdk} that records each call as {@code method(args)}. */
+class FakeIntercomSdk implements IntercomSdk {
+
+    final List<String> calls = new ArrayList<>();
+    boolean initialized;
+    /** When set, requests with a callback fail with this message instead of succeeding. */
+    String failure;
+    /** When set, callbacks wait in {@link #held} until {@link #release} instead of completing inline. */
+    boolean holdCallbacks;
+    final List<Callback> held = new ArrayList<>();
+    UnreadCountListener unreadCountListener;
+    /** When positive, callbacks complete on another thread after this long, like a network round trip. */
+    long callbackLatencyMs;
+    private ScheduledExecutorService network;
+
+    synchronized List<String> calls() {
+        return new ArrayList<>(calls);
+    }
+
+    /** Calls made to {@code method} so far. */
+    synchronized int count(String method) {
+        int count = 0;
+        for (String call : calls) {
+            if (call.startsWith(method + "(")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private synchronized void record(String call) {
+        calls.add(call);
+    }
+
+    /** Completes the held callbacks in request order. */
+    void release() {
+        List<Callback> callbacks = new ArrayList<>(held);
+        held.clear();
+        for (Callback callback : callbacks) {
+            respond(callback);
+        }
+    }
+
+    private void complete(final Callback callback) {
+        if (holdCallbacks) {
+            held.add(callback);
+        } else if (callbackLatencyMs > 0) {
+            network().schedule(() -> respond(callback), callbackLatencyMs, TimeUnit.MILLISECONDS);
+        } else {
+            respond(callback);
+        }
+    }
+
+    private synchronized ScheduledExecutorService network() {
+        if (network == null) {
+            network = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "fake-intercom-network");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return network;
+    }
+
+    private void respond(Callback callback) {
+        if (failure != null) {
+            callback.onFailure(failure);
+        } else {
+            callback.onSuccess();
+        }
+    }
+
+    @Override
+    public void initialize(Application application, String apiKey, String appId) {
+        record("initialize(" + apiKey + ", " + appId + ")");
+        initialized = true;
+    }
+
+    @Override
+    public void handlePushMessage() {
+        record("handlePushMessage()");
+    }
+
+    @Override
+    public void handlePush(Application application, Map<String, String> data) {
+        record("handlePush(" + data + ")");
+    }
+
+    @Override
+    public void setUserHash(String userHash) {
+        record("setUserHash(" + userHash + ")");
+    }
+
+    @Override
+    public void loginIdentifiedUser(String userId, String email, Callback callback) {
+        record("loginIdentifiedUser(" + userId + ", " + email + ")");
+        complete(callback);
+    }
+
+    @Override
+    public void loginUnidentifiedUser(Callback callback) {
+        record("loginUnidentifiedUser()");
+        complete(callback);
+    }
+
+    @Override
+    public void updateUser(Map<String, Object> standard, Map<String, Object> custom, Callback callback) {
+        record("updateUser(" + standard + ", " + custom + ")");
+        complete(callback);
+    }
+
+    @Override
+    public void logout() {
+        record("logout()");
+    }
+
+    @Override
+    public void logEvent(String name, Map<String, Object> metadata) {
+        record("logEvent(" + name + ", " + metadata + ")");
+    }
+
+    @Override
+    public void presentMessenger() {
+        record("presentMessenger()");
+    }
+
+    @Override
+    public void presentHelpCenter() {
+        record("presentHelpCenter()");
+    }
+
+    @Override
+    public void presentArticle(String articleId) {
+        record("presentArticle(" + articleId + ")");
+    }
+
+    @Override
+    public void presentSurvey(String surveyId) {
+        record("presentSurvey(" + surveyId + ")");
+    }
+
+    @Override
+    public void presentMessageComposer(String content) {
+        record("presentMessageComposer(" + content + ")");
+    }
+
+    @Override
+    public void hideMessenger() {
+        record("hideMessenger()");
+    }
+
+    @Override
+    public void setLauncherVisible(boolean visible) {
+        record("setLauncherVisible(" + visible + ")");
+    }
+
+    @Override
+    public void setUnreadCountListener(UnreadCountListener listener) {
+        record("setUnreadCountListener(" + (listener != null) + ")");
+        unreadCountListener = listener;
+    }
+}
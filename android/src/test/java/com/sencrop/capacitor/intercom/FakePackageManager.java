@@ -0,0 +1,73 @@
+package com.sencrop.capacitor.intercom;
+
+import android.content.pm.PackageManager;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The package manager of an app whose manifest declares {@code installed}, reached through the
+ * calls {@link PackageManagerComponentBackend} makes. Each call is one binder IPC on a device and
+ * is counted as such; whether writes are batched is left to the real backend.
+ */
+class FakePackageManager implements PackageManagerComponentBackend.Packages {
+
+    static final int TIRAMISU = 33;
+
+    final int sdkInt;
+    private final Set<String> installed;
+    final Map<String, Integer> states = new HashMap<>();
+    int getPackageInfoCalls;
+    int getComponentEnabledSettingCalls;
+    int setComponentEnabledSettingCalls;
+    int setComponentEnabledSettingsCalls;
+
+    FakePackageManager(int sdkInt, String... installed) {
+        this.sdkInt = sdkInt;
+        this.installed = new HashSet<>(Arrays.asList(installed));
+    }
+
+    /** The real backend on this package manager, as {@link IntercomComponentController#get} builds it. */
+    PackageManagerComponentBackend backend() {
+        return new PackageManagerComponentBackend(this, sdkInt);
+    }
+
+    int getIpcCount() {
+        return getPackageInfoCalls + getComponentEnabledSettingCalls + setComponentEnabledSettingCalls + setComponentEnabledSettingsCalls;
+    }
+
+    @Override
+    public Set<String> getDeclaredComponents() {
+        getPackageInfoCalls++;
+        return new HashSet<>(installed);
+    }
+
+    @Override
+    public int getComponentEnabledSetting(String className) {
+        getComponentEnabledSettingCalls++;
+        if (!installed.contains(className)) {
+            throw new IllegalArgumentException("Unknown component: " + className);
+        }
+        Integer state = states.get(className);
+        return state != null ? state : PackageManager.COMPONENT_ENABLED_STATE_DEFAULT;
+    }
+
+    @Override
+    public void setComponentEnabledSetting(String className, int state) {
+        setComponentEnabledSettingCalls++;
+        states.put(className, state);
+    }
+
+    @Override
+    public void setComponentEnabledSettings(String[] classNames, int[] newStates) {
+        if (sdkInt < TIRAMISU) {
+            throw new NoSuchMethodError("setComponentEnabledSettings needs API 33");
+        }
+        setComponentEnabledSettingsCalls++;
+        for (int i = 0; i < classNames.length; i++) {
+            states.put(classNames[i], newStates[i]);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.sencrop.capacitor.intercom;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/** A bridge call that needs no bridge: it records how it completed and lets the test wait for it. */
+class FakePluginCall extends PluginCall {
+
+    private final CountDownLatch done = new CountDownLatch(1);
+    volatile boolean resolved;
+    volatile JSObject result;
+    volatile String rejection;
+
+    FakePluginCall(String method, JSObject data) {
+        super(null, "Intercom", "test-" + method, method, data != null ? data : new JSObject());
+    }
+
+    @Override
+    public void resolve() {
+        resolved = true;
+        done.countDown();
+    }
+
+    @Override
+    public void resolve(JSObject data) {
+        result = data;
+        resolve();
+    }
+
+    @Override
+    public void reject(String message) {
+        rejection = message;
+        done.countDown();
+    }
+
+    @Override
+    public void reject(String message, String code, Exception exception, JSObject data) {
+        reject(message);
+    }
+
+    /** Waits for the call to complete and returns whether it was resolved. */
+    boolean await(long timeoutMs) throws InterruptedException {
+        if (!done.await(timeoutMs, TimeUnit.MILLISECONDS)) {
+            throw new AssertionError(getMethodName() + " did not complete within " + timeoutMs + " ms");
+        }
+        return resolved;
+    }
+}
@@ -0,0 +1,105 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class IntercomAttributeBufferTest {
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final List<Map<String, Object>> sentCustom = new ArrayList<>();
+    private final List<Map<String, Object>> sentStandard = new ArrayList<>();
+    private String failure;
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private IntercomAttributeBuffer buffer() {
+        return new IntercomAttributeBuffer(
+            (standard, custom, callback) -> {
+                sentStandard.add(standard);
+                sentCustom.add(custom);
+                if (failure == null) {
+                    callback.onSuccess();
+                } else {
+                    callback.onFailure(failure);
+                }
+            },
+            executor,
+            60000
+        );
+    }
+
+    private static class RecordingCallback implements IntercomAttributeBuffer.Callback {
+
+        int successes;
+        String error;
+
+        @Override
+        public void onSuccess() {
+            successes++;
+        }
+
+        @Override
+        public void onFailure(String message) {
+            error = message;
+        }
+    }
+
+    private void awaitWorker() throws Exception {
+        executor.submit(() -> {}).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void mergesWritesIntoOneUpdate() throws Exception {
+        IntercomAttributeBuffer buffer = buffer();
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        RecordingCallback third = new RecordingCallback();
+
+        buffer.add(null, Collections.singletonMap("plan", "free"), first);
+        buffer.add(Collections.singletonMap("name", "Ada"), null, second);
+        Map<String, Object> latest = new HashMap<>();
+        latest.put("plan", "pro");
+        latest.put("farms", 3);
+        buffer.add(null, latest, third);
+        buffer.flush();
+        awaitWorker();
+
+        assertEquals(1, sentCustom.size());
+        assertEquals("pro", sentCustom.get(0).get("plan"));
+        assertEquals(3, sentCustom.get(0).get("farms"));
+        assertEquals("Ada", sentStandard.get(0).get("name"));
+        assertEquals(1, first.successes);
+        assertEquals(1, second.successes);
+        assertEquals(1, third.successes);
+        assertEquals(0, buffer.getPendingCallCount());
+    }
+
+    @Test
+    public void failureRejectsEveryCaller() throws Exception {
+        failure = "Intercom error : offline";
+        IntercomAttributeBuffer buffer = buffer();
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+
+        buffer.add(null, Collections.singletonMap("a", 1), first);
+        buffer.add(null, Collections.singletonMap("b", 2), second);
+        buffer.flush();
+        awaitWorker();
+
+        assertEquals(failure, first.error);
+        assertEquals(failure, second.error);
+    }
+}
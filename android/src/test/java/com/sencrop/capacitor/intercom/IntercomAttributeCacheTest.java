@@ -0,0 +1,102 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class IntercomAttributeCacheTest {
+
+    private static final String SCOPE = IntercomAttributeCache.CUSTOM_SCOPE;
+
+    private static class MemoryStorage implements IntercomAttributeCache.Storage {
+
+        Map<String, String> values = new HashMap<>();
+
+        @Override
+        public Map<String, String> load() {
+            return new HashMap<>(values);
+        }
+
+        @Override
+        public void save(Map<String, String> newValues) {
+            values = new HashMap<>(newValues);
+        }
+    }
+
+    private static Map<String, Object> attrs(String key, Object value) {
+        return Collections.singletonMap(key, value);
+    }
+
+    @Test
+    public void skipsAcknowledgedValues() {
+        IntercomAttributeCache cache = new IntercomAttributeCache(new MemoryStorage());
+        cache.setUser("id:1");
+
+        Map<String, Object> sent = cache.changed(SCOPE, attrs("plan", "pro"));
+        assertEquals(1, sent.size());
+        cache.confirm(SCOPE, sent);
+
+        assertTrue(cache.changed(SCOPE, attrs("plan", "pro")).isEmpty());
+        assertEquals(1, cache.changed(SCOPE, attrs("plan", "free")).size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void survivesRestartForSameUserOnly() {
+        MemoryStorage storage = new MemoryStorage();
+        IntercomAttributeCache cache = new IntercomAttributeCache(storage);
+        cache.setUser("id:1");
+        cache.confirm(SCOPE, cache.changed(SCOPE, attrs("plan", "pro")));
+
+        IntercomAttributeCache restarted = new IntercomAttributeCache(storage);
+        restarted.setUser("id:1");
+        assertTrue(restarted.changed(SCOPE, attrs("plan", "pro")).isEmpty());
+
+        restarted.setUser("id:2");
+        assertEquals(1, restarted.changed(SCOPE, attrs("plan", "pro")).size());
+    }
+
+    @Test
+    public void inFlightValueIsNotSkippedWhenRevertedOrRejected() {
+        IntercomAttributeCache cache = new IntercomAttributeCache(new MemoryStorage());
+        cache.confirm(SCOPE, attrs("plan", "free"));
+
+        Map<String, Object> pending = cache.changed(SCOPE, attrs("plan", "pro"));
+        // Switching back before "pro" is acknowledged must still be sent
+        assertEquals(1, cache.changed(SCOPE, attrs("plan", "free")).size());
+
+        cache.reject(SCOPE, attrs("plan", "free"));
+        cache.reject(SCOPE, pending);
+        assertTrue(cache.changed(SCOPE, attrs("plan", "free")).isEmpty());
+    }
+
+    @Test
+    public void logoutInvalidates() {
+        IntercomAttributeCache cache = new IntercomAttributeCache(new MemoryStorage());
+        cache.setUser("id:1");
+        cache.confirm(SCOPE, attrs("plan", "pro"));
+
+        cache.invalidate();
+
+        assertEquals(1, cache.changed(SCOPE, attrs("plan", "pro")).size());
+    }
+
+    @Test
+    public void pendingLoginKeepsTheCurrentUserUntilItSucceeds() {
+        IntercomAttributeCache cache = new IntercomAttributeCache(new MemoryStorage());
+        cache.setUser("id:1");
+        cache.confirm(SCOPE, attrs("plan", "pro"));
+
+        // A re-login of the same user keeps what was sent
+        cache.expectUser("id:1");
+        assertTrue(cache.changed(SCOPE, attrs("plan", "pro")).isEmpty());
+
+        // A login of someone else drops it straight away
+        cache.expectUser("id:2");
+        assertEquals(1, cache.changed(SCOPE, attrs("plan", "pro")).size());
+    }
+}
@@ -0,0 +1,152 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+
+import com.getcapacitor.PluginCall;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class IntercomBatchTest {
+
+    /** login completes only when the test says so; buffered methods complete on flush. */
+    private static class FakeDispatcher implements IntercomBatch.Dispatcher {
+
+        final List<String> started = new ArrayList<>();
+        final List<PluginCall> buffered = new ArrayList<>();
+        PluginCall pendingLogin;
+        int flushes;
+
+        @Override
+        public boolean dispatch(String method, PluginCall call) {
+            started.add(method);
+            switch (method) {
+                case "loginIdentifiedUser":
+                    pendingLogin = call;
+                    return true;
+                case "updateUser":
+                case "setCustomAttributes":
+                    buffered.add(call);
+                    return true;
+                case "displayMessenger":
+                    call.resolve();
+                    return true;
+                case "logout":
+                    call.reject("Intercom error : offline");
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        @Override
+        public boolean isBuffered(String method) {
+            return method.equals("updateUser") || method.equals("setCustomAttributes");
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+            List<PluginCall> calls = new ArrayList<>(buffered);
+            buffered.clear();
+            for (PluginCall call : calls) {
+                call.resolve();
+            }
+        }
+    }
+
+    private static List<IntercomBatch.Operation> operations(String... methods) {
+        List<IntercomBatch.Operation> operations = new ArrayList<>();
+        for (String method : methods) {
+            operations.add(new IntercomBatch.Operation(method, null));
+        }
+        return operations;
+    }
+
+    private static List<String> statuses(List<IntercomBatch.Result> results) {
+        List<String> statuses = new ArrayList<>();
+        for (IntercomBatch.Result result : results) {
+            statuses.add(result.status);
+        }
+        return statuses;
+    }
+
+    @Test
+    public void waitsForEachOperationBeforeStartingTheNext() {
+        FakeDispatcher dispatcher = new FakeDispatcher();
+        List<List<IntercomBatch.Result>> completed = new ArrayList<>();
+        IntercomBatch batch = new IntercomBatch(
+            operations("loginIdentifiedUser", "displayMessenger"),
+            IntercomBatch.Policy.STOP_ON_ERROR,
+            dispatcher,
+            completed::add
+        );
+
+        batch.run();
+        assertEquals(Arrays.asList("loginIdentifiedUser"), dispatcher.started);
+        assertTrue(completed.isEmpty());
+
+        dispatcher.pendingLogin.resolve();
+        assertEquals(Arrays.asList("loginIdentifiedUser", "displayMessenger"), dispatcher.started);
+        assertEquals(1, completed.size());
+        assertEquals(Arrays.asList("fulfilled", "fulfilled"), statuses(completed.get(0)));
+    }
+
+    @Test
+    public void startsBufferedRunTogetherAndFlushesOnce() {
+        FakeDispatcher dispatcher = new FakeDispatcher();
+        List<List<IntercomBatch.Result>> completed = new ArrayList<>();
+
+        new IntercomBatch(
+            operations("updateUser", "setCustomAttributes", "updateUser", "displayMessenger"),
+            IntercomBatch.Policy.STOP_ON_ERROR,
+            dispatcher,
+            completed::add
+        ).run();
+
+        assertEquals(Arrays.asList("updateUser", "setCustomAttributes", "updateUser", "displayMessenger"), dispatcher.started);
+        assertEquals(1, dispatcher.flushes);
+        assertEquals(Arrays.asList("fulfilled", "fulfilled", "fulfilled", "fulfilled"), statuses(completed.get(0)));
+    }
+
+    @Test
+    public void stopsAfterFirstFailureByDefault() {
+        FakeDispatcher dispatcher = new FakeDispatcher();
+        List<List<IntercomBatch.Result>> completed = new ArrayList<>();
+
+        new IntercomBatch(operations("logout", "displayMessenger"), IntercomBatch.Policy.STOP_ON_ERROR, dispatcher, completed::add).run();
+
+        List<IntercomBatch.Result> results = completed.get(0);
+        assertEquals(Arrays.asList("rejected", "skipped"), statuses(results));
+        assertEquals("Intercom error : offline", results.get(0).error);
+        assertEquals(Arrays.asList("logout"), dispatcher.started);
+    }
+
+    @Test
+    public void continuePolicyRunsEverything() {
+        FakeDispatcher dispatcher = new FakeDispatcher();
+        List<List<IntercomBatch.Result>> completed = new ArrayList<>();
+
+        new IntercomBatch(
+            operations("logout", "unknownMethod", "displayMessenger"),
+            IntercomBatch.Policy.from("continue"),
+            dispatcher,
+            completed::add
+        ).run();
+
+        List<IntercomBatch.Result> results = completed.get(0);
+        assertEquals(Arrays.asList("rejected", "rejected", "fulfilled"), statuses(results));
+        assertEquals("Unsupported batch operation: unknownMethod", results.get(1).error);
+    }
+
+    @Test
+    public void emptyBatchCompletesImmediately() {
+        List<List<IntercomBatch.Result>> completed = new ArrayList<>();
+
+        new IntercomBatch(operations(), IntercomBatch.Policy.STOP_ON_ERROR, new FakeDispatcher(), completed::add).run();
+
+        assertEquals(1, completed.size());
+        assertTrue(completed.get(0).isEmpty());
+    }
+}
@@ -0,0 +1,162 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.junit.After;
+import org.junit.Test;
+
+public class IntercomCallDispatcherTest {
+
+    /** Executor that runs tasks only when the test says so. */
+    private static final class ManualExecutor implements Executor {
+
+        final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        boolean runNext() {
+            if (tasks.isEmpty()) {
+                return false;
+            }
+            tasks.remove(0).run();
+            return true;
+        }
+    }
+
+    private final ManualExecutor worker = new ManualExecutor();
+    private final ManualExecutor main = new ManualExecutor();
+    private final List<String> ran = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        IntercomMetrics.resetForTesting();
+    }
+
+    @Test
+    public void runsCallsInOrderOnTheWorker() {
+        IntercomCallDispatcher dispatcher = new IntercomCallDispatcher(worker, main, 10);
+
+        dispatcher.submit(() -> ran.add("a"));
+        dispatcher.submit(() -> ran.add("b"));
+        assertTrue(ran.isEmpty());
+        assertEquals(1, worker.tasks.size());
+
+        worker.runNext();
+
+        assertEquals(List.of("a", "b"), ran);
+        assertEquals(2, dispatcher.getWaitTimes().getCount());
+    }
+
+    @Test
+    public void nextCallWaitsForMainThreadWork() {
+        IntercomCallDispatcher dispatcher = new IntercomCallDispatcher(worker, main, 10);
+
+        dispatcher.submit(() -> {
+            ran.add("present:worker");
+            dispatcher.runOnMain(() -> ran.add("present:main"));
+        });
+        dispatcher.submit(() -> ran.add("logout"));
+        worker.runNext();
+
+        assertEquals(List.of("present:worker"), ran);
+        assertTrue(worker.tasks.isEmpty());
+
+        main.runNext();
+        assertEquals(List.of("present:worker", "present:main"), ran);
+
+        worker.runNext();
+        assertEquals(List.of("present:worker", "present:main", "logout"), ran);
+    }
+
+    @Test
+    public void rejectsCallsBeyondCapacity() {
+        IntercomCallDispatcher dispatcher = new IntercomCallDispatcher(worker, main, 2);
+
+        assertTrue(dispatcher.submit(() -> {}));
+        assertTrue(dispatcher.submit(() -> {}));
+        assertFalse(dispatcher.submit(() -> {}));
+
+        assertEquals(1, dispatcher.getRejectedCount());
+        assertEquals(2, dispatcher.getMaxDepth());
+        worker.runNext();
+        assertEquals(0, dispatcher.getDepth());
+        assertTrue(dispatcher.submit(() -> {}));
+    }
+
+    @Test
+    public void dispatchedCallsKnowTheyAreDispatched() {
+        IntercomCallDispatcher dispatcher = new IntercomCallDispatcher(worker, main, 10);
+        List<Boolean> dispatching = new ArrayList<>();
+
+        dispatcher.submit(() -> dispatching.add(dispatcher.isDispatching()));
+        worker.runNext();
+
+        assertEquals(List.of(true), dispatching);
+        assertFalse(dispatcher.isDispatching());
+    }
+
+    @Test
+    public void failingCallDoesNotStallTheQueue() {
+        IntercomCallDispatcher dispatcher = new IntercomCallDispatcher(worker, main, 10);
+
+        dispatcher.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+        dispatcher.submit(() -> ran.add("after"));
+        worker.runNext();
+
+        assertEquals(List.of("after"), ran);
+        assertEquals(1, IntercomMetrics.suppressedErrors.get("callDispatcher.call").get());
+    }
+
+    @Test
+    public void callThrowingAnErrorDoesNotStallTheQueue() {
+        IntercomCallDispatcher dispatcher = new IntercomCallDispatcher(worker, main, 10);
+
+        dispatcher.submit(() -> {
+            throw new NoClassDefFoundError("io/intercom/android/sdk/Intercom");
+        });
+        dispatcher.submit(() -> ran.add("after"));
+        worker.runNext();
+
+        assertEquals(List.of("after"), ran);
+        assertEquals(1, IntercomMetrics.suppressedErrors.get("callDispatcher.call").get());
+    }
+
+    @Test
+    public void drainThatDiesStillLetsTheNextSubmitRun() {
+        Executor refusingMain = task -> {
+            throw new IllegalStateException("main looper is gone");
+        };
+        IntercomCallDispatcher dispatcher = new IntercomCallDispatcher(worker, refusingMain, 10);
+
+        dispatcher.submit(() -> dispatcher.runOnMain(() -> ran.add("main")));
+        try {
+            worker.runNext();
+            fail();
+        } catch (IllegalStateException expected) {}
+        assertFalse(dispatcher.isDispatching());
+
+        dispatcher.submit(() -> ran.add("next"));
+        worker.runNext();
+
+        assertEquals(List.of("next"), ran);
+    }
+
+    @Test
+    public void mainThreadWorkFromOutsideACallIsJustPosted() {
+        IntercomCallDispatcher dispatcher = new IntercomCallDispatcher(worker, main, 10);
+
+        dispatcher.runOnMain(() -> ran.add("main"));
+        main.runNext();
+
+        assertEquals(List.of("main"), ran);
+        assertTrue(worker.tasks.isEmpty());
+    }
+}
@@ -0,0 +1,270 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+
+import android.content.pm.PackageManager;
+import java.util.HashMap;
+import java.util.Map;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class IntercomComponentControllerTest {
+
+    private static final String[] COMPONENTS = { "a.Activity", "b.Service", "c.Missing" };
+
+    private static class FakeBackend implements IntercomComponentController.ComponentBackend {
+
+        final Map<String, Integer> states = new HashMap<>();
+        final boolean batching;
+        int lookups;
+        int reads;
+        int writes;
+
+        FakeBackend(boolean batching) {
+            this.batching = batching;
+        }
+
+        @Override
+        public boolean isPresent(String className) {
+            lookups++;
+            return !className.endsWith("Missing");
+        }
+
+        @Override
+        public int getState(String className) {
+            reads++;
+            Integer state = states.get(className);
+            return state != null ? state : PackageManager.COMPONENT_ENABLED_STATE_DEFAULT;
+        }
+
+        @Override
+        public int setStates(String[] classNames, int[] newStates) {
+            for (int i = 0; i < classNames.length; i++) {
+                states.put(classNames[i], newStates[i]);
+            }
+            int ipcs = batching ? 1 : classNames.length;
+            writes += ipcs;
+            return ipcs;
+        }
+    }
+
+    @Test
+    public void readsStateOnceAndSkipsUnchangedComponents() {
+        FakeBackend backend = new FakeBackend(true);
+        IntercomComponentController controller = new IntercomComponentController(backend, COMPONENTS);
+
+        controller.setEnabled(true);
+        assertEquals(2, backend.reads);
+        assertEquals(0, backend.writes);
+
+        int before = controller.getIssuedIpcCount();
+        controller.setEnabled(true);
+        controller.setEnabled(true);
+        assertEquals(before, controller.getIssuedIpcCount());
+    }
+
+    @Test
+    public void batchesChangedComponents() {
+        FakeBackend backend = new FakeBackend(true);
+        IntercomComponentController controller = new IntercomComponentController(backend, COMPONENTS);
+
+        // The manifest read, two state reads and one batched write
+        controller.setEnabled(false);
+        assertEquals(4, controller.getIssuedIpcCount());
+        assertEquals(1, backend.writes);
+        assertEquals(PackageManager.COMPONENT_ENABLED_STATE_DISABLED, (int) backend.states.get("a.Activity"));
+
+        controller.setEnabled(true);
+        assertEquals(5, controller.getIssuedIpcCount());
+        controller.setEnabled(true);
+        assertEquals(5, controller.getIssuedIpcCount());
+    }
+
+    @Test
+    public void writesEachComponentWithoutBatchSupport() {
+        FakeBackend backend = new FakeBackend(false);
+        backend.states.put("b.Service", PackageManager.COMPONENT_ENABLED_STATE_DISABLED);
+        IntercomComponentController controller = new IntercomComponentController(backend, COMPONENTS);
+
+        controller.setEnabled(false);
+        assertEquals(1, backend.writes);
+
+        controller.setEnabled(true);
+        assertEquals(3, backend.writes);
+        assertFalse(backend.states.containsKey("c.Missing"));
+    }
+
+    private static class MemoryStorage implements IntercomComponentController.Storage {
+
+        boolean presented;
+        int loads;
+
+        @Override
+        public boolean wasPresented() {
+            loads++;
+            return presented;
+        }
+
+        @Override
+        public void setPresented() {
+            presented = true;
+        }
+    }
+
+    private static IntercomComponentController.Settings settings(String json) throws Exception {
+        return IntercomComponentController.Settings.from(new JSONObject(json));
+    }
+
+    private static boolean isEnabled(FakeBackend backend, String className) {
+        Integer state = backend.states.get(className);
+        return state == null || state == PackageManager.COMPONENT_ENABLED_STATE_ENABLED;
+    }
+
+    @Test
+    public void readsPoliciesBySimpleClassName() throws Exception {
+        IntercomComponentController.Settings settings = settings(
+            "{\"default\":\"onFirstPresent\",\"Activity\":\"always\",\"Service\":\"bogus\"}"
+        );
+
+        assertEquals(IntercomComponentController.Policy.ALWAYS, settings.policy("a.Activity"));
+        assertEquals(IntercomComponentController.Policy.ON_FIRST_PRESENT, settings.policy("b.Service"));
+        assertEquals(IntercomComponentController.Policy.ON_FIRST_PRESENT, settings.policy("c.Other"));
+        assertEquals(IntercomComponentController.Policy.ON_INIT, IntercomComponentController.Settings.from(null).policy("a.Activity"));
+    }
+
+    @Test
+    public void alwaysAndNeverIgnoreInitialization() throws Exception {
+        FakeBackend backend = new FakeBackend(true);
+        backend.states.put("b.Service", PackageManager.COMPONENT_ENABLED_STATE_DISABLED);
+        IntercomComponentController controller = new IntercomComponentController(
+            backend,
+            settings("{\"Activity\":\"never\",\"Service\":\"always\"}"),
+            null,
+            COMPONENTS
+        );
+
+        controller.setEnabled(false);
+        assertFalse(isEnabled(backend, "a.Activity"));
+        assertTrue(isEnabled(backend, "b.Service"));
+
+        controller.setEnabled(true);
+        controller.onPresent();
+        assertFalse(isEnabled(backend, "a.Activity"));
+        assertTrue(isEnabled(backend, "b.Service"));
+        assertEquals(1, backend.writes);
+    }
+
+    @Test
+    public void onFirstPresentWaitsForTheFirstPresent() throws Exception {
+        FakeBackend backend = new FakeBackend(true);
+        MemoryStorage storage = new MemoryStorage();
+        IntercomComponentController controller = new IntercomComponentController(
+            backend,
+            settings("{\"Service\":\"onFirstPresent\"}"),
+            storage,
+            COMPONENTS
+        );
+
+        controller.setEnabled(false);
+        controller.setEnabled(true);
+        assertTrue(isEnabled(backend, "a.Activity"));
+        assertFalse(isEnabled(backend, "b.Service"));
+
+        controller.onPresent();
+        assertTrue(isEnabled(backend, "b.Service"));
+        assertTrue(storage.presented);
+
+        int ipcs = controller.getIssuedIpcCount();
+        controller.onPresent();
+        controller.setEnabled(true);
+        assertEquals(ipcs, controller.getIssuedIpcCount());
+        assertEquals(1, storage.loads);
+    }
+
+    @Test
+    public void pushEnablesOnFirstPresentWithoutRecordingAPresent() throws Exception {
+        FakeBackend backend = new FakeBackend(true);
+        MemoryStorage storage = new MemoryStorage();
+        IntercomComponentController controller = new IntercomComponentController(
+            backend,
+            settings("{\"Service\":\"onFirstPresent\"}"),
+            storage,
+            COMPONENTS
+        );
+
+        controller.setEnabled(false);
+        controller.onPush();
+        assertTrue(isEnabled(backend, "b.Service"));
+        assertFalse(storage.presented);
+
+        int ipcs = controller.getIssuedIpcCount();
+        controller.onPush();
+        assertEquals(ipcs, controller.getIssuedIpcCount());
+
+        // Actually showing the UI still records it
+        controller.onPresent();
+        assertTrue(storage.presented);
+        assertEquals(ipcs, controller.getIssuedIpcCount());
+    }
+
+    @Test
+    public void pushIsForgottenByTheNextProcess() throws Exception {
+        FakeBackend backend = new FakeBackend(true);
+        MemoryStorage storage = new MemoryStorage();
+        IntercomComponentController.Settings settings = settings("{\"Service\":\"onFirstPresent\"}");
+        new IntercomComponentController(backend, settings, storage, COMPONENTS).onPush();
+
+        IntercomComponentController next = new IntercomComponentController(backend, settings, storage, COMPONENTS);
+        next.setEnabled(true);
+
+        assertFalse(isEnabled(backend, "b.Service"));
+    }
+
+    @Test
+    public void onFirstPresentIsEnabledOnInitAfterAnEarlierPresent() throws Exception {
+        FakeBackend backend = new FakeBackend(true);
+        MemoryStorage storage = new MemoryStorage();
+        storage.presented = true;
+        IntercomComponentController controller = new IntercomComponentController(
+            backend,
+            settings("{\"default\":\"onFirstPresent\"}"),
+            storage,
+            COMPONENTS
+        );
+
+        controller.setEnabled(false);
+        assertFalse(isEnabled(backend, "a.Activity"));
+
+        controller.setEnabled(true);
+        assertTrue(isEnabled(backend, "a.Activity"));
+        assertTrue(isEnabled(backend, "b.Service"));
+    }
+
+    @Test
+    public void storageIsNotReadWithoutOnFirstPresentComponents() {
+        MemoryStorage storage = new MemoryStorage();
+        IntercomComponentController controller = new IntercomComponentController(
+            new FakeBackend(true),
+            IntercomComponentController.Settings.from(null),
+            storage,
+            COMPONENTS
+        );
+
+        controller.setEnabled(false);
+        controller.setEnabled(true);
+
+        assertEquals(0, storage.loads);
+    }
+
+    @Test
+    public void missingComponentsAreLookedUpOnce() {
+        FakeBackend backend = new FakeBackend(true);
+        IntercomComponentController controller = new IntercomComponentController(backend, COMPONENTS);
+
+        controller.setEnabled(false);
+        controller.setEnabled(true);
+        controller.onPresent();
+
+        assertEquals(COMPONENTS.length, backend.lookups);
+    }
+}
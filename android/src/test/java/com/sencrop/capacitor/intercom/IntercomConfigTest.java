@@ -0,0 +1,86 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IntercomConfigTest {
+
+    private static final String CONFIG =
+        "{\n" +
+        "  \"appId\": \"com.example.app\",\n" +
+        "  \"server\": { \"hostname\": \"x\", \"allowNavigation\": [\"a\", \"b}\"] },\n" +
+        "  \"plugins\": {\n" +
+        "    \"SplashScreen\": { \"launchShowDuration\": 0, \"note\": \"{\\\"Intercom\\\": 1}\" },\n" +
+        "    \"Intercom\": {\n" +
+        "      \"android_apiKey\": \"android_sdk-key\",\n" +
+        "      \"androidAppId\": \"app-id\",\n" +
+        "      \"enableEarlyInit\": true,\n" +
+        "      \"nested\": { \"list\": [1, 2, { \"k\": \"v\" }] }\n" +
+        "    },\n" +
+        "    \"Other\": {}\n" +
+        "  }\n" +
+        "}";
+
+    private int opens;
+
+    @Before
+    public void setUp() {
+        IntercomConfig.resetForTesting();
+        opens = 0;
+    }
+
+    @After
+    public void tearDown() {
+        IntercomConfig.resetForTesting();
+    }
+
+    private IntercomConfig.Source source(String json) {
+        return () -> {
+            opens++;
+            return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    @Test
+    public void readsIntercomSection() {
+        IntercomConfig config = IntercomConfig.get(source(CONFIG));
+
+        assertEquals("android_sdk-key", config.getApiKey());
+        assertEquals("app-id", config.getAppId());
+        assertTrue(config.getBoolean("enableEarlyInit", false));
+        assertEquals(3, config.getObject("nested").optJSONArray("list").length());
+    }
+
+    @Test
+    public void opensAssetOncePerProcess() {
+        IntercomConfig.Source source = source(CONFIG);
+
+        IntercomConfig first = IntercomConfig.get(source);
+        IntercomConfig second = IntercomConfig.get(source);
+
+        assertSame(first, second);
+        assertEquals(1, opens);
+        assertEquals(1, IntercomConfig.getAssetOpenCount());
+    }
+
+    @Test
+    public void missingSectionIsEmpty() {
+        IntercomConfig config = IntercomConfig.get(source("{\"plugins\": {\"Other\": {\"Intercom\": {}}}}"));
+
+        assertNull(config.getApiKey());
+        assertFalse(config.getBoolean("enableEarlyInit", false));
+    }
+
+    @Test
+    public void malformedConfigIsEmpty() {
+        IntercomConfig config = IntercomConfig.get(source("{\"plugins\": {\"Intercom\": {\"appId\": "));
+
+        assertNull(config.getAppId());
+        assertEquals(1, IntercomConfig.getAssetOpenCount());
+    }
+}
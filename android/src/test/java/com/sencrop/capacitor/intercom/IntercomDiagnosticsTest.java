@@ -0,0 +1,87 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import org.junit.After;
+import org.junit.Test;
+
+public class IntercomDiagnosticsTest {
+
+    @After
+    public void tearDown() {
+        IntercomMetrics.resetForTesting();
+    }
+
+    @Test
+    public void keepsTheLatestEntriesOldestFirst() {
+        IntercomDiagnostics.configure(4);
+        for (int i = 0; i < 6; i++) {
+            IntercomDiagnostics.record("site" + i, new IllegalStateException());
+        }
+
+        List<IntercomDiagnostics.Entry> entries = IntercomDiagnostics.snapshot();
+
+        assertEquals(4, entries.size());
+        assertEquals("site2", entries.get(0).site);
+        assertEquals("site5", entries.get(3).site);
+        assertEquals("java.lang.IllegalStateException", entries.get(0).type);
+        assertTrue(entries.get(0).timestampMs > 0);
+        assertEquals(6, IntercomDiagnostics.getRecordedCount());
+        assertEquals(2, IntercomDiagnostics.getOverwrittenCount());
+    }
+
+    @Test
+    public void capacityIsRoundedUpToAPowerOfTwo() {
+        IntercomDiagnostics.configure(5);
+        assertEquals(8, IntercomDiagnostics.getCapacity());
+
+        IntercomDiagnostics.configure(1);
+        assertEquals(1, IntercomDiagnostics.getCapacity());
+    }
+
+    @Test
+    public void suppressedErrorsAreKeptEvenWithMetricsDisabled() {
+        IntercomMetrics.configure(false, false);
+
+        IntercomMetrics.suppressed("provider.onCreate", new NoClassDefFoundError());
+
+        assertTrue(IntercomMetrics.suppressedErrorTypes.isEmpty());
+        List<IntercomDiagnostics.Entry> entries = IntercomDiagnostics.snapshot();
+        assertEquals(1, entries.size());
+        assertEquals("provider.onCreate", entries.get(0).site);
+        assertEquals("java.lang.NoClassDefFoundError", entries.get(0).type);
+    }
+
+    @Test
+    public void suppressedErrorsAreCountedByType() {
+        IntercomMetrics.suppressed("a", new IllegalStateException());
+        IntercomMetrics.suppressed("b", new IllegalStateException());
+
+        assertEquals(2, IntercomMetrics.suppressedErrorTypes.get("java.lang.IllegalStateException").get());
+    }
+
+    @Test
+    public void concurrentWritersNeverBlockOrLoseTheCount() throws Exception {
+        IntercomDiagnostics.configure(16);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    IntercomDiagnostics.record("concurrent", new RuntimeException());
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        List<IntercomDiagnostics.Entry> entries = IntercomDiagnostics.snapshot();
+        assertEquals(4000, IntercomDiagnostics.getRecordedCount());
+        assertEquals(16, entries.size());
+        for (int i = 1; i < entries.size(); i++) {
+            assertTrue(entries.get(i - 1).sequence < entries.get(i).sequence);
+        }
+    }
+}
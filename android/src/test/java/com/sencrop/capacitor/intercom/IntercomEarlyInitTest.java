@@ -0,0 +1,52 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class IntercomEarlyInitTest {
+
+    @After
+    public void tearDown() {
+        IntercomMetrics.resetForTesting();
+    }
+
+    @Test
+    public void whenDoneRunsRightAwayWithoutAPendingInit() {
+        List<String> ran = new ArrayList<>();
+
+        IntercomEarlyInit.whenDone(() -> ran.add("now"));
+
+        assertEquals(List.of("now"), ran);
+    }
+
+    @Test
+    public void deferredCallsDrainOnceTheAsyncEarlyInitFinishes() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        IntercomEarlyInit.start(() -> release.await(5, TimeUnit.SECONDS));
+        IntercomPendingCalls pendingCalls = new IntercomPendingCalls(10);
+        final List<String> ran = new ArrayList<>();
+        pendingCalls.offer(() -> ran.add("logEvent"));
+        final CountDownLatch drained = new CountDownLatch(1);
+
+        // What the deferred-init trigger does on the main thread while the early init is running
+        long start = System.nanoTime();
+        IntercomEarlyInit.whenDone(() -> {
+            pendingCalls.drain();
+            drained.countDown();
+        });
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        assertTrue(IntercomEarlyInit.isPending());
+        assertTrue(ran.isEmpty());
+
+        release.countDown();
+        assertTrue(drained.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("logEvent"), ran);
+        assertFalse(pendingCalls.isOpen());
+    }
+}
@@ -0,0 +1,112 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class IntercomEventAggregatorTest {
+
+    private final List<String> names = new ArrayList<>();
+    private final List<Map<String, Object>> summaries = new ArrayList<>();
+    private boolean accepting = true;
+
+    private final IntercomEventAggregator.SummarySink sink = (name, metadata) -> {
+        if (!accepting) {
+            return false;
+        }
+        names.add(name);
+        summaries.add(metadata);
+        return true;
+    };
+
+    private static IntercomEventAggregator aggregator(String json) throws Exception {
+        return new IntercomEventAggregator(IntercomEventAggregator.Settings.from(new JSONObject(json)));
+    }
+
+    @Test
+    public void aggregatesOnlyConfiguredNames() throws Exception {
+        IntercomEventAggregator aggregator = aggregator("{\"events\":{\"scroll\":{\"value\":\"distance\"}}}");
+
+        assertTrue(aggregator.isAggregated("scroll"));
+        assertFalse(aggregator.isAggregated("purchase"));
+        assertFalse(aggregator.isAggregated(null));
+        assertFalse(IntercomEventAggregator.Settings.from(null).enabled);
+    }
+
+    @Test
+    public void sendsOneSummaryPerNameWithTheAggregates() throws Exception {
+        IntercomEventAggregator aggregator = aggregator("{\"events\":{\"scroll\":{\"value\":\"distance\",\"summaryEvent\":\"scroll_summary\"}}}");
+
+        aggregator.add("scroll", new JSONObject("{\"distance\":120}"), 1000);
+        aggregator.add("scroll", new JSONObject("{\"distance\":30}"), 2000);
+        aggregator.add("scroll", new JSONObject("{\"distance\":\"far\"}"), 2500);
+        aggregator.add("scroll", null, 3000);
+
+        assertEquals(1, aggregator.flush(sink));
+
+        assertEquals("scroll_summary", names.get(0));
+        Map<String, Object> summary = summaries.get(0);
+        assertEquals(4L, summary.get("count"));
+        assertEquals(150L, summary.get("sum"));
+        assertEquals(30L, summary.get("min"));
+        assertEquals(120L, summary.get("max"));
+        assertEquals(1000L, summary.get("firstAt"));
+        assertEquals(3000L, summary.get("lastAt"));
+        assertEquals(4, aggregator.getAggregatedCount());
+        assertEquals(1, aggregator.getSummaryCount());
+    }
+
+    @Test
+    public void countOnlyRulesSendNoValueAggregates() throws Exception {
+        IntercomEventAggregator aggregator = aggregator("{\"events\":{\"tap\":{}}}");
+
+        aggregator.add("tap", new JSONObject("{\"x\":2.5}"), 10);
+        aggregator.flush(sink);
+
+        assertEquals("tap", names.get(0));
+        assertEquals(1L, summaries.get(0).get("count"));
+        assertFalse(summaries.get(0).containsKey("sum"));
+    }
+
+    @Test
+    public void eachFlushStartsOver() throws Exception {
+        IntercomEventAggregator aggregator = aggregator("{\"events\":{\"scroll\":{\"value\":\"distance\"},\"tap\":{}}}");
+
+        aggregator.add("scroll", new JSONObject("{\"distance\":1.5}"), 10);
+        aggregator.flush(sink);
+        aggregator.add("scroll", new JSONObject("{\"distance\":4}"), 20);
+
+        assertEquals(1, aggregator.getPendingCount());
+        assertEquals(1, aggregator.flush(sink));
+        assertEquals(0, aggregator.flush(sink));
+
+        assertEquals(1.5, summaries.get(0).get("sum"));
+        assertEquals(4L, summaries.get(1).get("min"));
+        assertEquals(20L, summaries.get(1).get("firstAt"));
+    }
+
+    @Test
+    public void keepsWhatTheSinkCannotTakeYet() throws Exception {
+        IntercomEventAggregator aggregator = aggregator("{\"events\":{\"scroll\":{\"value\":\"distance\"}}}");
+        aggregator.add("scroll", new JSONObject("{\"distance\":10}"), 100);
+        accepting = false;
+        assertEquals(0, aggregator.flush(sink));
+
+        aggregator.add("scroll", new JSONObject("{\"distance\":2}"), 200);
+        accepting = true;
+        assertEquals(1, aggregator.flush(sink));
+
+        Map<String, Object> summary = summaries.get(0);
+        assertEquals(2L, summary.get("count"));
+        assertEquals(12L, summary.get("sum"));
+        assertEquals(2L, summary.get("min"));
+        assertEquals(10L, summary.get("max"));
+        assertEquals(100L, summary.get("firstAt"));
+        assertEquals(200L, summary.get("lastAt"));
+        assertEquals(1, aggregator.getSummaryCount());
+    }
+}
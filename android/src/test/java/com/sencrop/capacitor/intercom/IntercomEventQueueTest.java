@@ -0,0 +1,113 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class IntercomEventQueueTest {
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private IntercomEventQueue queue(int capacity, int flushSize, long coalesceWindowMs) {
+        IntercomEventQueue.Settings settings = new IntercomEventQueue.Settings(true, capacity, flushSize, 60000, coalesceWindowMs);
+        return new IntercomEventQueue(settings, (name, metadata) -> sent.add(name), executor);
+    }
+
+    private void awaitWorker() throws Exception {
+        executor.submit(() -> {}).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void flushesInOrderWhenBatchIsFull() throws Exception {
+        IntercomEventQueue queue = queue(10, 3, 0);
+
+        queue.enqueue("a", null);
+        queue.enqueue("b", null);
+        awaitWorker();
+        assertTrue(sent.isEmpty());
+
+        queue.enqueue("c", null);
+        awaitWorker();
+        assertEquals(List.of("a", "b", "c"), sent);
+        assertEquals(0, queue.getDepth());
+        assertEquals(3, queue.getDispatchedCount());
+    }
+
+    @Test
+    public void coalescesIdenticalEventsInsideWindow() throws Exception {
+        IntercomEventQueue queue = queue(10, 10, 60000);
+        Map<String, Object> metadata = Collections.singletonMap("screen", "home");
+
+        queue.enqueue("view", metadata);
+        queue.enqueue("view", Collections.singletonMap("screen", "home"));
+        queue.enqueue("view", Collections.singletonMap("screen", "map"));
+        queue.flush();
+        awaitWorker();
+
+        assertEquals(2, sent.size());
+        assertEquals(1, queue.getCoalescedCount());
+    }
+
+    @Test
+    public void dropsWhenFull() {
+        IntercomEventQueue queue = queue(2, 2, 0);
+        // Block the worker so nothing drains while we fill the queue
+        executor.execute(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException ignored) {}
+        });
+
+        assertTrue(queue.enqueue("a", null));
+        assertTrue(queue.enqueue("b", null));
+        assertFalse(queue.enqueue("c", null));
+        assertEquals(1, queue.getDroppedCount());
+        assertEquals(2, queue.getDepth());
+    }
+
+    @Test
+    public void isOffUnlessEnabled() throws Exception {
+        assertFalse(IntercomEventQueue.Settings.from(null).enabled);
+        assertTrue(IntercomEventQueue.Settings.from(new org.json.JSONObject("{\"enabled\":true}")).enabled);
+    }
+
+    @Test
+    public void remembersAtMostCapacityEventsForCoalescing() throws Exception {
+        IntercomEventQueue queue = queue(4, 4, 60000);
+
+        for (int i = 0; i < 20; i++) {
+            queue.enqueue("view", Collections.singletonMap("screen", "s" + i));
+            queue.flush();
+            awaitWorker();
+        }
+
+        assertEquals(4, queue.getCoalesceKeyCount());
+        assertEquals(20, sent.size());
+    }
+
+    @Test
+    public void forgetsEventsOnceTheirWindowHasPassed() throws Exception {
+        IntercomEventQueue queue = queue(10, 10, 20);
+
+        queue.enqueue("a", null);
+        queue.enqueue("b", null);
+        Thread.sleep(50);
+        queue.enqueue("c", null);
+
+        assertEquals(1, queue.getCoalesceKeyCount());
+    }
+}
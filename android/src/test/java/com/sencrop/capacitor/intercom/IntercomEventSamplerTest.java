@@ -0,0 +1,121 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class IntercomEventSamplerTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static IntercomEventSampler sampler(String json) throws Exception {
+        return new IntercomEventSampler(IntercomEventSampler.Settings.from(new JSONObject(json)));
+    }
+
+    private static int admitted(IntercomEventSampler sampler, String name, int attempts, long nowNanos) {
+        int admitted = 0;
+        for (int i = 0; i < attempts; i++) {
+            if (sampler.admit(name, nowNanos)) {
+                admitted++;
+            }
+        }
+        return admitted;
+    }
+
+    @Test
+    public void tokenBucketAllowsBurstThenRefillsAtRate() throws Exception {
+        IntercomEventSampler sampler = sampler("{\"events\":{\"scroll\":{\"ratePerSecond\":2,\"burst\":3}}}");
+
+        assertEquals(3, admitted(sampler, "scroll", 10, 0));
+        assertEquals(1, admitted(sampler, "scroll", 10, SECOND / 2));
+        assertEquals(3, admitted(sampler, "scroll", 10, 10 * SECOND));
+        assertEquals(23, sampler.getDroppedCount());
+    }
+
+    @Test
+    public void samplingKeepsAnEvenFraction() throws Exception {
+        IntercomEventSampler sampler = sampler("{\"events\":{\"sensor\":{\"sampleRate\":0.25}}}");
+
+        assertEquals(25, admitted(sampler, "sensor", 100, 0));
+    }
+
+    @Test
+    public void firstPerSessionResetsWithTheSession() throws Exception {
+        IntercomEventSampler sampler = sampler("{\"events\":{\"tour_step\":{\"firstPerSession\":2}}}");
+
+        assertEquals(2, admitted(sampler, "tour_step", 5, 0));
+        sampler.resetSession();
+        assertEquals(2, admitted(sampler, "tour_step", 5, 0));
+    }
+
+    @Test
+    public void listsOverrideRulesAndUnlistedNamesUseTheDefault() throws Exception {
+        IntercomEventSampler sampler = sampler(
+            "{\"allow\":[\"purchase\"],\"deny\":[\"debug\"],\"default\":{\"firstPerSession\":1}}"
+        );
+
+        assertEquals(5, admitted(sampler, "purchase", 5, 0));
+        assertEquals(0, admitted(sampler, "debug", 5, 0));
+        assertEquals(1, admitted(sampler, "other", 5, 0));
+        assertEquals(6, sampler.getPassedCount());
+        assertEquals(9, sampler.getDroppedCount());
+    }
+
+    @Test
+    public void namesWithoutARuleAreNotLimited() throws Exception {
+        IntercomEventSampler sampler = sampler("{\"events\":{\"scroll\":{\"ratePerSecond\":1}}}");
+
+        assertEquals(50, admitted(sampler, "purchase", 50, 0));
+    }
+
+    @Test
+    public void summaryReportsDropsOnceAndSplitsLargeSummaries() throws Exception {
+        IntercomEventSampler sampler = sampler("{\"deny\":[\"a\",\"b\",\"c\"],\"summaryMaxKeys\":2}");
+        admitted(sampler, "a", 3, 0);
+        admitted(sampler, "b", 1, 0);
+        admitted(sampler, "c", 1, 0);
+        List<Map<String, Object>> summaries = new ArrayList<>();
+
+        sampler.emitSummary((name, metadata) -> {
+            assertEquals("intercom_events_dropped", name);
+            summaries.add(metadata);
+            return true;
+        });
+        sampler.emitSummary((name, metadata) -> summaries.add(metadata));
+
+        assertEquals(2, summaries.size());
+        Map<String, Object> merged = new HashMap<>(summaries.get(0));
+        merged.putAll(summaries.get(1));
+        assertEquals(3, merged.size());
+        assertEquals(3L, merged.get("a"));
+        assertEquals(2, sampler.getSummaryCount());
+    }
+
+    @Test
+    public void summaryKeepsCountsTheSinkCannotTake() throws Exception {
+        IntercomEventSampler sampler = sampler("{\"deny\":[\"debug\"]}");
+        admitted(sampler, "debug", 4, 0);
+        List<Map<String, Object>> summaries = new ArrayList<>();
+
+        sampler.emitSummary((name, metadata) -> false);
+        admitted(sampler, "debug", 1, 0);
+        sampler.emitSummary((name, metadata) -> summaries.add(metadata));
+
+        assertEquals(1, summaries.size());
+        assertEquals(5L, summaries.get(0).get("debug"));
+    }
+
+    @Test
+    public void disabledUnlessConfigured() throws Exception {
+        assertFalse(IntercomEventSampler.Settings.from(null).enabled);
+        assertTrue(IntercomEventSampler.Settings.from(new JSONObject().put("deny", new JSONArray())).enabled);
+        assertFalse(IntercomEventSampler.Settings.from(new JSONObject().put("enabled", false)).enabled);
+    }
+}
@@ -0,0 +1,163 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class IntercomIdentityTest {
+
+    private static final class MemoryStorage implements IntercomIdentity.Storage {
+
+        String fingerprint;
+        int saves;
+
+        @Override
+        public String load() {
+            return fingerprint;
+        }
+
+        @Override
+        public void save(String fingerprint) {
+            this.fingerprint = fingerprint;
+            saves++;
+        }
+    }
+
+    private final MemoryStorage storage = new MemoryStorage();
+    private final FakeIntercomSdk sdk = new FakeIntercomSdk();
+    private final List<String> results = new ArrayList<>();
+
+    private IntercomSdk.Callback result(final String name) {
+        return new IntercomSdk.Callback() {
+            @Override
+            public void onSuccess() {
+                results.add(name + ":ok");
+            }
+
+            @Override
+            public void onFailure(String message) {
+                results.add(name + ":" + message);
+            }
+        };
+    }
+
+    @Test
+    public void sameIdentitySkipsTheSdk() {
+        IntercomIdentity identity = new IntercomIdentity(storage, sdk, true);
+
+        identity.login("42", "a@example.com", "hash", result("first"));
+        identity.login("42", "a@example.com", "hash", result("second"));
+
+        assertEquals(List.of("setUserHash(hash)", "loginIdentifiedUser(42, a@example.com)"), sdk.calls());
+        assertEquals(List.of("first:ok", "second:ok"), results);
+        assertEquals(1, identity.getSkippedCount());
+    }
+
+    @Test
+    public void persistedIdentitySurvivesARelaunch() {
+        new IntercomIdentity(storage, sdk, true).login("42", "", null, result("before"));
+        FakeIntercomSdk relaunched = new FakeIntercomSdk();
+
+        new IntercomIdentity(storage, relaunched, true).login("42", null, null, result("after"));
+
+        assertTrue(relaunched.calls().isEmpty());
+        assertFalse(storage.fingerprint.contains("42"));
+    }
+
+    @Test
+    public void switchingUsersLogsOutFirst() {
+        IntercomIdentity identity = new IntercomIdentity(storage, sdk, true);
+
+        identity.login("42", null, null, result("a"));
+        identity.login("43", null, null, result("b"));
+
+        assertEquals(
+            List.of("loginIdentifiedUser(42, null)", "logout()", "loginIdentifiedUser(43, null)"),
+            sdk.calls()
+        );
+        assertEquals(1, identity.getSwitchCount());
+    }
+
+    @Test
+    public void unidentifiedUserIsConvertedWithoutLogout() {
+        IntercomIdentity identity = new IntercomIdentity(storage, sdk, true);
+        identity.onUnidentifiedLogin();
+
+        identity.login("42", null, null, result("a"));
+
+        assertEquals(List.of("loginIdentifiedUser(42, null)"), sdk.calls());
+    }
+
+    @Test
+    public void concurrentLoginsShareOneRequest() {
+        sdk.holdCallbacks = true;
+        IntercomIdentity identity = new IntercomIdentity(storage, sdk, true);
+
+        identity.login("42", null, null, result("a"));
+        identity.login("42", null, null, result("b"));
+        assertTrue(results.isEmpty());
+
+        sdk.release();
+
+        assertEquals(List.of("loginIdentifiedUser(42, null)"), sdk.calls());
+        assertEquals(List.of("a:ok", "b:ok"), results);
+        assertEquals(1, identity.getCollapsedCount());
+    }
+
+    @Test
+    public void loginForAnotherUserWaitsForTheOneInFlight() {
+        sdk.holdCallbacks = true;
+        IntercomIdentity identity = new IntercomIdentity(storage, sdk, true);
+
+        identity.login("42", null, null, result("a"));
+        identity.login("43", null, null, result("b"));
+        assertEquals(List.of("loginIdentifiedUser(42, null)"), sdk.calls());
+
+        sdk.release();
+        sdk.release();
+
+        assertEquals(
+            List.of("loginIdentifiedUser(42, null)", "logout()", "loginIdentifiedUser(43, null)"),
+            sdk.calls()
+        );
+        assertEquals(List.of("a:ok", "b:ok"), results);
+    }
+
+    @Test
+    public void failedLoginIsNotRemembered() {
+        sdk.failure = "network";
+        IntercomIdentity identity = new IntercomIdentity(storage, sdk, true);
+
+        identity.login("42", null, null, result("a"));
+        sdk.failure = null;
+        identity.login("42", null, null, result("b"));
+
+        assertEquals(List.of("a:network", "b:ok"), results);
+        assertEquals(2, identity.getLoginCount());
+    }
+
+    @Test
+    public void logoutForgetsTheIdentity() {
+        IntercomIdentity identity = new IntercomIdentity(storage, sdk, true);
+        identity.login("42", null, null, result("a"));
+
+        identity.onLogout();
+        identity.login("42", null, null, result("b"));
+
+        assertEquals(2, identity.getLoginCount());
+        assertEquals(0, identity.getSwitchCount());
+    }
+
+    @Test
+    public void withoutTheFastPathEveryLoginReachesTheSdk() {
+        IntercomIdentity identity = new IntercomIdentity(storage, sdk, false);
+
+        identity.login("42", null, null, result("a"));
+        identity.login("42", null, null, result("b"));
+
+        assertEquals(2, identity.getLoginCount());
+        assertEquals(0, identity.getSwitchCount());
+    }
+}
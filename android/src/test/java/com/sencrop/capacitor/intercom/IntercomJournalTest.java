@@ -0,0 +1,185 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IntercomJournalTest {
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private File file;
+
+    @Before
+    public void setUp() {
+        file = new File(temp.getRoot(), "intercom/journal.jsonl");
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private IntercomJournal journal(long maxBytes, int maxReplay) {
+        return new IntercomJournal(file, new IntercomJournal.Settings(true, maxBytes, 4, 60000, maxReplay), executor);
+    }
+
+    private void awaitWorker() throws Exception {
+        executor.submit(() -> {}).get(5, TimeUnit.SECONDS);
+    }
+
+    /** Blocks the worker until the returned latch is released; counts {@code paused} down once it's blocked. */
+    private CountDownLatch hold(final CountDownLatch paused) {
+        final CountDownLatch resume = new CountDownLatch(1);
+        executor.execute(() -> {
+            if (paused != null) {
+                paused.countDown();
+            }
+            try {
+                resume.await();
+            } catch (InterruptedException ignored) {}
+        });
+        return resume;
+    }
+
+    private static JSONObject event(String name) throws Exception {
+        return new JSONObject().put("type", "event").put("name", name);
+    }
+
+    @Test
+    public void replaysInOrderAndEmptiesTheJournal() throws Exception {
+        IntercomJournal journal = journal(64 * 1024, 100);
+        journal.append(event("a"));
+        journal.append(event("b"));
+        awaitWorker();
+        assertTrue(journal.hasBacklog());
+
+        List<String> replayed = new ArrayList<>();
+        journal.replay(record -> replayed.add(record.optString("name")));
+        awaitWorker();
+
+        assertEquals(List.of("a", "b"), replayed);
+        assertFalse(journal.hasBacklog());
+        assertEquals(2, journal.getReplayedCount());
+    }
+
+    @Test
+    public void keepsRecordsTheReplayerRefuses() throws Exception {
+        IntercomJournal journal = journal(64 * 1024, 100);
+        journal.append(event("a"));
+        journal.append(event("b"));
+        journal.append(event("c"));
+
+        List<String> replayed = new ArrayList<>();
+        journal.replay(record -> !"b".equals(record.optString("name")) && replayed.add(record.optString("name")));
+        awaitWorker();
+        assertEquals(List.of("a"), replayed);
+        assertEquals(2, journal.getBacklogCount());
+
+        journal.replay(record -> replayed.add(record.optString("name")));
+        awaitWorker();
+        assertEquals(List.of("a", "b", "c"), replayed);
+    }
+
+    @Test
+    public void survivesRestart() throws Exception {
+        IntercomJournal journal = journal(64 * 1024, 100);
+        journal.append(event("a"));
+        awaitWorker();
+
+        IntercomJournal reopened = journal(64 * 1024, 100);
+        awaitWorker();
+        assertEquals(1, reopened.getBacklogCount());
+
+        List<String> replayed = new ArrayList<>();
+        reopened.replay(record -> replayed.add(record.optString("name")));
+        awaitWorker();
+        assertEquals(List.of("a"), replayed);
+    }
+
+    @Test
+    public void dropsRecordsOverTheSizeCap() throws Exception {
+        IntercomJournal journal = journal(1024, 100);
+        for (int i = 0; i < 100; i++) {
+            journal.append(event("event-" + i));
+        }
+        awaitWorker();
+
+        assertTrue(journal.getDroppedCount() > 0);
+        assertTrue(file.length() <= 1024);
+        assertEquals(100, journal.getBacklogCount() + journal.getDroppedCount());
+    }
+
+    @Test
+    public void replaysAtMostMaxReplayRecordsPerPass() throws Exception {
+        IntercomJournal journal = journal(64 * 1024, 2);
+        journal.append(event("a"));
+        journal.append(event("b"));
+        journal.append(event("c"));
+
+        // Holds the worker between the first pass and the one it queues: the first pass is queued
+        // behind one hold, and a second hold is queued before that pass can queue the next
+        CountDownLatch resumeFirst = hold(null);
+        List<String> replayed = new ArrayList<>();
+        journal.replay(record -> replayed.add(record.optString("name")));
+        CountDownLatch paused = new CountDownLatch(1);
+        CountDownLatch resume = hold(paused);
+        resumeFirst.countDown();
+        assertTrue(paused.await(5, TimeUnit.SECONDS));
+
+        assertEquals(List.of("a", "b"), replayed);
+        assertEquals(1, journal.getBacklogCount());
+
+        resume.countDown();
+        awaitWorker();
+        assertEquals(List.of("a", "b", "c"), replayed);
+        assertFalse(journal.hasBacklog());
+    }
+
+    @Test
+    public void countsAsBacklogUntilTheFileIsCountedAndAppendsAreWritten() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {}
+        });
+        IntercomJournal journal = journal(64 * 1024, 100);
+        assertTrue(journal.hasBacklog());
+        release.countDown();
+        awaitWorker();
+        assertFalse(journal.hasBacklog());
+
+        CountDownLatch appended = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                appended.await();
+            } catch (InterruptedException ignored) {}
+        });
+        journal.append(event("a"));
+        assertTrue(journal.hasBacklog());
+        appended.countDown();
+        awaitWorker();
+        assertEquals(1, journal.getBacklogCount());
+    }
+
+    @Test
+    public void isOffUnlessEnabled() throws Exception {
+        assertFalse(IntercomJournal.Settings.from(null).enabled);
+        assertTrue(IntercomJournal.Settings.from(new JSONObject("{\"enabled\":true}")).enabled);
+    }
+}
@@ -0,0 +1,107 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class IntercomJsonConverterTest {
+
+    private static IntercomJsonConverter converter(int maxDepth, int maxKeys, int maxStringLength, boolean truncate) {
+        return new IntercomJsonConverter(new IntercomJsonConverter.Limits(maxDepth, maxKeys, maxStringLength, truncate));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void convertsNestedPayload() throws Exception {
+        JSONObject json = new JSONObject("{\"a\": 1, \"b\": \"x\", \"c\": {\"d\": [true, {\"e\": 2.5}, [\"f\"]]}}");
+
+        Map<String, Object> map = converter(5, 100, 255, false).toMap(json);
+
+        assertEquals(1, map.get("a"));
+        assertEquals("x", map.get("b"));
+        List<Object> d = (List<Object>) ((Map<String, Object>) map.get("c")).get("d");
+        assertEquals(true, d.get(0));
+        assertEquals(2.5, ((Number) ((Map<String, Object>) d.get(1)).get("e")).doubleValue(), 0);
+        assertEquals("f", ((List<Object>) d.get(2)).get(0));
+    }
+
+    @Test
+    public void nullInputGivesNull() {
+        assertNull(converter(5, 100, 255, false).toMap(null));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void truncatesOversizedPayload() throws Exception {
+        JSONObject json = new JSONObject("{\"long\": \"abcdef\", \"deep\": {\"deeper\": {\"x\": 1}}, \"list\": [1, 2, 3, 4]}");
+
+        Map<String, Object> map = converter(2, 3, 3, true).toMap(json);
+
+        assertEquals("abc", map.get("long"));
+        assertTrue(((Map<String, Object>) map.get("deep")).isEmpty());
+        assertEquals(3, ((List<Object>) map.get("list")).size());
+    }
+
+    @Test
+    public void rejectsOversizedPayload() throws Exception {
+        JSONObject json = new JSONObject("{\"long\": \"abcdef\"}");
+
+        try {
+            converter(5, 100, 3, false).toMap(json);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Intercom payload has a string longer than 3 characters", e.getMessage());
+        }
+    }
+
+    @Test
+    public void unconfiguredLimitsLeaveThePayloadAlone() throws Exception {
+        StringBuilder text = new StringBuilder();
+        JSONObject json = new JSONObject();
+        for (int i = 0; i < 500; i++) {
+            text.append('x');
+            json.put("key" + i, i);
+        }
+        json.put("text", text.toString());
+
+        Map<String, Object> map = new IntercomJsonConverter(IntercomJsonConverter.Limits.from(null)).toMap(json);
+
+        assertEquals(501, map.size());
+        assertEquals(text.toString(), map.get("text"));
+    }
+
+    @Test
+    public void configuredLimitsRejectUnlessTruncationIsAskedFor() throws Exception {
+        JSONObject json = new JSONObject("{\"long\": \"abcdef\"}");
+        IntercomJsonConverter.Limits rejecting = IntercomJsonConverter.Limits.from(new JSONObject("{\"maxStringLength\":3}"));
+        IntercomJsonConverter.Limits truncating = IntercomJsonConverter.Limits.from(
+            new JSONObject("{\"maxStringLength\":3,\"onOverflow\":\"truncate\"}")
+        );
+
+        assertFalse(rejecting.truncate);
+        try {
+            new IntercomJsonConverter(rejecting).toMap(json);
+            fail();
+        } catch (IllegalArgumentException expected) {}
+        assertEquals("abc", new IntercomJsonConverter(truncating).toMap(json).get("long"));
+    }
+
+    @Test
+    public void deepNestingDoesNotRecurse() throws Exception {
+        JSONObject root = new JSONObject();
+        JSONObject current = root;
+        for (int i = 0; i < 20000; i++) {
+            JSONObject child = new JSONObject();
+            current.put("child", new JSONArray().put(child));
+            current = child;
+        }
+
+        Map<String, Object> map = converter(Integer.MAX_VALUE, 100, 255, false).toMap(root);
+
+        assertTrue(map.containsKey("child"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class IntercomMetricsTest {
+
+    @After
+    public void tearDown() {
+        IntercomMetrics.resetForTesting();
+    }
+
+    @Test
+    public void histogramReportsBucketBoundsAsPercentiles() {
+        IntercomMetrics.Histogram histogram = new IntercomMetrics.Histogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(80));
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(4));
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(100), histogram.getPercentileNanos(0.5));
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(100), histogram.getPercentileNanos(0.9));
+        // The 5ms bucket is capped by the largest value actually seen
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(4), histogram.getPercentileNanos(0.99));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(4), histogram.getMaxNanos());
+    }
+
+    @Test
+    public void valuesBeyondTheLastBoundReportTheMaximum() {
+        IntercomMetrics.Histogram histogram = new IntercomMetrics.Histogram();
+        histogram.record(TimeUnit.SECONDS.toNanos(10));
+
+        assertEquals(TimeUnit.SECONDS.toNanos(10), histogram.getPercentileNanos(0.5));
+    }
+
+    @Test
+    public void emptyHistogramReportsZero() {
+        assertEquals(0, new IntercomMetrics.Histogram().getPercentileNanos(0.99));
+    }
+
+    @Test
+    public void recordsCallsCallbacksAndSuppressedErrors() {
+        long start = IntercomMetrics.beginCall("logEvent");
+        IntercomMetrics.endCall("logEvent", start);
+        IntercomMetrics.recordCallback("updateUser", System.nanoTime(), false);
+        IntercomMetrics.suppressed("config.load", new RuntimeException());
+        IntercomMetrics.suppressed("config.load", new RuntimeException());
+
+        assertEquals(1, IntercomMetrics.calls.get("logEvent").getCount());
+        assertEquals(1, IntercomMetrics.callbacks.get("updateUser").getCount());
+        assertEquals(1, IntercomMetrics.callbackFailures.get("updateUser").get());
+        assertEquals(2, IntercomMetrics.suppressedErrors.get("config.load").get());
+    }
+
+    @Test
+    public void disabledRegistryRecordsNothing() {
+        IntercomMetrics.configure(false, false);
+
+        IntercomMetrics.endCall("logEvent", IntercomMetrics.beginCall("logEvent"));
+        IntercomMetrics.suppressed("config.load", new RuntimeException());
+
+        assertTrue(IntercomMetrics.calls.isEmpty());
+        assertTrue(IntercomMetrics.suppressedErrors.isEmpty());
+    }
+}
@@ -0,0 +1,67 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class IntercomPendingCallsTest {
+
+    @Test
+    public void drainsInArrivalOrderThenCloses() {
+        IntercomPendingCalls calls = new IntercomPendingCalls(10);
+        List<String> ran = new ArrayList<>();
+
+        assertEquals(IntercomPendingCalls.Result.QUEUED, calls.offer(() -> ran.add("a")));
+        assertEquals(IntercomPendingCalls.Result.QUEUED, calls.offer(() -> ran.add("b")));
+        assertTrue(ran.isEmpty());
+
+        calls.drain();
+
+        assertEquals(List.of("a", "b"), ran);
+        assertFalse(calls.isOpen());
+        assertEquals(IntercomPendingCalls.Result.CLOSED, calls.offer(() -> ran.add("c")));
+    }
+
+    @Test
+    public void rejectsBeyondCapacity() {
+        IntercomPendingCalls calls = new IntercomPendingCalls(1);
+
+        assertEquals(IntercomPendingCalls.Result.QUEUED, calls.offer(() -> {}));
+        assertEquals(IntercomPendingCalls.Result.FULL, calls.offer(() -> {}));
+    }
+
+    @Test
+    public void replayedCallRunsInlineInsteadOfRequeueing() {
+        final IntercomPendingCalls calls = new IntercomPendingCalls(10);
+        final List<IntercomPendingCalls.Result> reentered = new ArrayList<>();
+
+        calls.offer(() -> reentered.add(calls.offer(() -> fail("must not be queued"))));
+        calls.drain();
+
+        assertEquals(List.of(IntercomPendingCalls.Result.CLOSED), reentered);
+    }
+
+    @Test
+    public void failingCallDoesNotStrandTheRest() {
+        IntercomPendingCalls calls = new IntercomPendingCalls(10);
+        List<String> ran = new ArrayList<>();
+
+        calls.offer(() -> {
+            throw new IllegalStateException();
+        });
+        calls.offer(() -> ran.add("b"));
+        try {
+            calls.drain();
+            fail();
+        } catch (IllegalStateException expected) {}
+        assertTrue(calls.isOpen());
+        assertEquals(1, calls.size());
+
+        calls.drain();
+
+        assertEquals(List.of("b"), ran);
+        assertFalse(calls.isOpen());
+    }
+}
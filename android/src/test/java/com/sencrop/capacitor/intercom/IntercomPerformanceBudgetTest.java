@@ -0,0 +1,206 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import com.getcapacitor.JSObject;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Budgets for the work behind each bridge call. A change that adds an SDK call, a package manager
+ * IPC or per-event garbage to a hot path fails here instead of in a trace from the field.
+ */
+public class IntercomPerformanceBudgetTest {
+
+    private static final String[] COMPONENTS = IntercomComponentController.AUTO_COMPONENTS;
+
+    /** Bytes allocated on the calling thread by one {@code logEvent} with small metadata; about 1.8 KB today. */
+    private static final long LOG_EVENT_ALLOCATION_BUDGET = 4096;
+
+    private IntercomTestHarness harness;
+
+    @After
+    public void tearDown() {
+        if (harness != null) {
+            harness.shutdown();
+        }
+        IntercomMetrics.resetForTesting();
+    }
+
+    private static FakePluginCall call(String method, String json) throws Exception {
+        return new FakePluginCall(method, new JSObject(json));
+    }
+
+    private static String[] installed(int count) {
+        String[] installed = new String[count];
+        System.arraycopy(COMPONENTS, 0, installed, 0, count);
+        return installed;
+    }
+
+    @Test
+    public void queuedEventsCostOneSdkCallEach() throws Exception {
+        harness = new IntercomTestHarness(new JSONObject("{\"eventQueue\":{\"enabled\":true,\"flushIntervalMs\":60000}}"));
+        List<FakePluginCall> calls = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            FakePluginCall call = call("logEvent", "{\"name\":\"scroll\",\"data\":{\"page\":" + i + "}}");
+            harness.logEvent(call);
+            calls.add(call);
+        }
+        for (FakePluginCall call : calls) {
+            assertTrue(call.await(0));
+        }
+
+        harness.flush();
+        harness.drain();
+
+        assertEquals(50, harness.sdk.count("logEvent"));
+        assertEquals(50, harness.sdk.calls().size());
+    }
+
+    @Test
+    public void coalescedEventsCostNoSdkCall() throws Exception {
+        harness = new IntercomTestHarness(new JSONObject("{\"eventQueue\":{\"enabled\":true,\"flushIntervalMs\":60000,\"coalesceWindowMs\":60000}}"));
+        for (int i = 0; i < 20; i++) {
+            harness.logEvent(call("logEvent", "{\"name\":\"tap\",\"data\":{\"button\":\"save\"}}"));
+        }
+
+        harness.flush();
+        harness.drain();
+
+        assertEquals(1, harness.sdk.count("logEvent"));
+    }
+
+    @Test
+    public void attributeBurstCostsOneSdkCall() throws Exception {
+        harness = new IntercomTestHarness(new JSONObject("{\"attributeDebounceMs\":60000}"));
+        harness.sdk.callbackLatencyMs = 20;
+        List<FakePluginCall> calls = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            FakePluginCall call = call("updateUser", "{\"name\":\"Ada " + i + "\",\"email\":\"ada@example.com\"}");
+            harness.updateUser(call);
+            calls.add(call);
+        }
+
+        harness.flush();
+        for (FakePluginCall call : calls) {
+            assertTrue(call.await(5000));
+        }
+        assertEquals(1, harness.sdk.count("updateUser"));
+
+        // Acknowledged values are skipped without touching the SDK
+        FakePluginCall repeat = call("updateUser", "{\"name\":\"Ada 9\",\"email\":\"ada@example.com\"}");
+        harness.updateUser(repeat);
+        assertTrue(repeat.await(0));
+        assertEquals(1, harness.sdk.count("updateUser"));
+    }
+
+    @Test
+    public void repeatedLoginsWhileInFlightCostOneSdkLogin() throws Exception {
+        harness = new IntercomTestHarness();
+        harness.sdk.callbackLatencyMs = 50;
+        List<FakePluginCall> calls = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            FakePluginCall call = call("loginIdentifiedUser", "{\"userId\":\"42\"}");
+            harness.loginIdentifiedUser(call);
+            calls.add(call);
+        }
+        for (FakePluginCall call : calls) {
+            assertTrue(call.await(5000));
+        }
+
+        FakePluginCall relaunch = call("loginIdentifiedUser", "{\"userId\":\"42\"}");
+        harness.loginIdentifiedUser(relaunch);
+        assertTrue(relaunch.await(0));
+
+        assertEquals(1, harness.sdk.count("loginIdentifiedUser"));
+        assertEquals(0, harness.sdk.count("logout"));
+    }
+
+    @Test
+    public void componentTogglingStaysWithinIpcBudget() {
+        FakePackageManager packageManager = new FakePackageManager(FakePackageManager.TIRAMISU, installed(5));
+        IntercomComponentController controller = new IntercomComponentController(packageManager.backend(), COMPONENTS);
+
+        // Startup: one manifest read, one state read per installed component, then one batched write
+        controller.setEnabled(false);
+        assertEquals(7, packageManager.getIpcCount());
+        assertEquals(1, packageManager.getPackageInfoCalls);
+        assertEquals(1, packageManager.setComponentEnabledSettingsCalls);
+
+        // Repeats are answered from the cached states
+        controller.setEnabled(false);
+        controller.setEnabled(false);
+        assertEquals(7, packageManager.getIpcCount());
+
+        // Each later flip is a single write
+        controller.setEnabled(true);
+        controller.setEnabled(false);
+        assertEquals(9, packageManager.getIpcCount());
+        // The controller's own count, manifest read included, matches the package manager's
+        assertEquals(packageManager.getIpcCount(), controller.getIssuedIpcCount());
+        assertEquals(5, packageManager.getComponentEnabledSettingCalls);
+    }
+
+    @Test
+    public void componentTogglingBeforeApi33WritesOncePerComponent() {
+        FakePackageManager packageManager = new FakePackageManager(23, installed(5));
+        IntercomComponentController controller = new IntercomComponentController(packageManager.backend(), COMPONENTS);
+
+        controller.setEnabled(false);
+        controller.setEnabled(false);
+
+        assertEquals(11, packageManager.getIpcCount());
+        assertEquals(5, packageManager.setComponentEnabledSettingCalls);
+        assertEquals(0, packageManager.setComponentEnabledSettingsCalls);
+    }
+
+    @Test
+    public void missingComponentsCostOnlyTheManifestRead() {
+        FakePackageManager packageManager = new FakePackageManager(FakePackageManager.TIRAMISU);
+        IntercomComponentController controller = new IntercomComponentController(packageManager.backend(), COMPONENTS);
+
+        controller.setEnabled(false);
+        controller.setEnabled(true);
+
+        assertEquals(1, packageManager.getIpcCount());
+        assertEquals(1, controller.getIssuedIpcCount());
+    }
+
+    @Test
+    public void logEventStaysWithinAllocationBudget() throws Exception {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported());
+        allocations.setThreadAllocatedMemoryEnabled(true);
+
+        // Large enough that nothing is sent or dropped while measuring
+        harness = new IntercomTestHarness(
+            new JSONObject("{\"eventQueue\":{\"enabled\":true,\"capacity\":100000,\"flushSize\":100000,\"flushIntervalMs\":600000}}")
+        );
+        int warmup = 20000;
+        int measured = 20000;
+        FakePluginCall[] calls = new FakePluginCall[warmup + measured];
+        for (int i = 0; i < calls.length; i++) {
+            calls[i] = call("logEvent", "{\"name\":\"screen_view\",\"data\":{\"screen\":\"home\",\"index\":" + i + "}}");
+        }
+        for (int i = 0; i < warmup; i++) {
+            harness.logEvent(calls[i]);
+        }
+
+        long thread = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(thread);
+        for (int i = warmup; i < calls.length; i++) {
+            harness.logEvent(calls[i]);
+        }
+        long perEvent = (allocations.getThreadAllocatedBytes(thread) - before) / measured;
+
+        assertTrue(calls[calls.length - 1].resolved);
+        assertTrue("logEvent allocated " + perEvent + " bytes per call", perEvent <= LOG_EVENT_ALLOCATION_BUDGET);
+    }
+}
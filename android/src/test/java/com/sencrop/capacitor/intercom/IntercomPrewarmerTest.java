@@ -0,0 +1,126 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+public class IntercomPrewarmerTest {
+
+    private final List<Runnable> tasks = new ArrayList<>();
+    private int initializations;
+
+    @After
+    public void tearDown() {
+        IntercomMetrics.resetForTesting();
+        IntercomPresentTimer.resetForTesting();
+    }
+
+    private IntercomPrewarmer prewarmer(List<String> classes, boolean initializes) {
+        return new IntercomPrewarmer(tasks::add, getClass().getClassLoader(), classes, () -> {
+            initializations++;
+            return initializes;
+        });
+    }
+
+    private void runTasks() {
+        List<Runnable> pending = new ArrayList<>(tasks);
+        tasks.clear();
+        for (Runnable task : pending) {
+            task.run();
+        }
+    }
+
+    @Test
+    public void concurrentRequestsShareOneRun() {
+        IntercomPrewarmer prewarmer = prewarmer(Arrays.asList("java.util.ArrayList"), true);
+        List<Boolean> results = new ArrayList<>();
+
+        prewarmer.prewarm(results::add);
+        prewarmer.prewarm(results::add);
+        assertEquals(1, tasks.size());
+        assertFalse(prewarmer.isWarm());
+
+        runTasks();
+
+        assertEquals(Arrays.asList(true, true), results);
+        assertEquals(1, initializations);
+        assertTrue(prewarmer.isWarm());
+    }
+
+    @Test
+    public void completedPrewarmIsNotRepeated() {
+        IntercomPrewarmer prewarmer = prewarmer(Arrays.asList("java.util.ArrayList"), true);
+        prewarmer.prewarm(null);
+        runTasks();
+
+        List<Boolean> results = new ArrayList<>();
+        prewarmer.prewarm(results::add);
+
+        assertTrue(tasks.isEmpty());
+        assertEquals(Arrays.asList(true), results);
+        assertEquals(1, initializations);
+    }
+
+    @Test
+    public void failedInitializationCanBeRetried() {
+        IntercomPrewarmer prewarmer = prewarmer(Arrays.asList("java.util.ArrayList"), false);
+        List<Boolean> results = new ArrayList<>();
+
+        prewarmer.prewarm(results::add);
+        runTasks();
+        prewarmer.prewarm(results::add);
+        runTasks();
+
+        assertEquals(Arrays.asList(false, false), results);
+        assertEquals(2, initializations);
+        assertFalse(prewarmer.isWarm());
+        assertEquals(0, prewarmer.getLoadedClassCount());
+    }
+
+    @Test
+    public void missingClassesAreCountedNotFatal() {
+        IntercomPrewarmer prewarmer = prewarmer(Arrays.asList("java.util.ArrayList", "io.intercom.android.sdk.DoesNotExist"), true);
+
+        prewarmer.prewarm(null);
+        runTasks();
+
+        assertTrue(prewarmer.isWarm());
+        assertEquals(1, prewarmer.getLoadedClassCount());
+        assertEquals(1, prewarmer.getMissingClassCount());
+    }
+
+    @Test
+    public void settingsAppendConfiguredClassesToDefaults() throws Exception {
+        JSONObject json = new JSONObject()
+            .put("auto", true)
+            .put("classes", new JSONArray().put("com.example.Extra").put(IntercomPrewarmer.DEFAULT_CLASSES[0]));
+
+        IntercomPrewarmer.Settings settings = IntercomPrewarmer.Settings.from(json);
+
+        assertTrue(settings.auto);
+        assertEquals(IntercomPrewarmer.DEFAULT_CLASSES.length + 1, settings.classes.size());
+        assertEquals("com.example.Extra", settings.classes.get(settings.classes.size() - 1));
+        assertFalse(IntercomPrewarmer.Settings.from(null).auto);
+    }
+
+    @Test
+    public void presentTimerSeparatesColdAndWarmPresentations() {
+        IntercomPresentTimer.begin("displayMessenger", false);
+        IntercomPresentTimer.onPresented();
+        IntercomPresentTimer.begin("displayMessenger", false);
+        IntercomPresentTimer.onPresented();
+        IntercomPresentTimer.begin("displayArticle", true);
+        IntercomPresentTimer.onPresented();
+
+        assertEquals(1, IntercomMetrics.present.get("displayMessenger.cold").getCount());
+        // Once something has been presented, the UI classes are loaded whether or not prewarm ran
+        assertEquals(1, IntercomMetrics.present.get("displayMessenger.warm").getCount());
+        assertEquals(1, IntercomMetrics.present.get("displayArticle.warm").getCount());
+    }
+}
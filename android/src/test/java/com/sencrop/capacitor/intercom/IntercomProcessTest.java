@@ -0,0 +1,35 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class IntercomProcessTest {
+
+    private static String parse(String cmdline) {
+        byte[] bytes = cmdline.getBytes(StandardCharsets.UTF_8);
+        return IntercomProcess.parseCmdline(bytes, bytes.length);
+    }
+
+    @Test
+    public void readsFirstArgument() {
+        assertEquals("com.example.app", parse("com.example.app\0"));
+        assertEquals("com.example.app:remote", parse("com.example.app:remote\0--flag\0"));
+    }
+
+    @Test
+    public void ignoresUnusedBufferSpace() {
+        byte[] buffer = new byte[64];
+        byte[] name = "com.example.app".getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(name, 0, buffer, 0, name.length);
+
+        assertEquals("com.example.app", IntercomProcess.parseCmdline(buffer, name.length));
+    }
+
+    @Test
+    public void emptyCmdlineGivesNull() {
+        assertNull(parse(""));
+        assertNull(parse("\0"));
+    }
+}
@@ -0,0 +1,104 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IntercomPushQueueTest {
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(temp.getRoot(), "intercom/push-queue.json");
+    }
+
+    @After
+    public void tearDown() {
+        IntercomMetrics.resetForTesting();
+    }
+
+    private IntercomPushQueue queue(int capacity, long maxAgeMs) {
+        return new IntercomPushQueue(file, new IntercomPushQueue.Settings(true, capacity, maxAgeMs));
+    }
+
+    private static IntercomPushQueue.Push push(String id, long receivedAtMs) {
+        return new IntercomPushQueue.Push(id, receivedAtMs, Collections.singletonMap("receiver", "intercom_sdk"));
+    }
+
+    @Test
+    public void survivesARestartAndDrainsOnce() {
+        queue(10, 1000).offer(push("a", 100));
+        queue(10, 1000).offer(push("b", 200));
+
+        IntercomPushQueue reopened = queue(10, 1000);
+        List<IntercomPushQueue.Push> pushes = reopened.drain(300);
+
+        assertEquals(2, pushes.size());
+        assertEquals("a", pushes.get(0).id);
+        assertEquals("intercom_sdk", pushes.get(1).data.get("receiver"));
+        assertTrue(reopened.drain(300).isEmpty());
+        assertFalse(file.exists());
+        assertEquals(0, queue(10, 1000).size());
+    }
+
+    @Test
+    public void dropsDuplicatesById() {
+        IntercomPushQueue queue = queue(10, 1000);
+
+        assertEquals(IntercomPushQueue.Result.QUEUED, queue.offer(push("a", 100)));
+        assertEquals(IntercomPushQueue.Result.DUPLICATE, queue.offer(push("a", 150)));
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void dropsTheOldestWhenFull() {
+        IntercomPushQueue queue = queue(2, 1000);
+        queue.offer(push("a", 100));
+        queue.offer(push("b", 200));
+
+        assertEquals(IntercomPushQueue.Result.QUEUED_DROPPING_OLDEST, queue.offer(push("c", 300)));
+
+        List<IntercomPushQueue.Push> pushes = queue.drain(400);
+        assertEquals(2, pushes.size());
+        assertEquals("b", pushes.get(0).id);
+        assertEquals("c", pushes.get(1).id);
+    }
+
+    @Test
+    public void drainSkipsPushesOlderThanMaxAge() {
+        IntercomPushQueue queue = queue(10, 1000);
+        queue.offer(push("old", 0));
+        queue.offer(push("new", 900));
+
+        List<IntercomPushQueue.Push> pushes = queue.drain(1500);
+
+        assertEquals(1, pushes.size());
+        assertEquals("new", pushes.get(0).id);
+        assertEquals(1, queue.getExpiredCount());
+    }
+
+    @Test
+    public void startsOverFromACorruptFile() throws Exception {
+        file.getParentFile().mkdirs();
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            output.write("[{\"id\":".getBytes(StandardCharsets.UTF_8));
+        }
+        IntercomPushQueue queue = queue(10, 1000);
+
+        assertEquals(IntercomPushQueue.Result.QUEUED, queue.offer(push("a", 100)));
+        assertEquals(1, queue(10, 1000).size());
+    }
+}
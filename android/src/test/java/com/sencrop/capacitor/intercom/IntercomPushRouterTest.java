@@ -0,0 +1,160 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IntercomPushRouterTest {
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    private final List<Map<String, String>> forwarded = new ArrayList<>();
+    private final List<Runnable> scheduled = new ArrayList<>();
+    private boolean ready;
+    private IntercomPushQueue queue;
+
+    @Before
+    public void setUp() throws Exception {
+        File file = new File(temp.getRoot(), "push-queue.json");
+        queue = new IntercomPushQueue(file, new IntercomPushQueue.Settings(true, 2, 60_000));
+    }
+
+    private IntercomPushRouter intake(boolean queueEnabled) {
+        return new IntercomPushRouter(queue, queueEnabled, forwarded::add, () -> ready, scheduled::add);
+    }
+
+    private static Map<String, String> push(String conversation) {
+        Map<String, String> data = new HashMap<>();
+        data.put("receiver", "intercom_sdk");
+        data.put("conversation_id", conversation);
+        return data;
+    }
+
+    @Test
+    public void recognizesIntercomPushesByReceiver() {
+        assertTrue(IntercomPushRouter.isIntercomPush(push("1")));
+        assertFalse(IntercomPushRouter.isIntercomPush(new HashMap<>()));
+        assertFalse(IntercomPushRouter.isIntercomPush(null));
+    }
+
+    @Test
+    public void forwardsDirectlyOnceReady() {
+        ready = true;
+        IntercomPushRouter intake = intake(true);
+
+        intake.accept("m1", push("1"), 0);
+        intake.accept("m1", push("1"), 0);
+
+        assertEquals(1, forwarded.size());
+        assertEquals(1, intake.getDuplicateCount());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void queuesUntilReadyThenReplaysInOrderWithDelays() {
+        IntercomPushRouter intake = intake(true);
+        intake.accept("m1", push("1"), 1_000);
+        intake.accept("m2", push("2"), 2_000);
+        intake.accept("m2", push("2"), 2_500);
+
+        assertTrue(forwarded.isEmpty());
+        assertEquals(2, intake.getQueuedCount());
+        assertEquals(1, intake.getDuplicateCount());
+
+        ready = true;
+        intake.replay(3_000);
+
+        assertEquals("1", forwarded.get(0).get("conversation_id"));
+        assertEquals("2", forwarded.get(1).get("conversation_id"));
+        assertEquals(2, intake.getReplayedCount());
+        assertEquals(2, intake.getReplayDelays().getCount());
+        assertEquals(0, intake.getPendingCount());
+
+        // A redelivery after replay is still recognized
+        intake.accept("m1", push("1"), 4_000);
+        assertEquals(2, forwarded.size());
+    }
+
+    @Test
+    public void countsOverflowAndExpiryAsDropped() {
+        IntercomPushRouter intake = intake(true);
+        intake.accept("m1", push("1"), 0);
+        intake.accept("m2", push("2"), 0);
+        intake.accept("m3", push("3"), 50_000);
+
+        ready = true;
+        intake.replay(70_000);
+
+        assertEquals(1, forwarded.size());
+        assertEquals(2, intake.getDroppedCount());
+    }
+
+    @Test
+    public void pushWithoutIdIsDedupedByContent() {
+        IntercomPushRouter intake = intake(true);
+
+        intake.accept(null, push("1"), 0);
+        intake.accept("", push("1"), 0);
+
+        assertEquals(1, intake.getQueuedCount());
+        assertEquals(1, intake.getDuplicateCount());
+    }
+
+    @Test
+    public void contentKeysTellApartPayloadsWithEqualHashCodes() {
+        // "Aa" and "BB" share a String hash code, so these two maps hash alike
+        Map<String, String> first = push("1");
+        first.put("Aa", "x");
+        Map<String, String> second = push("1");
+        second.put("BB", "x");
+        assertEquals(first.hashCode(), second.hashCode());
+
+        assertNotEquals(IntercomPushRouter.contentKey(first), IntercomPushRouter.contentKey(second));
+        assertEquals(IntercomPushRouter.contentKey(first), IntercomPushRouter.contentKey(new HashMap<>(first)));
+        assertNotEquals(IntercomPushRouter.contentKey(Map.of("a", "bc")), IntercomPushRouter.contentKey(Map.of("ab", "c")));
+    }
+
+    @Test
+    public void disabledQueueDropsEarlyPushes() {
+        IntercomPushRouter intake = intake(false);
+
+        intake.accept("m1", push("1"), 0);
+        intake.replay(0);
+
+        assertTrue(forwarded.isEmpty());
+        assertEquals(1, intake.getDroppedCount());
+    }
+
+    @Test
+    public void schedulesAReplayWhenInitFinishesWhileQueueing() {
+        IntercomPushRouter intake = new IntercomPushRouter(
+            queue,
+            true,
+            forwarded::add,
+            new IntercomPushRouter.Readiness() {
+                private int checks;
+
+                @Override
+                public boolean isReady() {
+                    return checks++ > 0;
+                }
+            },
+            scheduled::add
+        );
+
+        intake.accept("m1", push("1"), System.currentTimeMillis());
+        assertEquals(1, scheduled.size());
+        scheduled.get(0).run();
+
+        assertEquals(1, forwarded.size());
+    }
+}
@@ -0,0 +1,80 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Test;
+
+public class IntercomSdkLoaderTest {
+
+    /** Loads classes itself instead of delegating to the test's class loader, and records which. */
+    private static final class RecordingClassLoader extends URLClassLoader {
+
+        final List<String> loaded = new ArrayList<>();
+
+        RecordingClassLoader() throws Exception {
+            super(classPath(), ClassLoader.getPlatformClassLoader());
+        }
+
+        private static URL[] classPath() throws Exception {
+            String[] entries = System.getProperty("java.class.path").split(File.pathSeparator);
+            URL[] urls = new URL[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                urls[i] = new File(entries[i]).toURI().toURL();
+            }
+            return urls;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            loaded.add(name);
+            return super.findClass(name);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        IntercomSdkLoader.setForTesting(null);
+    }
+
+    @Test
+    public void returnsTheOverrideWhenSet() {
+        FakeIntercomSdk fake = new FakeIntercomSdk();
+        IntercomSdkLoader.setForTesting(fake);
+
+        IntercomSdkLoader.get().logEvent("opened", null);
+
+        assertSame(fake, IntercomSdkLoader.get());
+        assertEquals(List.of("logEvent(opened, null)"), fake.calls());
+    }
+
+    @Test
+    public void usingTheLoaderWithAnOverrideLoadsNoSdkClass() throws Exception {
+        RecordingClassLoader classLoader = new RecordingClassLoader();
+        Class<?> loader = Class.forName(IntercomSdkLoader.class.getName(), true, classLoader);
+        Class<?> sdk = Class.forName(IntercomSdk.class.getName(), true, classLoader);
+        // Classes from another loader are in another runtime package, so package-private needs opening up
+        Constructor<?> constructor = Class.forName(FakeIntercomSdk.class.getName(), true, classLoader).getDeclaredConstructor();
+        constructor.setAccessible(true);
+        Object fake = constructor.newInstance();
+        Method setForTesting = loader.getDeclaredMethod("setForTesting", sdk);
+        Method get = loader.getDeclaredMethod("get");
+        setForTesting.setAccessible(true);
+        get.setAccessible(true);
+
+        setForTesting.invoke(null, fake);
+        assertSame(fake, get.invoke(null));
+
+        for (String name : classLoader.loaded) {
+            assertFalse(name, name.startsWith("io.intercom.") || name.equals(AndroidIntercomSdk.class.getName()));
+        }
+        classLoader.close();
+    }
+}
@@ -0,0 +1,135 @@
+package com.sencrop.capacitor.intercom;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONObject;
+
+/**
+ * The plugin's call paths from bridge call to SDK call: the same {@link IntercomTracker} and config
+ * readers {@link IntercomPlugin} uses, around a {@link FakeIntercomSdk}. {@code IntercomPlugin}
+ * itself needs a bridge and a WebView; this keeps everything after the bridge on a plain JVM.
+ */
+class IntercomTestHarness {
+
+    final FakeIntercomSdk sdk = new FakeIntercomSdk();
+    final ScheduledExecutorService background = Executors.newSingleThreadScheduledExecutor();
+    final IntercomEventSampler eventSampler;
+    final IntercomEventQueue eventQueue;
+    final IntercomAttributeCache attributeCache;
+    final IntercomTracker tracker;
+    final IntercomIdentity identity;
+
+    /** {@code config} is {@code plugins.Intercom}, as the plugin would read it. */
+    IntercomTestHarness(JSONObject config) {
+        IntercomSdkLoader.setForTesting(sdk);
+        IntercomEventSampler.Settings samplingSettings = IntercomEventSampler.Settings.from(config.optJSONObject("eventSampling"));
+        eventSampler = samplingSettings.enabled ? new IntercomEventSampler(samplingSettings) : null;
+        IntercomEventQueue.Settings queueSettings = IntercomEventQueue.Settings.from(config.optJSONObject("eventQueue"));
+        eventQueue = queueSettings.enabled ? new IntercomEventQueue(queueSettings, sdk::logEvent, background) : null;
+        attributeCache = config.optBoolean("attributeCache", true) ? new IntercomAttributeCache(new MemoryStorage()) : null;
+        IntercomEventAggregator.Settings aggregationSettings = IntercomEventAggregator.Settings.from(config.optJSONObject("eventAggregation"));
+        tracker = new IntercomTracker(
+            new IntercomJsonConverter(IntercomJsonConverter.Limits.from(config.optJSONObject("metadataLimits"))),
+            aggregationSettings.enabled ? new IntercomEventAggregator(aggregationSettings) : null,
+            eventSampler,
+            eventQueue,
+            attributeCache,
+            background,
+            config.optLong("attributeDebounceMs", 250),
+            null
+        );
+        identity = new IntercomIdentity(new MemoryIdentityStorage(), sdk, config.optBoolean("identityFastPath", true));
+    }
+
+    IntercomTestHarness() {
+        this(new JSONObject());
+    }
+
+    void logEvent(FakePluginCall call) {
+        tracker.logEvent(call);
+    }
+
+    void updateUser(FakePluginCall call) {
+        tracker.updateUser(call);
+    }
+
+    void loginIdentifiedUser(final FakePluginCall call) {
+        tracker.flushBeforeUserChange(5000);
+        identity.login(
+            call.getString("userId"),
+            call.getString("email"),
+            call.getString("userHash"),
+            new IntercomSdk.Callback() {
+                @Override
+                public void onSuccess() {
+                    call.resolve();
+                }
+
+                @Override
+                public void onFailure(String message) {
+                    call.reject(message);
+                }
+            }
+        );
+    }
+
+    void logout() {
+        tracker.flushBeforeUserChange(5000);
+        sdk.logout();
+        identity.onLogout();
+        if (attributeCache != null) {
+            attributeCache.invalidate();
+        }
+    }
+
+    /** Sends whatever the event queue and attribute buffer hold. */
+    void flush() {
+        if (eventQueue != null) {
+            eventQueue.flush();
+        }
+        tracker.getAttributeBuffer().flush();
+    }
+
+    /** Waits for work already handed to the background thread. */
+    void drain() throws Exception {
+        background.submit(() -> {}).get(5, TimeUnit.SECONDS);
+    }
+
+    void shutdown() {
+        background.shutdownNow();
+        IntercomSdkLoader.setForTesting(null);
+    }
+
+    private static final class MemoryStorage implements IntercomAttributeCache.Storage {
+
+        private Map<String, String> values = new HashMap<>();
+
+        @Override
+        public synchronized Map<String, String> load() {
+            return new HashMap<>(values);
+        }
+
+        @Override
+        public synchronized void save(Map<String, String> values) {
+            this.values = new HashMap<>(values);
+        }
+    }
+
+    private static final class MemoryIdentityStorage implements IntercomIdentity.Storage {
+
+        private volatile String fingerprint;
+
+        @Override
+        public String load() {
+            return fingerprint;
+        }
+
+        @Override
+        public void save(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+
+import com.getcapacitor.JSObject;
+import java.util.List;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+public class IntercomTrackerTest {
+
+    private IntercomTestHarness harness;
+
+    @After
+    public void tearDown() {
+        if (harness != null) {
+            harness.shutdown();
+        }
+    }
+
+    private static FakePluginCall call(String method, String json) throws Exception {
+        return new FakePluginCall(method, new JSObject(json));
+    }
+
+    /** A harness whose attribute buffer would hold updates for a minute. */
+    private static IntercomTestHarness slowBufferHarness() throws Exception {
+        return new IntercomTestHarness(new JSONObject("{\"attributeDebounceMs\": 60000}"));
+    }
+
+    @Test
+    public void bufferedUpdateReachesTheUserLoggingOut() throws Exception {
+        harness = slowBufferHarness();
+        FakePluginCall update = call("updateUser", "{\"name\":\"Ada\"}");
+        harness.updateUser(update);
+
+        harness.logout();
+
+        assertTrue(update.await(5000));
+        assertTrue(update.resolved);
+        List<String> calls = harness.sdk.calls();
+        assertEquals(2, calls.size());
+        assertEquals("updateUser({name=Ada}, {})", calls.get(0));
+        assertEquals("logout()", calls.get(1));
+    }
+
+    @Test
+    public void bufferedUpdateReachesTheUserBeingSwitchedAway() throws Exception {
+        harness = slowBufferHarness();
+        FakePluginCall first = call("loginIdentifiedUser", "{\"userId\":\"ada\"}");
+        harness.loginIdentifiedUser(first);
+        assertTrue(first.await(5000));
+        FakePluginCall update = call("updateUser", "{\"name\":\"Ada\"}");
+        harness.updateUser(update);
+
+        FakePluginCall second = call("loginIdentifiedUser", "{\"userId\":\"grace\"}");
+        harness.loginIdentifiedUser(second);
+
+        assertTrue(update.await(5000));
+        assertTrue(second.await(5000));
+        List<String> calls = harness.sdk.calls();
+        int updated = calls.indexOf("updateUser({name=Ada}, {})");
+        int switched = calls.indexOf("loginIdentifiedUser(grace, null)");
+        assertTrue(calls.toString(), updated >= 0 && switched > updated);
+    }
+
+    @Test
+    public void queuedEventReachesTheUserLoggingOut() throws Exception {
+        harness = new IntercomTestHarness(new JSONObject("{\"eventQueue\":{\"enabled\":true,\"flushIntervalMs\":60000}}"));
+        FakePluginCall event = call("logEvent", "{\"name\":\"opened\"}");
+        harness.logEvent(event);
+        assertTrue(event.await(5000));
+
+        harness.logout();
+
+        List<String> calls = harness.sdk.calls();
+        assertEquals(2, calls.size());
+        assertEquals("logEvent(opened, null)", calls.get(0));
+        assertEquals("logout()", calls.get(1));
+    }
+
+    @Test
+    public void nothingBufferedSkipsTheWait() throws Exception {
+        harness = slowBufferHarness();
+
+        harness.logout();
+
+        assertEquals(1, harness.sdk.calls().size());
+        assertEquals("logout()", harness.sdk.calls().get(0));
+    }
+}
@@ -0,0 +1,110 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class IntercomUnreadCountStreamTest {
+
+    private final List<Runnable> frames = new ArrayList<>();
+    private final List<Integer> emitted = new ArrayList<>();
+    private boolean listening = true;
+
+    private final IntercomUnreadCountStream stream = new IntercomUnreadCountStream(
+        frames::add,
+        new IntercomUnreadCountStream.Sink() {
+            @Override
+            public boolean isListening() {
+                return listening;
+            }
+
+            @Override
+            public void emit(int count) {
+                emitted.add(count);
+            }
+        }
+    );
+
+    private void nextFrame() {
+        List<Runnable> due = new ArrayList<>(frames);
+        frames.clear();
+        for (Runnable flush : due) {
+            flush.run();
+        }
+    }
+
+    @Test
+    public void sendsOnlyTheLatestCountOfAWindow() {
+        stream.onUnreadCountChanged(1);
+        stream.onUnreadCountChanged(2);
+        stream.onUnreadCountChanged(3);
+
+        assertEquals(1, frames.size());
+        nextFrame();
+
+        assertEquals(Arrays.asList(3), emitted);
+        assertEquals(1, stream.getEmittedCount());
+        assertEquals(2, stream.getCoalescedCount());
+    }
+
+    @Test
+    public void eachWindowSendsItsOwnCount() {
+        stream.onUnreadCountChanged(1);
+        nextFrame();
+        stream.onUnreadCountChanged(2);
+        nextFrame();
+
+        assertEquals(Arrays.asList(1, 2), emitted);
+    }
+
+    @Test
+    public void doesNotResendAnUnchangedCount() {
+        stream.onUnreadCountChanged(4);
+        nextFrame();
+        stream.onUnreadCountChanged(4);
+        nextFrame();
+
+        assertEquals(Arrays.asList(4), emitted);
+        assertEquals(1, stream.getCoalescedCount());
+    }
+
+    @Test
+    public void schedulesNothingWithoutAListener() {
+        listening = false;
+
+        stream.onUnreadCountChanged(1);
+        stream.onUnreadCountChanged(2);
+
+        assertTrue(frames.isEmpty());
+        assertEquals(2, stream.getSuppressedCount());
+        assertEquals(2, stream.getUpdateCount());
+    }
+
+    @Test
+    public void listenerAttachedLaterGetsTheNextCountEvenIfUnchanged() {
+        stream.onUnreadCountChanged(5);
+        nextFrame();
+        stream.onUnreadCountChanged(6);
+        listening = false;
+        nextFrame();
+        listening = true;
+        stream.onUnreadCountChanged(6);
+        nextFrame();
+
+        assertEquals(Arrays.asList(5, 6), emitted);
+        assertEquals(1, stream.getSuppressedCount());
+    }
+
+    @Test
+    public void settingsDefaultToOneFrame() throws Exception {
+        IntercomUnreadCountStream.Settings settings = IntercomUnreadCountStream.Settings.from(null);
+
+        assertTrue(settings.enabled);
+        assertEquals(1, settings.windowFrames);
+        assertEquals(3, IntercomUnreadCountStream.Settings.from(new JSONObject().put("windowFrames", 3)).windowFrames);
+    }
+}
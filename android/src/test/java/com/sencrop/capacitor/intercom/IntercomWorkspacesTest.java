@@ -0,0 +1,116 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class IntercomWorkspacesTest {
+
+    private String saved;
+    private final List<String> calls = new ArrayList<>();
+
+    private final IntercomWorkspaces.Storage storage = new IntercomWorkspaces.Storage() {
+        @Override
+        public String load() {
+            return saved;
+        }
+
+        @Override
+        public void save(String appId) {
+            saved = appId;
+        }
+    };
+
+    private final IntercomWorkspaces.Client client = new IntercomWorkspaces.Client() {
+        @Override
+        public void leave(IntercomWorkspaces.Workspace from) {
+            calls.add("leave(" + from.appId + ")");
+        }
+
+        @Override
+        public void logout() {
+            calls.add("logout()");
+        }
+
+        @Override
+        public void initialize(IntercomWorkspaces.Workspace to) {
+            calls.add("initialize(" + to.apiKey + ", " + to.appId + ")");
+        }
+    };
+
+    private IntercomWorkspaces workspaces() throws Exception {
+        return IntercomWorkspaces.from(
+            "b2c-key",
+            "b2c",
+            new JSONObject("{\"b2b\":{\"android_apiKey\":\"b2b-key\"},\"broken\":{}}"),
+            storage
+        );
+    }
+
+    @Test
+    public void readsTheDefaultPairAndTheWorkspacesMap() throws Exception {
+        IntercomWorkspaces workspaces = workspaces();
+
+        assertEquals("b2b-key", workspaces.get("b2b").apiKey);
+        assertNull(workspaces.get("broken"));
+        assertTrue(workspaces.isDefault(workspaces.get("b2c")));
+        assertTrue(workspaces.isMultiple());
+        assertFalse(IntercomWorkspaces.from("key", "app", null, storage).isMultiple());
+        assertNull(IntercomWorkspaces.from(null, null, null, storage).initial());
+    }
+
+    @Test
+    public void startsInTheLastActiveWorkspaceWhileItIsConfigured() throws Exception {
+        assertEquals("b2c", workspaces().initial().appId);
+
+        saved = "b2b";
+        assertEquals("b2b", workspaces().initial().appId);
+
+        saved = "removed";
+        assertEquals("b2c", workspaces().initial().appId);
+    }
+
+    @Test
+    public void switchingLeavesLogsOutAndReinitializesOnce() throws Exception {
+        IntercomWorkspaces workspaces = workspaces();
+        workspaces.onInitialized(workspaces.initial());
+
+        assertTrue(workspaces.switchTo("b2b", true, client));
+
+        assertEquals(Arrays.asList("leave(b2c)", "logout()", "initialize(b2b-key, b2b)"), calls);
+        assertEquals("b2b", workspaces.getActive().appId);
+        assertEquals("b2b", saved);
+        assertEquals(1, workspaces.getSwitchCount());
+        assertEquals(1, workspaces.getSwitchTimes().getCount());
+    }
+
+    @Test
+    public void switchingToTheActiveWorkspaceDoesNothing() throws Exception {
+        IntercomWorkspaces workspaces = workspaces();
+        workspaces.onInitialized(workspaces.get("b2c"));
+
+        assertFalse(workspaces.switchTo("b2c", true, client));
+        assertTrue(calls.isEmpty());
+        assertEquals(0, workspaces.getSwitchCount());
+    }
+
+    @Test
+    public void switchingBeforeInitializationOnlyPicksTheWorkspace() throws Exception {
+        IntercomWorkspaces workspaces = workspaces();
+
+        assertFalse(workspaces.switchTo("b2b", false, client));
+
+        assertTrue(calls.isEmpty());
+        assertEquals("b2b", workspaces.initial().appId);
+        assertEquals("b2b", saved);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownWorkspaceIsRejected() throws Exception {
+        workspaces().switchTo("nope", true, client);
+    }
+}
@@ -0,0 +1,107 @@
+package com.sencrop.capacitor.intercom;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.lang.reflect.Constructor;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import org.junit.Test;
+
+public class PackageManagerComponentBackendTest {
+
+    private static final String[] COMPONENTS = IntercomComponentController.AUTO_COMPONENTS;
+
+    /** Loads classes itself instead of delegating to the test's class loader, and records which. */
+    private static final class RecordingClassLoader extends URLClassLoader {
+
+        final List<String> loaded = new ArrayList<>();
+
+        RecordingClassLoader() throws Exception {
+            super(classPath(), ClassLoader.getPlatformClassLoader());
+        }
+
+        private static URL[] classPath() throws Exception {
+            String[] entries = System.getProperty("java.class.path").split(File.pathSeparator);
+            URL[] urls = new URL[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                urls[i] = new File(entries[i]).toURI().toURL();
+            }
+            return urls;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            loaded.add(name);
+            return super.findClass(name);
+        }
+    }
+
+    /** The manifest lists every Intercom component but the last. */
+    private static FakePackageManager packageManager(int sdkInt) {
+        return new FakePackageManager(sdkInt, Arrays.copyOf(COMPONENTS, COMPONENTS.length - 1));
+    }
+
+    @Test
+    public void presenceComesFromOneManifestRead() {
+        FakePackageManager packageManager = packageManager(FakePackageManager.TIRAMISU);
+        PackageManagerComponentBackend backend = packageManager.backend();
+
+        for (int i = 0; i < COMPONENTS.length - 1; i++) {
+            assertTrue(backend.isPresent(COMPONENTS[i]));
+        }
+        assertFalse(backend.isPresent(COMPONENTS[COMPONENTS.length - 1]));
+        assertEquals(1, packageManager.getIpcCount());
+    }
+
+    @Test
+    public void batchesWritesFromApi33Only() {
+        String[] names = { COMPONENTS[0], COMPONENTS[1] };
+        int[] states = { 2, 2 };
+
+        FakePackageManager tiramisu = packageManager(FakePackageManager.TIRAMISU);
+        assertEquals(1, tiramisu.backend().setStates(names, states));
+        assertEquals(1, tiramisu.setComponentEnabledSettingsCalls);
+        // A single change needs no batch
+        assertEquals(1, tiramisu.backend().setStates(new String[] { names[0] }, new int[] { 1 }));
+        assertEquals(1, tiramisu.setComponentEnabledSettingCalls);
+
+        FakePackageManager older = packageManager(32);
+        assertEquals(2, older.backend().setStates(names, states));
+        assertEquals(2, older.setComponentEnabledSettingCalls);
+        assertEquals(0, older.setComponentEnabledSettingsCalls);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void providerPathLoadsNoSdkClass() throws Exception {
+        RecordingClassLoader classLoader = new RecordingClassLoader();
+        // Classes from another loader are in another runtime package, so package-private needs opening up
+        Constructor<?> constructor = Class.forName(ProviderPath.class.getName(), true, classLoader).getDeclaredConstructor();
+        constructor.setAccessible(true);
+
+        Map<String, Integer> states = ((Callable<Map<String, Integer>>) constructor.newInstance()).call();
+
+        assertEquals(COMPONENTS.length - 1, states.size());
+        for (String name : classLoader.loaded) {
+            assertFalse(name, name.startsWith("io.intercom."));
+        }
+        classLoader.close();
+    }
+
+    /** What IntercomInitProvider does on every process start, run inside the isolated class loader. */
+    static final class ProviderPath implements Callable<Map<String, Integer>> {
+
+        @Override
+        public Map<String, Integer> call() {
+            FakePackageManager packageManager = packageManager(FakePackageManager.TIRAMISU);
+            new IntercomComponentController(packageManager.backend(), COMPONENTS).setEnabled(false);
+            return packageManager.states;
+        }
+    }
+}
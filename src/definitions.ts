@@ -1,3 +1,5 @@
+import type { PluginListenerHandle } from '@capacitor/core';
+
 // Type definitions for non-npm package Intercom Web API 2.8
 // Project: https://docs.intercom.io/
 //            configure-intercom-for-your-product-or-site/
@@ -130,6 +132,258 @@ export interface IntercomCustomAttributes {
   attributes: Record<string, number | string | boolean>;
 }
 
+export interface IntercomCallQueueMetrics {
+  depth: number;
+  maxDepth: number;
+  /** Calls turned away because the queue was full. */
+  rejected: number;
+  /** Time calls spent queued before they started. */
+  wait: IntercomLatencyMetrics;
+}
+
+export interface IntercomEventQueueMetrics {
+  depth: number;
+  enqueued: number;
+  coalesced: number;
+  dropped: number;
+  dispatched: number;
+  failed: number;
+}
+
+export interface IntercomAttributeCacheMetrics {
+  hits: number;
+  misses: number;
+}
+
+export interface IntercomIdentityMetrics {
+  /** Logins that reached the SDK. */
+  logins: number;
+  /** Logins for the user already logged in, answered without the SDK. */
+  skipped: number;
+  /** Logins that joined an identical one already in flight. */
+  collapsed: number;
+  /** Logins that logged another user out first. */
+  switches: number;
+}
+
+export interface IntercomJournalMetrics {
+  appended: number;
+  replayed: number;
+  dropped: number;
+  backlog: number;
+}
+
+export interface IntercomPushMetrics {
+  /** Intercom pushes handed to the plugin. */
+  received: number;
+  /** Pushes handed to the SDK, directly or on replay. */
+  forwarded: number;
+  /** Pushes queued on disk because the SDK was not initialized yet. */
+  queued: number;
+  replayed: number;
+  /** Pushes with a message id already received. */
+  duplicates: number;
+  /** Pushes lost to a full or disabled queue, or too old to show when replayed. */
+  dropped: number;
+  /** Pushes waiting in the queue. */
+  pending: number;
+  /** Time from receiving a queued push to handing it to the SDK. */
+  replayDelay: IntercomLatencyMetrics;
+}
+
+export interface IntercomUnreadCountMetrics {
+  /** Counts reported by the SDK. */
+  updates: number;
+  /** `unreadCountChange` events sent to JS. */
+  emitted: number;
+  /** Counts replaced by a later one in the same frame window, or equal to the last one sent. */
+  coalesced: number;
+  /** Counts dropped because no `unreadCountChange` listener was attached. */
+  suppressed: number;
+}
+
+export interface IntercomWorkspaceMetrics {
+  /** App ID the SDK is initialized for. */
+  active?: string;
+  switches: number;
+  /** Time to leave one workspace and initialize the next. */
+  switch: IntercomLatencyMetrics;
+  /** Journal records written in another workspace and dropped instead of replayed. */
+  discardedRecords: number;
+}
+
+export interface IntercomDiagnosticsMetrics {
+  /** Internal errors recorded since startup. */
+  recorded: number;
+  /** Errors pushed out of the diagnostics buffer by newer ones. */
+  overwritten: number;
+}
+
+export interface IntercomEventSamplingMetrics {
+  passed: number;
+  dropped: number;
+  /** Drop summary events sent so far. */
+  summaries: number;
+}
+
+export interface IntercomEventAggregationMetrics {
+  /** Events counted into aggregates instead of being sent. */
+  aggregated: number;
+  /** Summary events sent so far. */
+  summaries: number;
+  /** Event names with aggregates waiting for the next flush. */
+  pending: number;
+}
+
+export interface IntercomStartupMetrics {
+  processCheckMs: number;
+  configReadMs: number;
+  sdkInitMs: number;
+  componentToggleMs: number;
+  providerMainThreadMs: number;
+  /** Time the asynchronous early init spent initializing the SDK on the background thread. */
+  backgroundInitMs: number;
+  /** Total time plugin calls and Intercom activities spent blocked waiting for the early init. */
+  barrierWaitMs: number;
+}
+
+export interface IntercomPrewarmMetrics {
+  warm: boolean;
+  durationMs: number;
+  classesLoaded: number;
+  /** Classes from the prewarm list that this build of the SDK doesn't have. */
+  classesMissing: number;
+}
+
+export interface IntercomLatencyMetrics {
+  count: number;
+  totalMs: number;
+  maxMs: number;
+  p50Ms: number;
+  p90Ms: number;
+  p99Ms: number;
+}
+
+export interface IntercomCallbackMetrics extends IntercomLatencyMetrics {
+  failures: number;
+}
+
+export interface IntercomMetrics {
+  callQueue: IntercomCallQueueMetrics;
+  eventQueue: IntercomEventQueueMetrics;
+  attributeCache: IntercomAttributeCacheMetrics;
+  identity: IntercomIdentityMetrics;
+  journal: IntercomJournalMetrics;
+  push: IntercomPushMetrics;
+  unreadCount: IntercomUnreadCountMetrics;
+  workspaces: IntercomWorkspaceMetrics;
+  eventSampling: IntercomEventSamplingMetrics;
+  eventAggregation: IntercomEventAggregationMetrics;
+  startup: IntercomStartupMetrics;
+  prewarm: IntercomPrewarmMetrics;
+  /** Duration of each plugin method, by method name. */
+  calls: Record<string, IntercomLatencyMetrics>;
+  /** Time until the SDK called back, by operation. */
+  callbacks: Record<string, IntercomCallbackMetrics>;
+  /** Initialization phases, by phase name. */
+  init: Record<string, IntercomLatencyMetrics>;
+  /** Display call to first Intercom frame, by `<method>.cold` or `<method>.warm`. */
+  present: Record<string, IntercomLatencyMetrics>;
+  /** Exceptions caught and swallowed, by site. */
+  suppressedErrors: Record<string, number>;
+  /** Exceptions caught and swallowed, by exception class. */
+  suppressedErrorTypes: Record<string, number>;
+  diagnostics: IntercomDiagnosticsMetrics;
+}
+
+export type IntercomBatchMethod =
+  | 'loginIdentifiedUser'
+  | 'loginUnidentifiedUser'
+  | 'updateUser'
+  | 'setCustomAttributes'
+  | 'logout'
+  | 'logEvent'
+  | 'displayMessenger'
+  | 'displayMessageComposer'
+  | 'displayHelpCenter'
+  | 'hideMessenger'
+  | 'displayLauncher'
+  | 'hideLauncher'
+  | 'displayArticle'
+  | 'displaySurvey';
+
+export interface IntercomBatchOperation {
+  method: IntercomBatchMethod;
+  /** What the method takes when called on its own, e.g. an `IntercomEvent` for `logEvent`. */
+  options?:
+    | IntercomIdentity
+    | IntercomUser
+    | IntercomCustomAttributes
+    | IntercomEvent
+    | IntercomMessage
+    | IntercomArticle
+    | IntercomSurvey;
+}
+
+export interface IntercomWorkspace {
+  /** A workspace from the plugin config: the top-level `appId` or a key of `workspaces`. */
+  appId: string;
+}
+
+export interface IntercomWorkspaceSwitchResult {
+  appId: string;
+  /** Whether the SDK had to be reset; `false` when the workspace was already active or Intercom wasn't initialized yet. */
+  switched: boolean;
+  durationMs: number;
+}
+
+export interface IntercomFlushAggregatesResult {
+  /** Summary events sent. */
+  events: number;
+}
+
+export interface IntercomDiagnosticError {
+  /** Where the error was caught, e.g. `connectivity.observe`. */
+  site: string;
+  /** Exception class name. */
+  type: string;
+  /** Epoch milliseconds. */
+  timestamp: number;
+}
+
+export interface IntercomDiagnostics {
+  /** The most recent internal errors, oldest first. */
+  errors: IntercomDiagnosticError[];
+  recorded: number;
+  overwritten: number;
+}
+
+export interface IntercomUnreadCountChange {
+  /** Unread conversations of the logged in user. */
+  count: number;
+}
+
+export interface IntercomPrewarmResult {
+  durationMs: number;
+  classesLoaded: number;
+}
+
+export interface IntercomBatchOptions {
+  operations: IntercomBatchOperation[];
+  /** `stopOnError` (default) skips the operations after the first failure; `continue` runs them all. */
+  policy?: 'stopOnError' | 'continue';
+}
+
+export interface IntercomBatchOperationResult {
+  method: IntercomBatchMethod;
+  status: 'fulfilled' | 'rejected' | 'skipped';
+  error?: string;
+}
+
+export interface IntercomBatchResult {
+  results: IntercomBatchOperationResult[];
+}
+
 export interface IntercomPlugin {
   initialize(config: IntercomSettings): void;
   loginIdentifiedUser(identity: IntercomIdentity): Promise<void>;
@@ -146,4 +400,45 @@ export interface IntercomPlugin {
   hideLauncher(): Promise<void>;
   setCustomAttributes(payload: IntercomCustomAttributes): Promise<void>;
   displaySurvey(survey: IntercomSurvey): Promise<void>;
+  /**
+   * Native performance counters. Android only.
+   */
+  getMetrics(): Promise<IntercomMetrics>;
+  /**
+   * Runs several operations in order with a single bridge call. Android only.
+   */
+  batch(options: IntercomBatchOptions): Promise<IntercomBatchResult>;
+  /**
+   * Initializes Intercom and loads the messenger UI on a background thread, so the first
+   * display call opens faster. Android only.
+   */
+  prewarm(): Promise<IntercomPrewarmResult>;
+  /**
+   * Moves to another configured Intercom workspace: logs the current user out and initializes
+   * Intercom again for `appId`, without restarting the app. Before initialization it only picks
+   * the workspace to initialize. Android only.
+   */
+  switchWorkspace(workspace: IntercomWorkspace): Promise<IntercomWorkspaceSwitchResult>;
+  /**
+   * The most recent errors the plugin caught internally, to see why a fast path wasn't taken.
+   * Android only.
+   */
+  getDiagnostics(): Promise<IntercomDiagnostics>;
+  /**
+   * Sends the aggregated events now, one summary event per name, instead of waiting for the next
+   * interval or the app going to the background. Android only.
+   */
+  flushAggregates(): Promise<IntercomFlushAggregatesResult>;
+  /**
+   * Listens for changes to the unread conversation count. Changes within a frame are sent once,
+   * with the latest count. Android only.
+   */
+  addListener(
+    eventName: 'unreadCountChange',
+    listenerFunc: (change: IntercomUnreadCountChange) => void,
+  ): Promise<PluginListenerHandle>;
+  /**
+   * Removes every listener added with `addListener`.
+   */
+  removeAllListeners(): Promise<void>;
 }
@@ -3,14 +3,20 @@ import { WebPlugin } from '@capacitor/core';
 import type {
   Intercom,
   IntercomArticle,
+  IntercomBatchResult,
   IntercomCustomAttributes,
+  IntercomDiagnostics,
   IntercomEvent,
+  IntercomFlushAggregatesResult,
   IntercomIdentity,
   IntercomMessage,
+  IntercomMetrics,
   IntercomPlugin,
+  IntercomPrewarmResult,
   IntercomSettings,
   IntercomSurvey,
   IntercomUser,
+  IntercomWorkspaceSwitchResult,
 } from './definitions';
 
 declare global {
@@ -177,4 +183,28 @@ export class IntercomWeb extends WebPlugin implements IntercomPlugin {
       await window.Intercom('startSurvey', survey.id);
     }
   }
+
+  async getMetrics(): Promise<IntercomMetrics> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  async batch(): Promise<IntercomBatchResult> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  async prewarm(): Promise<IntercomPrewarmResult> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  async switchWorkspace(): Promise<IntercomWorkspaceSwitchResult> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  async getDiagnostics(): Promise<IntercomDiagnostics> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  async flushAggregates(): Promise<IntercomFlushAggregatesResult> {
+    throw this.unimplemented('Not implemented on web.');
+  }
 }